@@ -0,0 +1,103 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mordoch.chemtools.catalog.CatalogWriter;
+import com.mordoch.chemtools.catalog.CompoundCatalog;
+
+/**
+ * Benchmarks for {@link CompoundCatalog}, looking up the formulas of a corpus in a catalog that
+ * also holds a million generated compounds. Lookups should not allocate at all.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CatalogBenchmarks {
+
+  private static final int GENERATED_COMPOUNDS = 1000000;
+
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  public Corpus corpus;
+
+  private Path path;
+  private CompoundCatalog catalog;
+  private String[] formulas;
+  private int nextFormula;
+
+  @Setup
+  public void setUp() throws IOException {
+    formulas = corpus.formulas();
+    path = Files.createTempFile("catalog", ".cat");
+    try (CatalogWriter writer = new CatalogWriter(path)) {
+      for (String formula : formulas) {
+        writer.add(formula);
+      }
+      StringBuilder formula = new StringBuilder();
+      for (int index = 0; index < GENERATED_COMPOUNDS; index++) {
+        formula.setLength(0);
+        formula.append('C').append(1 + index % 60).append('H').append(1 + index / 60 % 120)
+            .append('N').append(1 + index / 7200 % 10).append('O').append(1 + index / 72000);
+        writer.add(formula);
+      }
+    }
+    catalog = CompoundCatalog.open(path);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    // The mapping may keep the file open on some systems, so only try to delete it.
+    path.toFile().deleteOnExit();
+  }
+
+  @Benchmark
+  public int find() {
+    nextFormula = nextFormula + 1 == formulas.length ? 0 : nextFormula + 1;
+    return catalog.find(formulas[nextFormula]);
+  }
+
+  @Benchmark
+  public double findMolarMass() {
+    nextFormula = nextFormula + 1 == formulas.length ? 0 : nextFormula + 1;
+    return catalog.molarMassAt(catalog.find(formulas[nextFormula]));
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mordoch.chemtools.util.Conversions;
+
+/**
+ * Compares the bulk {@link Conversions} methods with a loop over the scalar ones. massToMols
+ * divides and molsToMass multiplies, so both kinds of loop are covered. Every benchmark converts
+ * the whole column once.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ConversionBenchmarks {
+
+  private static final double MOLAR_MASS = 180.156;
+
+  @Param({"1000", "1000000"})
+  public int size;
+
+  private double[] column;
+  private double[] destination;
+  private DoubleBuffer heapBuffer;
+  private DoubleBuffer directBuffer;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    column = new double[size];
+    for (int index = 0; index < size; index++) {
+      column[index] = random.nextDouble() * 1000;
+    }
+    destination = new double[size];
+    heapBuffer = DoubleBuffer.wrap(column.clone());
+    directBuffer = ByteBuffer.allocateDirect(size * Double.BYTES).order(ByteOrder.nativeOrder())
+        .asDoubleBuffer();
+    directBuffer.put(column).clear();
+  }
+
+  @Benchmark
+  public double[] massToMolsScalar() {
+    for (int index = 0; index < size; index++) {
+      destination[index] = Conversions.massToMols(column[index], MOLAR_MASS);
+    }
+    return destination;
+  }
+
+  @Benchmark
+  public double[] massToMolsArray() {
+    Conversions.massToMols(column, MOLAR_MASS, destination);
+    return destination;
+  }
+
+  @Benchmark
+  public double[] molsToMassScalar() {
+    for (int index = 0; index < size; index++) {
+      destination[index] = Conversions.molsToMass(column[index], MOLAR_MASS);
+    }
+    return destination;
+  }
+
+  @Benchmark
+  public double[] molsToMassArray() {
+    Conversions.molsToMass(column, MOLAR_MASS, destination);
+    return destination;
+  }
+
+  // The buffers are converted in place, so multiply and then divide to keep the values bounded.
+  @Benchmark
+  public DoubleBuffer heapBufferInPlace() {
+    Conversions.molsToMass(heapBuffer, MOLAR_MASS);
+    Conversions.massToMols(heapBuffer, MOLAR_MASS);
+    return heapBuffer;
+  }
+
+  @Benchmark
+  public DoubleBuffer directBufferInPlace() {
+    Conversions.molsToMass(directBuffer, MOLAR_MASS);
+    Conversions.massToMols(directBuffer, MOLAR_MASS);
+    return directBuffer;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.benchmarks;
+
+/**
+ * The inputs the benchmarks run over, grouped by size. Every formula and equation is written in
+ * the grammar of {@link com.mordoch.chemtools.formulatools.FtHelper#parseFormula(String)}, and
+ * every equation is balanced so that stoichiometry gives meaningful answers.
+ * <ul>
+ * <li>SMALL: simple molecules and salts, one to three elements.</li>
+ * <li>MEDIUM: common organic and inorganic compounds such as glucose or caffeine.</li>
+ * <li>LARGE: polymers and proteins, both as condensed formulas and written out one repeating unit
+ * at a time, which makes for formulas hundreds of tokens long.</li>
+ * </ul>
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public enum Corpus {
+
+  SMALL(new String[] {"H2O", "NaCl", "CO2", "CH4", "NH3", "HCl", "O2", "N2", "KBr", "MgO", "CaF2",
+      "SO2", "H2O2", "LiH", "Fe2O3", "Al2O3"}, new String[] {"(2)H2 + O2 ---> (2)H2O",
+      "N2 + (3)H2 ---> (2)NH3", "C + O2 ---> CO2", "(2)Na + Cl2 ---> (2)NaCl",
+      "(2)Mg + O2 ---> (2)MgO", "H2 + Cl2 ---> (2)HCl"}),
+
+  MEDIUM(new String[] {"C6H12O6", "C8H10N4O2", "C9H8O4", "C12H22O11", "C2H5OH", "CH3COOH",
+      "C8H18", "Ca3P2O8", "KMnO4", "CuSO4H10O9", "C10H16N5O13P3", "C27H46O", "NaHCO3",
+      "C6H8O7", "K4FeC6N6", "C20H25N3O"}, new String[] {"C6H12O6 + (6)O2 ---> (6)CO2 + (6)H2O",
+      "(2)C8H18 + (25)O2 ---> (16)CO2 + (18)H2O", "C3H8 + (5)O2 ---> (3)CO2 + (4)H2O",
+      "(4)Fe + (3)O2 ---> (2)Fe2O3", "CaCO3 ---> CaO + CO2",
+      "NaHCO3 + HCl ---> NaCl + H2O + CO2"}),
+
+  LARGE(new String[] {"C1000H2002", "C6000H10002O5001", "C2952H4664N812O832S8Fe4",
+      "C769H1212N210O218S2Fe", "C254H377N65O75S6", "C613H951N193O185S10",
+      repeat("C2H4", 250), repeat("C8H8", 100), repeat("C6H10O5", 100), repeat("C2H3Cl", 200),
+      repeat("C5H8", 150), repeat("C3H6", 200)}, new String[] {
+      "C1000H2002 + (1500.5)O2 ---> (1000)CO2 + (1001)H2O",
+      "C6000H10002O5001 + (6000)O2 ---> (6000)CO2 + (5001)H2O",
+      "C800H800 + (1000)O2 ---> (800)CO2 + (400)H2O",
+      "C600H1200 + (900)O2 ---> (600)CO2 + (600)H2O"});
+
+  // Symbols weighted towards the elements that appear most often in real formulas
+  private static final String[] SYMBOLS = {"H", "C", "O", "N", "H", "C", "O", "S", "P", "Cl",
+      "Na", "K", "Ca", "Mg", "Fe", "Cu", "Zn", "Br", "I", "Si", "Al", "Li", "Mn", "Co", "Ni",
+      "Ag", "Au", "Pb", "Hg", "Sn", "U", "Uuo"};
+
+  private final String[] formulas;
+  private final String[] equations;
+
+  private Corpus(String[] formulas, String[] equations) {
+    this.formulas = formulas;
+    this.equations = equations;
+  }
+
+  /**
+   * Gets the formulas of this corpus.
+   * 
+   * @return the formulas; the array is shared and must not be modified
+   */
+
+  public String[] formulas() {
+    return formulas;
+  }
+
+  /**
+   * Gets the balanced equations of this corpus. The first reactant of each is the one to use as
+   * the limiting reactant.
+   * 
+   * @return the equations; the array is shared and must not be modified
+   */
+
+  public String[] equations() {
+    return equations;
+  }
+
+  /**
+   * Gets element symbols to look up, in the proportions they appear in typical formulas.
+   * 
+   * @return the symbols; the array is shared and must not be modified
+   */
+
+  public static String[] symbols() {
+    return SYMBOLS;
+  }
+
+  /* UTILITY METHODS */
+
+  // Writes a polymer out one repeating unit at a time, e.g. "C2H4C2H4C2H4" for three units.
+  private static String repeat(String unit, int count) {
+    StringBuilder builder = new StringBuilder(unit.length() * count);
+    for (int index = 0; index < count; index++) {
+      builder.append(unit);
+    }
+    return builder.toString();
+  }
+}
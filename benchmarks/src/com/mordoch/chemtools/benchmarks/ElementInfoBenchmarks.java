@@ -0,0 +1,57 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mordoch.chemtools.util.elementinfo.ElementInfo;
+
+/**
+ * Benchmarks for element information lookups.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ElementInfoBenchmarks {
+
+  private final String[] symbols = Corpus.symbols();
+  private int nextSymbol;
+
+  @Benchmark
+  public Double massGet() {
+    nextSymbol = nextSymbol + 1 == symbols.length ? 0 : nextSymbol + 1;
+    return ElementInfo.mass.get(symbols[nextSymbol]);
+  }
+}
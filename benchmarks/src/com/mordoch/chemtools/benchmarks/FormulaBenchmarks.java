@@ -0,0 +1,84 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mordoch.chemtools.formulatools.Equation;
+import com.mordoch.chemtools.formulatools.Formula;
+import com.mordoch.chemtools.formulatools.FtHelper;
+
+/**
+ * Benchmarks for parsing formulas and equations with {@link FtHelper}. With "cached" set to false
+ * the intern pools are turned off, so every call runs the parser; otherwise most calls are pool
+ * hits.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class FormulaBenchmarks {
+
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  public Corpus corpus;
+
+  @Param({"false", "true"})
+  public boolean cached;
+
+  private String[] formulas;
+  private String[] equations;
+  private int nextFormula;
+  private int nextEquation;
+
+  @Setup
+  public void setUp() {
+    FtHelper.configureInternPools(cached ? FtHelper.DEFAULT_POOL_CAPACITY : 0);
+    formulas = corpus.formulas();
+    equations = corpus.equations();
+  }
+
+  @Benchmark
+  public Formula parseFormula() {
+    nextFormula = nextFormula + 1 == formulas.length ? 0 : nextFormula + 1;
+    return FtHelper.parseFormula(formulas[nextFormula]);
+  }
+
+  @Benchmark
+  public Equation parseEquation() {
+    nextEquation = nextEquation + 1 == equations.length ? 0 : nextEquation + 1;
+    return FtHelper.parseEquation(equations[nextEquation]);
+  }
+}
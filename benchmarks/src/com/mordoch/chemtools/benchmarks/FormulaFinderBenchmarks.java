@@ -0,0 +1,69 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mordoch.chemtools.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mordoch.chemtools.formulatools.Formula;
+import com.mordoch.chemtools.util.FormulaFinder;
+
+/**
+ * Benchmarks for {@link FormulaFinder}, searching CHNOPS formulas for an exact mass with a
+ * tolerance of 2 mu. The search space grows quickly with the mass, so the masses range from a
+ * small molecule to a peptide.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class FormulaFinderBenchmarks {
+
+  @Param({"180.0634", "500.2", "1000.5", "1500.5"})
+  public double mass;
+
+  private FormulaFinder finder;
+
+  @Setup
+  public void setUp() {
+    finder = new FormulaFinder(new String[] {"C", "H", "N", "O", "P", "S"},
+        new int[] {0, 0, 0, 0, 0, 0}, new int[] {125, 250, 100, 90, 48, 46});
+  }
+
+  @Benchmark
+  public List<Formula> findByExactMass() {
+    return finder.findByExactMass(mass, 0.002);
+  }
+}
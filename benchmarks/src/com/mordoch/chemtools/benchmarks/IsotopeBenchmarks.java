@@ -0,0 +1,73 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mordoch.chemtools.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mordoch.chemtools.util.IsotopeCalculator;
+import com.mordoch.chemtools.util.IsotopeDistribution;
+
+/**
+ * Benchmarks for {@link IsotopeCalculator}. With "cached" set to false every formula gets a new
+ * calculator, so the distributions of the elements are computed from scratch each time; with it
+ * set to true one calculator is reused, as when computing a whole library.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class IsotopeBenchmarks {
+
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  public Corpus corpus;
+
+  @Param({"false", "true"})
+  public boolean cached;
+
+  private final IsotopeCalculator calculator = new IsotopeCalculator();
+  private String[] formulas;
+  private int nextFormula;
+
+  @Setup
+  public void setUp() {
+    formulas = corpus.formulas();
+  }
+
+  @Benchmark
+  public IsotopeDistribution computeDistribution() {
+    nextFormula = nextFormula + 1 == formulas.length ? 0 : nextFormula + 1;
+    return (cached ? calculator : new IsotopeCalculator()).compute(formulas[nextFormula]);
+  }
+}
@@ -16,6 +16,21 @@
 
 package com.mordoch.chemtools;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import com.mordoch.chemtools.batch.BatchOperation;
+import com.mordoch.chemtools.batch.BatchProcessor;
+import com.mordoch.chemtools.batch.ParallelBatchProcessor;
+import com.mordoch.chemtools.interaction.CommandLine;
+import com.mordoch.chemtools.interaction.Daemon;
+import com.mordoch.chemtools.interaction.DaemonClient;
+import com.mordoch.chemtools.interaction.HttpService;
 import com.mordoch.chemtools.interaction.Menu;
 
 /**
@@ -32,6 +47,26 @@ public class Main {
 
   /**
    * The main method prints out copyright information then instantiates Menu and calls mainMenu();
+   * <p>
+   * When started as <code>Main --batch &lt;operation&gt; &lt;input&gt; &lt;output&gt;</code>, it
+   * runs the operation (e.g. "molar-mass") over every formula in the input file instead and
+   * writes the results to the output file as CSV. The work is spread over every core unless
+   * <code>--threads &lt;n&gt;</code> is given after the output file; one thread runs the sequential
+   * processor.
+   * </p>
+   * <p>
+   * When the first argument is a subcommand such as "molar-mass", it is run by
+   * {@link CommandLine} instead, without the copyright information or the menu.
+   * </p>
+   * <p>
+   * <code>Main --serve [port] [address]</code> starts an {@link HttpService} that runs until the
+   * process is stopped. By default it listens on port 8080 of the loopback address.
+   * </p>
+   * <p>
+   * <code>Main --daemon [socket]</code> starts a {@link Daemon} on a Unix domain socket, and
+   * <code>Main --client &lt;command&gt; [arguments...]</code> runs a subcommand on it through
+   * {@link DaemonClient}.
+   * </p>
    * 
    * @param args args
    * @throws InterruptedException if menu thread was interrupted while showing a warning menu
@@ -39,6 +74,25 @@ public class Main {
    */
 
   public static void main(String[] args) throws InterruptedException {
+    if (args.length > 0 && args[0].equals("--batch")) {
+      System.exit(batch(args));
+    }
+    if (args.length > 0 && args[0].equals("--serve")) {
+      int status = serve(args);
+      if (status != 0) {
+        System.exit(status);
+      }
+      return;
+    }
+    if (args.length > 0 && args[0].equals("--daemon")) {
+      System.exit(daemon(args));
+    }
+    if (args.length > 0 && args[0].equals("--client")) {
+      DaemonClient.main(Arrays.copyOfRange(args, 1, args.length));
+    }
+    if (args.length > 0 && CommandLine.isCommand(args[0])) {
+      System.exit(CommandLine.run(args, System.in, System.out, System.err));
+    }
     programInfo();
     new Menu() {
       {
@@ -47,6 +101,118 @@ public class Main {
     };
   }
 
+  private static int batch(String[] args) {
+    int threads = Runtime.getRuntime().availableProcessors();
+    if (args.length == 6 && args[4].equals("--threads")) {
+      try {
+        threads = Integer.parseInt(args[5]);
+      } catch (NumberFormatException e) {
+        threads = 0;
+      }
+    } else if (args.length != 4) {
+      threads = 0;
+    }
+    if (threads < 1) {
+      System.err.println(
+          "Usage: --batch <operation> <input file> <output file> [--threads <number of threads>]");
+      return 2;
+    }
+    try {
+      BatchOperation operation = BatchOperation.forCommand(args[1]);
+      long formulaCount;
+      long errorCount;
+      if (threads == 1) {
+        BatchProcessor processor = new BatchProcessor(operation);
+        processor.process(Paths.get(args[2]), Paths.get(args[3]));
+        formulaCount = processor.getFormulaCount();
+        errorCount = processor.getErrorCount();
+      } else {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+          ParallelBatchProcessor processor = new ParallelBatchProcessor(operation, pool);
+          processor.process(Paths.get(args[2]), Paths.get(args[3]));
+          formulaCount = processor.getFormulaCount();
+          errorCount = processor.getErrorCount();
+        } finally {
+          pool.shutdown();
+        }
+      }
+      System.err.println(formulaCount + " formulas, " + errorCount + " errors");
+      return errorCount == 0 ? 0 : 1;
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      return 2;
+    } catch (IOException e) {
+      System.err.println("Batch failed: " + e.getMessage());
+      return 1;
+    }
+  }
+
+  private static int serve(String[] args) {
+    if (args.length > 3) {
+      System.err.println("Usage: --serve [port] [address]");
+      return 2;
+    }
+    try {
+      int port = args.length > 1 ? Integer.parseInt(args[1]) : HttpService.DEFAULT_PORT;
+      InetAddress address =
+          args.length > 2 ? InetAddress.getByName(args[2]) : InetAddress.getLoopbackAddress();
+      final HttpService service = new HttpService(new InetSocketAddress(address, port));
+      service.start();
+      Runtime.getRuntime().addShutdownHook(new Thread() {
+        @Override
+        public void run() {
+          service.stop(1);
+        }
+      });
+      InetSocketAddress bound = service.getAddress();
+      System.err.println("Listening on http://" + bound.getHostString() + ":" + bound.getPort()
+          + (HttpService.usesVirtualThreads() ? " (virtual threads)" : ""));
+      return 0;
+    } catch (NumberFormatException e) {
+      System.err.println("Not a port number: " + args[1]);
+      return 2;
+    } catch (IOException e) {
+      System.err.println("Could not start the service: " + e.getMessage());
+      return 1;
+    }
+  }
+
+  private static int daemon(String[] args) {
+    if (args.length > 2) {
+      System.err.println("Usage: --daemon [socket file]");
+      return 2;
+    }
+    Path socketPath = args.length > 1 ? Paths.get(args[1]) : Daemon.defaultSocketPath();
+    Daemon.warmUp();
+    final Daemon daemon;
+    try {
+      daemon = new Daemon(socketPath);
+    } catch (IOException e) {
+      System.err.println("Daemon failed: " + e.getMessage());
+      return 1;
+    }
+    // The daemon serves until the JVM is stopped, so it is closed by the shutdown hook.
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+      @Override
+      public void run() {
+        try {
+          daemon.close();
+        } catch (IOException e) {
+          // Exiting anyway
+        }
+      }
+    });
+    System.err.println("Listening on " + socketPath);
+    try {
+      daemon.serve();
+      return 0;
+    } catch (IOException e) {
+      System.err.println("Daemon failed: " + e.getMessage());
+      return 1;
+    }
+  }
+
   private static void programInfo() {
     System.out.println("Chemistry Tools " + PROGRAM_VERSION);
     System.out.println("Copyright (c) 2014 Ariel Mordoch");
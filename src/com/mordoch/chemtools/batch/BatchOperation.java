@@ -0,0 +1,249 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.batch;
+
+import com.mordoch.chemtools.formulatools.FormulaParser;
+import com.mordoch.chemtools.util.Analysis;
+import com.mordoch.chemtools.util.EmpiricalFormulaSolver;
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
+
+/**
+ * The analyses that can be run in batch mode. Each operation scans a line of input, usually a
+ * formula, with a {@link FormulaParser} and appends its result column to a CSV row. The results
+ * are the same as those of the matching methods in Analysis, but nothing is allocated per formula.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public enum BatchOperation {
+
+  /** The molar mass of each formula, as computed by Analysis#computeMolarMass. */
+  MOLAR_MASS("molar-mass", "molar_mass") {
+    @Override
+    void appendLineResult(FormulaParser parser, CharSequence text, int start, int end,
+        StringBuilder row) {
+      scanFormula(parser, text, start, end);
+      row.append(molarMassOf(parser));
+    }
+  },
+
+  /**
+   * The percent composition of each formula, as computed by Analysis#computePercentComposition,
+   * written as "symbol:percent" pairs separated by semicolons.
+   */
+  PERCENT_COMPOSITION("percent-comp", "percent_composition") {
+    @Override
+    void appendLineResult(FormulaParser parser, CharSequence text, int start, int end,
+        StringBuilder row) {
+      scanFormula(parser, text, start, end);
+      double molarMass = molarMassOf(parser);
+      for (int index = 0; index < parser.size(); index++) {
+        if (index > 0) {
+          row.append(';');
+        }
+        double percent = parser.subscriptAt(index)
+            * PeriodicTable.mass(parser.atomicNumberAt(index)) / molarMass * 100;
+        row.append(parser.symbolAt(index)).append(':').append(percent);
+      }
+    }
+  },
+
+  /** The number of atoms in each formula, as computed by Analysis#numOfAtoms. */
+  NUM_OF_ATOMS("num-atoms", "atoms") {
+    @Override
+    void appendLineResult(FormulaParser parser, CharSequence text, int start, int end,
+        StringBuilder row) {
+      scanFormula(parser, text, start, end);
+      int numAtoms = 0;
+      for (int index = 0; index < parser.size(); index++) {
+        numAtoms += parser.subscriptAt(index) * parser.coefficient();
+      }
+      row.append(numAtoms);
+    }
+  },
+
+  /** The empirical formula of each formula, as computed by Analysis#empiricalFromMolecular. */
+  EMPIRICAL("empirical", "empirical_formula") {
+    @Override
+    void appendLineResult(FormulaParser parser, CharSequence text, int start, int end,
+        StringBuilder row) {
+      scanFormula(parser, text, start, end);
+      int gcd = 0;
+      for (int index = 0; index < parser.size(); index++) {
+        gcd = Analysis.gcd(gcd, parser.subscriptAt(index));
+      }
+      if (gcd == 0) {
+        gcd = 1;
+      }
+      // Same form as Formula#toString()
+      if (parser.coefficient() != 1) {
+        row.append('(').append(parser.coefficient()).append(')');
+      }
+      for (int index = 0; index < parser.size(); index++) {
+        row.append(parser.symbolAt(index)).append(parser.subscriptAt(index) / gcd);
+      }
+    }
+  },
+
+  /**
+   * The empirical formula of a compound from its composition, as computed by
+   * Analysis#empiricalFromPercentComposition. Each line holds "symbol:amount" pairs separated by
+   * semicolons or spaces, e.g. "C:40.00;H:6.71;O:53.29", which is also the form written by
+   * {@link #PERCENT_COMPOSITION}. The amounts may be percents or masses.
+   */
+  EMPIRICAL_FROM_COMPOSITION("empirical-comp", "empirical_formula") {
+    @Override
+    void appendLineResult(FormulaParser parser, CharSequence text, int start, int end,
+        StringBuilder row) {
+      int pairs = 0;
+      for (int index = start; index < end; index++) {
+        if (text.charAt(index) == ':') {
+          pairs++;
+        }
+      }
+      int[] atomicNumbers = new int[pairs];
+      double[] amounts = new double[pairs];
+      int size = 0;
+      int index = start;
+      while (index < end) {
+        char current = text.charAt(index);
+        if (current == ';' || current <= ' ') {
+          index++;
+          continue;
+        }
+        int colon = index;
+        while (colon < end && text.charAt(colon) != ':') {
+          colon++;
+        }
+        int amountEnd = colon;
+        while (amountEnd < end && text.charAt(amountEnd) != ';' && text.charAt(amountEnd) > ' ') {
+          amountEnd++;
+        }
+        // The symbol goes through the parser so that "Co" and "CO" are told apart the same way
+        if (colon == end || parser.scan(text, index, colon) != 1 || parser.subscriptAt(0) != 1
+            || parser.coefficient() != 1) {
+          throw new IllegalArgumentException("Malformed composition: " + text.subSequence(start,
+              end));
+        }
+        atomicNumbers[size] = parser.atomicNumberAt(0);
+        // NumberFormatException is an IllegalArgumentException, so the row becomes NaN
+        amounts[size] = Double.parseDouble(text.subSequence(colon + 1, amountEnd).toString());
+        size++;
+        index = amountEnd;
+      }
+      int[] subscripts = new int[size];
+      EMPIRICAL_SOLVER.solve(atomicNumbers, amounts, size, subscripts);
+      for (int element = 0; element < size; element++) {
+        if (subscripts[element] > 0) {
+          row.append(PeriodicTable.symbol(atomicNumbers[element])).append(subscripts[element]);
+        }
+      }
+    }
+  };
+
+  private static final EmpiricalFormulaSolver EMPIRICAL_SOLVER = new EmpiricalFormulaSolver();
+
+  private final String command;
+  private final String header;
+
+  private BatchOperation(String command, String header) {
+    this.command = command;
+    this.header = header;
+  }
+
+  /**
+   * Finds the operation with a given command-line name.
+   * 
+   * @param command the name of the operation, e.g. "molar-mass"
+   * @return the operation
+   * @throws IllegalArgumentException if there is no such operation
+   */
+
+  public static BatchOperation forCommand(String command) {
+    for (BatchOperation operation : values()) {
+      if (operation.command.equals(command)) {
+        return operation;
+      }
+    }
+    throw new IllegalArgumentException("Unknown batch operation: " + command);
+  }
+
+  public String getCommand() {
+    return command;
+  }
+
+  /**
+   * Gets the CSV header of the result columns, e.g. "molar_mass".
+   * 
+   * @return the header of the result columns
+   */
+
+  public String getHeader() {
+    return header;
+  }
+
+  /**
+   * Computes the result of the operation for a single formula.
+   * 
+   * @param parser the parser to scan the formula with
+   * @param formula the formula, e.g. "C6H12O6"
+   * @return the result column(s), or "NaN" if the formula can't be parsed
+   */
+
+  public String apply(FormulaParser parser, CharSequence formula) {
+    StringBuilder row = new StringBuilder();
+    try {
+      appendLineResult(parser, formula, 0, formula.length(), row);
+    } catch (IllegalArgumentException e) {
+      return "NaN";
+    }
+    return row.toString();
+  }
+
+  /**
+   * Appends the result of the operation for one line of input. Most operations scan the line as a
+   * formula; others, such as {@link #EMPIRICAL_FROM_COMPOSITION}, read it their own way.
+   * 
+   * @param parser the parser to scan the line with
+   * @param text the input
+   * @param start the position of the first character of the line
+   * @param end the position after the last character of the line
+   * @param row the CSV row to append to
+   * @throws IllegalArgumentException if the line can't be parsed
+   */
+
+  abstract void appendLineResult(FormulaParser parser, CharSequence text, int start, int end,
+      StringBuilder row);
+
+  // Same rule as FormulaParser#parse: a line such as "(2)" has no elements, so it has no result.
+  private static void scanFormula(FormulaParser parser, CharSequence text, int start, int end) {
+    if (parser.scan(text, start, end) == 0) {
+      throw new IllegalArgumentException("Formula has no elements: " + text.subSequence(start,
+          end));
+    }
+  }
+
+  private static double molarMassOf(FormulaParser parser) {
+    double molarMass = 0;
+    for (int index = 0; index < parser.size(); index++) {
+      molarMass += parser.subscriptAt(index) * PeriodicTable.mass(parser.atomicNumberAt(index));
+    }
+    return molarMass;
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.batch;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.mordoch.chemtools.formulatools.FormulaParser;
+
+/**
+ * Runs a {@link BatchOperation} over a file with one formula per line and writes a CSV file with
+ * one row per formula. The input is read through a FileChannel into a fixed-size direct buffer and
+ * every formula is parsed straight out of that buffer, so memory use doesn't depend on the size of
+ * the file. Formulas that can't be parsed get "NaN" as their result and are counted as errors.
+ * <p>
+ * A BatchProcessor is not thread-safe.
+ * </p>
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class BatchProcessor {
+
+  private static final int BUFFER_SIZE = 1 << 20;
+  private static final int FLUSH_THRESHOLD = 1 << 16;
+
+  private final BatchOperation operation;
+  private final LineProcessor lines;
+
+  public BatchProcessor(BatchOperation operation) {
+    this.operation = operation;
+    this.lines = new LineProcessor(operation, new FormulaParser());
+  }
+
+  /**
+   * Processes an input file and writes the results to an output file, replacing it if it exists.
+   * 
+   * @param input a file with one formula per line
+   * @param output the CSV file to write
+   * @throws IOException if either file can't be read or written
+   */
+
+  public void process(Path input, Path output) throws IOException {
+    try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+        Writer out = Files.newBufferedWriter(output, StandardCharsets.US_ASCII)) {
+      process(in, out);
+    }
+  }
+
+  /**
+   * Processes formulas from a channel and writes the results to a Writer. Neither is closed.
+   * 
+   * @param in a channel supplying one formula per line
+   * @param out where to write the CSV rows
+   * @throws IOException if reading or writing fails
+   */
+
+  public void process(ReadableByteChannel in, Writer out) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    StringBuilder rows = new StringBuilder(FLUSH_THRESHOLD + 256);
+    out.write("formula," + operation.getHeader() + "\n");
+    boolean endOfInput = false;
+    while (!endOfInput) {
+      endOfInput = in.read(buffer) == -1;
+      buffer.flip();
+      lines.wrap(buffer);
+      int lineStart = 0;
+      int limit = buffer.limit();
+      for (int index = 0; index < limit; index++) {
+        if (buffer.get(index) == '\n') {
+          lines.processLine(lineStart, index, rows);
+          lineStart = index + 1;
+          if (rows.length() >= FLUSH_THRESHOLD) {
+            out.append(rows);
+            rows.setLength(0);
+          }
+        }
+      }
+      if (endOfInput && lineStart < limit) {
+        // The last line has no line break
+        lines.processLine(lineStart, limit, rows);
+        lineStart = limit;
+      }
+      // Keep the unfinished line for the next read
+      buffer.position(lineStart);
+      buffer.compact();
+      if (!buffer.hasRemaining()) {
+        // A single line fills the whole buffer, so make room for the rest of it.
+        ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+      }
+    }
+    out.append(rows);
+    out.flush();
+  }
+
+  /**
+   * Gets the number of formulas processed so far.
+   * 
+   * @return the number of formulas
+   */
+
+  public long getFormulaCount() {
+    return lines.getFormulaCount();
+  }
+
+  /**
+   * Gets the number of formulas that could not be parsed.
+   * 
+   * @return the number of errors
+   */
+
+  public long getErrorCount() {
+    return lines.getErrorCount();
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.batch;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A CharSequence view of the ASCII bytes in a ByteBuffer, so that formulas can be parsed straight
+ * out of an I/O buffer. Every byte is read as one character; the view never copies the buffer.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+final class ByteSequence implements CharSequence {
+
+  private ByteBuffer buffer;
+
+  /**
+   * Points the view at a buffer. Indexes are absolute positions in the buffer.
+   * 
+   * @param newBuffer the buffer to read from
+   */
+
+  void wrap(ByteBuffer newBuffer) {
+    buffer = newBuffer;
+  }
+
+  @Override
+  public int length() {
+    return buffer.limit();
+  }
+
+  @Override
+  public char charAt(int index) {
+    return (char) (buffer.get(index) & 0xff);
+  }
+
+  /**
+   * Copies part of the view into a String. This allocates, so it is only used for error messages.
+   */
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    StringBuilder builder = new StringBuilder(end - start);
+    for (int index = start; index < end; index++) {
+      builder.append(charAt(index));
+    }
+    return builder.toString();
+  }
+
+  @Override
+  public String toString() {
+    return subSequence(0, length()).toString();
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.batch;
+
+import java.nio.ByteBuffer;
+
+import com.mordoch.chemtools.formulatools.FormulaParser;
+
+/**
+ * Turns the lines of a buffer into CSV rows. Each line holds one formula, which is parsed in place
+ * and passed to a {@link BatchOperation}. A LineProcessor is not thread-safe.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+final class LineProcessor {
+
+  private final BatchOperation operation;
+  private final FormulaParser parser;
+  private final ByteSequence text = new ByteSequence();
+  private long formulaCount;
+  private long errorCount;
+
+  LineProcessor(BatchOperation operation, FormulaParser parser) {
+    this.operation = operation;
+    this.parser = parser;
+  }
+
+  /**
+   * Points the processor at a buffer. Line positions are absolute positions in the buffer.
+   * 
+   * @param buffer the buffer to read lines from
+   */
+
+  void wrap(ByteBuffer buffer) {
+    text.wrap(buffer);
+  }
+
+  /**
+   * Processes every line between two positions. The last line doesn't need a line break.
+   * 
+   * @param start the position of the first character of the first line
+   * @param end the position after the last line
+   * @param rows where to append the CSV rows
+   */
+
+  void processLines(int start, int end, StringBuilder rows) {
+    int lineStart = start;
+    for (int index = start; index < end; index++) {
+      if (text.charAt(index) == '\n') {
+        processLine(lineStart, index, rows);
+        lineStart = index + 1;
+      }
+    }
+    if (lineStart < end) {
+      processLine(lineStart, end, rows);
+    }
+  }
+
+  /**
+   * Processes a single line, without its line break. Blank lines are skipped.
+   * 
+   * @param start the position of the first character of the line
+   * @param end the position after the last character of the line
+   * @param rows where to append the CSV row
+   */
+
+  void processLine(int start, int end, StringBuilder rows) {
+    // Trim whitespace, including the '\r' of Windows line breaks
+    while (start < end && text.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && text.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    if (start == end) {
+      return;
+    }
+    formulaCount++;
+    appendFormula(start, end, rows);
+    rows.append(',');
+    int rowEnd = rows.length();
+    try {
+      operation.appendLineResult(parser, text, start, end, rows);
+    } catch (IllegalArgumentException e) {
+      rows.setLength(rowEnd);
+      rows.append("NaN");
+      errorCount++;
+    }
+    rows.append('\n');
+  }
+
+  long getFormulaCount() {
+    return formulaCount;
+  }
+
+  long getErrorCount() {
+    return errorCount;
+  }
+
+  /* UTILITY METHODS */
+
+  // Formulas are written as they appear; anything that would break the CSV is quoted.
+  private void appendFormula(int start, int end, StringBuilder rows) {
+    boolean needsQuotes = false;
+    for (int index = start; index < end && !needsQuotes; index++) {
+      char current = text.charAt(index);
+      needsQuotes = current == ',' || current == '"';
+    }
+    if (needsQuotes) {
+      rows.append('"');
+    }
+    for (int index = start; index < end; index++) {
+      char current = text.charAt(index);
+      if (current == '"') {
+        rows.append('"');
+      }
+      rows.append(current);
+    }
+    if (needsQuotes) {
+      rows.append('"');
+    }
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.batch;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.mordoch.chemtools.formulatools.FormulaParser;
+
+/**
+ * Runs a {@link BatchOperation} over a file of formulas on every core. The input is memory-mapped
+ * one window at a time; each window is cut into chunks at line breaks and the chunks are processed
+ * on a ForkJoinPool. Every worker thread keeps its own {@link FormulaParser}. The results of the
+ * chunks are written in the order of the input, so the output is the same as that of
+ * {@link BatchProcessor}.
+ * <p>
+ * Memory use is bounded by the window size and the results of one window, not by the size of the
+ * input.
+ * </p>
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class ParallelBatchProcessor {
+
+  private static final long WINDOW_SIZE = 64L << 20;
+  private static final int MIN_CHUNK_SIZE = 64 << 10;
+  private static final int MIN_CHUNK_FORMULAS = 1024;
+
+  private final BatchOperation operation;
+  private final ForkJoinPool pool;
+  private final LongAdder formulaCount = new LongAdder();
+  private final LongAdder errorCount = new LongAdder();
+
+  // Parsers keep state between calls, so every worker thread gets its own.
+  private final ThreadLocal<FormulaParser> parsers = new ThreadLocal<FormulaParser>() {
+    @Override
+    protected FormulaParser initialValue() {
+      return new FormulaParser();
+    }
+  };
+
+  /**
+   * Creates a processor that runs on the common ForkJoinPool.
+   * 
+   * @param operation the operation to run
+   */
+
+  public ParallelBatchProcessor(BatchOperation operation) {
+    this(operation, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a processor that runs on the given pool.
+   * 
+   * @param operation the operation to run
+   * @param pool the pool to run the chunks on
+   */
+
+  public ParallelBatchProcessor(BatchOperation operation, ForkJoinPool pool) {
+    this.operation = operation;
+    this.pool = pool;
+  }
+
+  /**
+   * Processes an input file and writes the results to an output file, replacing it if it exists.
+   * 
+   * @param input a file with one formula per line
+   * @param output the CSV file to write
+   * @throws IOException if either file can't be read or written, or a line is longer than 2 GiB
+   */
+
+  public void process(Path input, Path output) throws IOException {
+    try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+        Writer out = Files.newBufferedWriter(output, StandardCharsets.US_ASCII)) {
+      out.write("formula," + operation.getHeader() + "\n");
+      long size = in.size();
+      long position = 0;
+      long windowSize = WINDOW_SIZE;
+      while (position < size) {
+        long length = Math.min(windowSize, size - position);
+        MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+        int end = (int) length;
+        if (position + length < size) {
+          // End the window after its last complete line
+          end = lastLineBreak(window, 0, end) + 1;
+          if (end == 0) {
+            if (windowSize == Integer.MAX_VALUE) {
+              throw new IOException("Line longer than 2 GiB at byte " + position + " of " + input);
+            }
+            // A single line is longer than the window, so try again with a larger one.
+            windowSize = Math.min(windowSize * 2, Integer.MAX_VALUE);
+            continue;
+          }
+        }
+        processWindow(window, end, out);
+        position += end;
+        windowSize = WINDOW_SIZE;
+      }
+    }
+  }
+
+  /**
+   * Runs the operation over a List of formulas and returns the results in the same order. Formulas
+   * that can't be parsed get "NaN".
+   * 
+   * @param formulas the formulas, e.g. "C6H12O6"
+   * @return the result of the operation for each formula
+   */
+
+  public List<String> process(List<String> formulas) {
+    String[] results = new String[formulas.size()];
+    int threshold = Math.max(MIN_CHUNK_FORMULAS, formulas.size() / (pool.getParallelism() * 4));
+    pool.invoke(new ListTask(formulas, results, 0, formulas.size(), threshold));
+    formulaCount.add(formulas.size());
+    return Arrays.asList(results);
+  }
+
+  /**
+   * Gets the number of formulas processed so far.
+   * 
+   * @return the number of formulas
+   */
+
+  public long getFormulaCount() {
+    return formulaCount.sum();
+  }
+
+  /**
+   * Gets the number of formulas in files that could not be parsed.
+   * 
+   * @return the number of errors
+   */
+
+  public long getErrorCount() {
+    return errorCount.sum();
+  }
+
+  /* UTILITY METHODS */
+
+  private void processWindow(MappedByteBuffer window, int end, Writer out) throws IOException {
+    int numOfChunks = Math.max(1, Math.min(pool.getParallelism() * 4, end / MIN_CHUNK_SIZE));
+    List<ForkJoinTask<StringBuilder>> chunks = new ArrayList<ForkJoinTask<StringBuilder>>();
+    int chunkStart = 0;
+    for (int chunk = 1; chunk <= numOfChunks && chunkStart < end; chunk++) {
+      int chunkEnd = end;
+      if (chunk < numOfChunks) {
+        int target = (int) ((long) end * chunk / numOfChunks);
+        chunkEnd = Math.max(chunkStart, lastLineBreak(window, chunkStart, target) + 1);
+      }
+      if (chunkEnd > chunkStart) {
+        chunks.add(pool.submit(new ChunkTask(window, chunkStart, chunkEnd)));
+        chunkStart = chunkEnd;
+      }
+    }
+    // Join in order, writing each chunk while the later ones are still running.
+    for (ForkJoinTask<StringBuilder> chunk : chunks) {
+      out.append(chunk.join());
+    }
+  }
+
+  // Returns the position of the last '\n' before end, or start - 1 if there is none.
+  private static int lastLineBreak(MappedByteBuffer window, int start, int end) {
+    int index = end - 1;
+    while (index >= start && window.get(index) != '\n') {
+      index--;
+    }
+    return index;
+  }
+
+  private final class ChunkTask extends RecursiveTask<StringBuilder> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final MappedByteBuffer window;
+    private final int start;
+    private final int end;
+
+    ChunkTask(MappedByteBuffer window, int start, int end) {
+      this.window = window;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected StringBuilder compute() {
+      LineProcessor lines = new LineProcessor(operation, parsers.get());
+      lines.wrap(window);
+      StringBuilder rows = new StringBuilder((end - start) * 2);
+      lines.processLines(start, end, rows);
+      formulaCount.add(lines.getFormulaCount());
+      errorCount.add(lines.getErrorCount());
+      return rows;
+    }
+  }
+
+  private final class ListTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> formulas;
+    private final String[] results;
+    private final int start;
+    private final int end;
+    private final int threshold;
+
+    ListTask(List<String> formulas, String[] results, int start, int end, int threshold) {
+      this.formulas = formulas;
+      this.results = results;
+      this.start = start;
+      this.end = end;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= threshold) {
+        FormulaParser parser = parsers.get();
+        for (int index = start; index < end; index++) {
+          results[index] = operation.apply(parser, formulas.get(index));
+        }
+      } else {
+        int middle = (start + end) >>> 1;
+        invokeAll(new ListTask(formulas, results, start, middle, threshold),
+            new ListTask(formulas, results, middle, end, threshold));
+      }
+    }
+  }
+}
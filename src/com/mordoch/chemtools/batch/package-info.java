@@ -0,0 +1,6 @@
+/**
+ * This package contains the batch mode, which runs analyses over large files of formulas.
+ * @author Ariel Mordoch
+ * @since 0.8-alpha
+ */
+package com.mordoch.chemtools.batch;
@@ -0,0 +1,300 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.catalog;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.mordoch.chemtools.formulatools.Formula;
+import com.mordoch.chemtools.formulatools.FormulaParser;
+import com.mordoch.chemtools.formulatools.PackedFormula;
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
+
+/**
+ * A reusable buffer holding a formula in the form it is stored in a catalog: each element once, in
+ * order of atomic number, without a coefficient. Filling it does not allocate unless the formula
+ * has more tokens than any formula seen before, so one key per thread is enough for any number
+ * of lookups. A key is <strong>not</strong> thread-safe.
+ * <p>
+ * A key also reads and writes the records of a catalog file. A record is a header byte holding the
+ * number of elements, with the high bit set when the counts are stored as ints rather than
+ * unsigned shorts, followed by the atomic number of each element as a byte and then the count of
+ * each element. Water takes 7 bytes.
+ * </p>
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+final class CatalogKey {
+
+  // Set in the header byte of a record whose counts are ints
+  static final int WIDE_COUNTS = 0x80;
+
+  private int[] atomicNumbers = new int[16];
+  private int[] counts = new int[16];
+  private int size;
+
+  /**
+   * Fills the key from the tokens of a parser's last scan.
+   * 
+   * @param parser a parser that has scanned a formula
+   */
+
+  void set(FormulaParser parser) {
+    clear(parser.size());
+    for (int index = 0; index < parser.size(); index++) {
+      atomicNumbers[index] = parser.atomicNumberAt(index);
+      counts[index] = parser.subscriptAt(index);
+    }
+    size = parser.size();
+    canonicalize();
+  }
+
+  /**
+   * Fills the key from a Formula, such as one returned by FtHelper#parseFormula.
+   * 
+   * @param formula the formula
+   * @throws IllegalArgumentException if the formula contains an unknown element
+   */
+
+  void set(Formula formula) {
+    List<String> elements = formula.getElements();
+    List<Integer> subscripts = formula.getSubscripts();
+    clear(elements.size());
+    for (int index = 0; index < elements.size(); index++) {
+      atomicNumbers[index] = PeriodicTable.atomicNumberOf(elements.get(index));
+      if (atomicNumbers[index] == 0) {
+        throw new IllegalArgumentException("Unknown element: " + elements.get(index));
+      }
+      counts[index] = subscripts.get(index);
+    }
+    size = elements.size();
+    canonicalize();
+  }
+
+  /**
+   * Fills the key from a PackedFormula, which is already in order.
+   * 
+   * @param formula the formula
+   */
+
+  void set(PackedFormula formula) {
+    clear(formula.size());
+    for (int index = 0; index < formula.size(); index++) {
+      atomicNumbers[index] = formula.atomicNumberAt(index);
+      counts[index] = formula.countAt(index);
+    }
+    size = formula.size();
+  }
+
+  int size() {
+    return size;
+  }
+
+  int atomicNumberAt(int index) {
+    return atomicNumbers[index];
+  }
+
+  int countAt(int index) {
+    return counts[index];
+  }
+
+  /**
+   * Checks whether any count needs more than two bytes.
+   * 
+   * @return true if the counts must be stored as ints
+   */
+
+  boolean hasWideCounts() {
+    for (int index = 0; index < size; index++) {
+      if (counts[index] < 0 || counts[index] > 0xffff) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Computes the molar mass of the formula.
+   * 
+   * @return the molar mass
+   */
+
+  double molarMass() {
+    double molarMass = 0;
+    for (int index = 0; index < size; index++) {
+      molarMass += counts[index] * PeriodicTable.mass(atomicNumbers[index]);
+    }
+    return molarMass;
+  }
+
+  /**
+   * Computes the hash the catalog index uses. The bits are mixed, so that the low bits can pick a
+   * slot directly.
+   * 
+   * @return the hash
+   */
+
+  int hash() {
+    int hash = 1;
+    for (int index = 0; index < size; index++) {
+      hash = 31 * (31 * hash + atomicNumbers[index]) + counts[index];
+    }
+    // The finalizer of MurmurHash3
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Gets the number of bytes the formula takes as a record.
+   * 
+   * @return the length of the record
+   */
+
+  int recordLength() {
+    return 1 + size * (hasWideCounts() ? 5 : 3);
+  }
+
+  /**
+   * Writes the formula as a record at the position of a buffer, which must have room for
+   * {@link #recordLength()} bytes.
+   * 
+   * @param buffer the little-endian buffer to write to
+   */
+
+  void write(ByteBuffer buffer) {
+    boolean wide = hasWideCounts();
+    buffer.put((byte) (wide ? size | WIDE_COUNTS : size));
+    for (int index = 0; index < size; index++) {
+      buffer.put((byte) atomicNumbers[index]);
+    }
+    for (int index = 0; index < size; index++) {
+      if (wide) {
+        buffer.putInt(counts[index]);
+      } else {
+        buffer.putShort((short) counts[index]);
+      }
+    }
+  }
+
+  /**
+   * Fills the key from a record.
+   * 
+   * @param file the catalog file
+   * @param position the position of the record
+   * @return the position after the record
+   */
+
+  long read(MappedFile file, long position) {
+    int header = file.getByte(position) & 0xff;
+    int length = header & ~WIDE_COUNTS;
+    clear(length);
+    long countPosition = position + 1 + length;
+    for (int index = 0; index < length; index++) {
+      atomicNumbers[index] = file.getByte(position + 1 + index);
+      counts[index] = countAt(file, countPosition, header, index);
+    }
+    size = length;
+    return countPosition + (long) length * countWidth(header);
+  }
+
+  /**
+   * Checks whether a record holds the same formula as the key, without reading it into the key.
+   * 
+   * @param file the catalog file
+   * @param position the position of the record
+   * @return true if the record holds this formula
+   */
+
+  boolean matches(MappedFile file, long position) {
+    int header = file.getByte(position) & 0xff;
+    if ((header & ~WIDE_COUNTS) != size) {
+      return false;
+    }
+    long countPosition = position + 1 + size;
+    for (int index = 0; index < size; index++) {
+      if (file.getByte(position + 1 + index) != atomicNumbers[index]
+          || countAt(file, countPosition, header, index) != counts[index]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads one count of a record.
+   * 
+   * @param file the catalog file
+   * @param countPosition the position of the first count of the record
+   * @param header the header byte of the record
+   * @param index the index of the element
+   * @return the count
+   */
+
+  static int countAt(MappedFile file, long countPosition, int header, int index) {
+    if ((header & WIDE_COUNTS) != 0) {
+      return file.getInt(countPosition + 4L * index);
+    }
+    return file.getShort(countPosition + 2L * index) & 0xffff;
+  }
+
+  /* UTILITY METHODS */
+
+  private static int countWidth(int header) {
+    return (header & WIDE_COUNTS) != 0 ? 4 : 2;
+  }
+
+  private void clear(int capacity) {
+    if (capacity > atomicNumbers.length) {
+      atomicNumbers = new int[capacity];
+      counts = new int[capacity];
+    }
+    size = 0;
+  }
+
+  // Sorts by atomic number and merges repeated elements, just like PackedFormula#of
+  private void canonicalize() {
+    for (int index = 1; index < size; index++) {
+      int number = atomicNumbers[index];
+      int count = counts[index];
+      int position = index - 1;
+      while (position >= 0 && atomicNumbers[position] > number) {
+        atomicNumbers[position + 1] = atomicNumbers[position];
+        counts[position + 1] = counts[position];
+        position--;
+      }
+      atomicNumbers[position + 1] = number;
+      counts[position + 1] = count;
+    }
+    int unique = 0;
+    for (int index = 0; index < size; index++) {
+      if (unique > 0 && atomicNumbers[unique - 1] == atomicNumbers[index]) {
+        counts[unique - 1] = Math.addExact(counts[unique - 1], counts[index]);
+      } else {
+        atomicNumbers[unique] = atomicNumbers[index];
+        counts[unique] = counts[index];
+        unique++;
+      }
+    }
+    size = unique;
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.catalog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.mordoch.chemtools.formulatools.Formula;
+import com.mordoch.chemtools.formulatools.FormulaParser;
+import com.mordoch.chemtools.formulatools.PackedFormula;
+
+/**
+ * Writes a {@link CompoundCatalog} file. Records are streamed to the file as they are added;
+ * when the writer is closed, the records are read back through a mapping to write the molar mass
+ * column, the position column and the hash index in place. The writer keeps nothing per record on
+ * the heap, so catalogs of any size can be built.
+ * <p>
+ * The file is not a valid catalog until the writer is closed. A writer is <strong>not</strong>
+ * thread-safe.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class CatalogWriter implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer =
+      ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+  private final FormulaParser parser = new FormulaParser();
+  private final CatalogKey key = new CatalogKey();
+  private int size;
+  private boolean closed;
+
+  /**
+   * Creates a writer, replacing the file if it exists.
+   * 
+   * @param path the catalog file to write
+   * @throws IOException if the file can't be created
+   */
+
+  public CatalogWriter(Path path) throws IOException {
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    channel.position(CompoundCatalog.HEADER_SIZE);
+  }
+
+  /**
+   * Parses a formula, such as "C6H12O6", and adds it to the catalog.
+   * 
+   * @param formula the formula to add
+   * @return the number of the new record
+   * @throws IllegalArgumentException if the formula is malformed, contains an unknown element or
+   *         has no elements
+   * @throws IOException if the record can't be written
+   */
+
+  public int add(CharSequence formula) throws IOException {
+    parser.scan(formula, 0, formula.length());
+    key.set(parser);
+    return add();
+  }
+
+  /**
+   * Adds a formula, such as one returned by FtHelper#parseFormula, to the catalog. The coefficient
+   * is not stored.
+   * 
+   * @param formula the formula to add
+   * @return the number of the new record
+   * @throws IllegalArgumentException if the formula contains an unknown element or has no elements
+   * @throws IOException if the record can't be written
+   */
+
+  public int add(Formula formula) throws IOException {
+    key.set(formula);
+    return add();
+  }
+
+  /**
+   * Adds a formula to the catalog. The coefficient is not stored.
+   * 
+   * @param formula the formula to add
+   * @return the number of the new record
+   * @throws IllegalArgumentException if the formula has no elements
+   * @throws IOException if the record can't be written
+   */
+
+  public int add(PackedFormula formula) throws IOException {
+    key.set(formula);
+    return add();
+  }
+
+  /**
+   * Gets the number of records added so far.
+   * 
+   * @return the number of records
+   */
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Writes the molar mass column, the position column, the index and the header, and closes the
+   * file. Closing a closed writer does nothing.
+   * 
+   * @throws IOException if the file can't be written
+   */
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      flush();
+      long recordsEnd = channel.position();
+      long massesStart = (recordsEnd + 7) & ~7L;
+      long positionsStart = massesStart + 8L * size;
+      long indexStart = positionsStart + 8L * size;
+      long indexCapacity = indexCapacity(size);
+      long length = indexStart + 8 * indexCapacity;
+      // Growing the file through the mapping fills the new sections with zeroes, i.e. empty slots.
+      MappedFile file = MappedFile.map(channel, FileChannel.MapMode.READ_WRITE, length);
+      long position = CompoundCatalog.HEADER_SIZE;
+      for (int record = 0; record < size; record++) {
+        file.putLong(positionsStart + 8L * record, position);
+        position = key.read(file, position);
+        file.putDouble(massesStart + 8L * record, key.molarMass());
+        int hash = key.hash();
+        long slot = hash & (indexCapacity - 1);
+        while (file.getLong(indexStart + 8 * slot) != 0) {
+          slot = (slot + 1) & (indexCapacity - 1);
+        }
+        file.putLong(indexStart + 8 * slot, ((long) hash << 32) | (record + 1L));
+      }
+      file.putInt(4, CompoundCatalog.VERSION);
+      file.putLong(CompoundCatalog.SIZE_FIELD, size);
+      file.putLong(CompoundCatalog.MASSES_FIELD, massesStart);
+      file.putLong(CompoundCatalog.POSITIONS_FIELD, positionsStart);
+      file.putLong(CompoundCatalog.INDEX_FIELD, indexStart);
+      file.putLong(CompoundCatalog.INDEX_CAPACITY_FIELD, indexCapacity);
+      file.putLong(CompoundCatalog.LENGTH_FIELD, length);
+      file.force();
+      // Only now is the file a catalog
+      file.putInt(0, CompoundCatalog.MAGIC);
+      file.force();
+    } finally {
+      channel.close();
+    }
+  }
+
+  /* UTILITY METHODS */
+
+  private int add() throws IOException {
+    if (closed) {
+      throw new IllegalStateException("The catalog writer is closed");
+    }
+    if (key.size() == 0) {
+      throw new IllegalArgumentException("A formula needs at least one element");
+    }
+    if (size == Integer.MAX_VALUE - 1) {
+      throw new IllegalStateException("The catalog is full");
+    }
+    if (buffer.remaining() < key.recordLength()) {
+      flush();
+    }
+    key.write(buffer);
+    return size++;
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  // A power of two with at least a third of the slots left empty, which keeps probes short
+  private static long indexCapacity(int records) {
+    long needed = records + (records >> 1) + 1;
+    long capacity = 1;
+    while (capacity < needed) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+}
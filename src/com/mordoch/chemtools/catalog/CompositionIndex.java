@@ -0,0 +1,351 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.catalog;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.mordoch.chemtools.formulatools.Formula;
+import com.mordoch.chemtools.formulatools.FtHelper;
+import com.mordoch.chemtools.formulatools.PackedFormula;
+import com.mordoch.chemtools.util.Analysis;
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
+
+/**
+ * An inverted index over a collection of compounds, for queries such as "everything containing Fe
+ * and S with a molar mass under 200" or "all ionic compounds containing Cl". The index holds:
+ * <ul>
+ * <li>for each element, a compressed bitmap of the compounds that contain it (see
+ * {@link RecordBitmap});</li>
+ * <li>for each bond type, as determined by FtHelper#determineBondType, a bitmap of the compounds
+ * of that type;</li>
+ * <li>the molar mass of each compound, and the compounds sorted by molar mass.</li>
+ * </ul>
+ * A query intersects the bitmaps of its elements and bond type, starting with the smallest, and
+ * then applies the mass range: either by binary searching the sorted masses, when few compounds
+ * fall in the range, or by checking the mass of each remaining compound. Nothing is parsed and no
+ * molar mass is computed at query time.
+ * <p>
+ * Compounds are identified by their record number: the index in the List or the record of the
+ * CompoundCatalog the index was built from. An index is immutable and can be shared between
+ * threads.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class CompositionIndex {
+
+  private static final String[] BOND_TYPES = {"hydrogen", "ionic", "metallic", "covalent"};
+
+  private final int size;
+  private final RecordBitmap[] elementBitmaps;
+  private final RecordBitmap[] bondTypeBitmaps;
+  private final double[] masses;
+  private final double[] sortedMasses;
+  private final int[] recordsByMass;
+
+  private CompositionIndex(Builder builder) {
+    this.size = builder.size;
+    this.elementBitmaps = new RecordBitmap[PeriodicTable.MAX_ATOMIC_NUMBER + 1];
+    for (int atomicNumber = 0; atomicNumber < elementBitmaps.length; atomicNumber++) {
+      elementBitmaps[atomicNumber] = builder.elements[atomicNumber].build();
+    }
+    this.bondTypeBitmaps = new RecordBitmap[BOND_TYPES.length];
+    for (int type = 0; type < BOND_TYPES.length; type++) {
+      bondTypeBitmaps[type] = builder.bondTypes[type].build();
+    }
+    this.masses = builder.masses;
+    this.recordsByMass = sortByMass(masses, size);
+    this.sortedMasses = new double[size];
+    for (int position = 0; position < size; position++) {
+      sortedMasses[position] = masses[recordsByMass[position]];
+    }
+  }
+
+  /**
+   * Builds an index over a List of formulas, such as those returned by FtHelper#parseFormula.
+   * 
+   * @param formulas the formulas to index
+   * @return the index
+   * @throws IllegalArgumentException if a formula contains an unknown element
+   */
+
+  public static CompositionIndex of(List<Formula> formulas) {
+    Builder builder = new Builder(formulas.size());
+    for (Formula formula : formulas) {
+      PackedFormula packed = PackedFormula.of(formula);
+      builder.add(packed, Analysis.computeMolarMass(packed), FtHelper.determineBondType(formula));
+    }
+    return new CompositionIndex(builder);
+  }
+
+  /**
+   * Builds an index over every record of a catalog. The molar masses are read from the catalog.
+   * 
+   * @param catalog the catalog to index
+   * @return the index
+   */
+
+  public static CompositionIndex of(CompoundCatalog catalog) {
+    Builder builder = new Builder(catalog.size());
+    for (int record = 0; record < catalog.size(); record++) {
+      PackedFormula formula = catalog.formulaAt(record);
+      builder.add(formula, catalog.molarMassAt(record), FtHelper.determineBondType(formula));
+    }
+    return new CompositionIndex(builder);
+  }
+
+  /**
+   * Gets the number of compounds in the index.
+   * 
+   * @return the number of compounds
+   */
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the molar mass of a compound.
+   * 
+   * @param record the number of the compound
+   * @return the molar mass in g/mol
+   */
+
+  public double molarMassAt(int record) {
+    return masses[record];
+  }
+
+  /**
+   * Finds the compounds that contain every given element.
+   * 
+   * @param elements the symbols of the elements, e.g. "Fe" and "S"
+   * @return the record numbers of the matching compounds, in ascending order
+   * @throws IllegalArgumentException if an element is unknown
+   */
+
+  public int[] containing(String... elements) {
+    return find(elements, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, null);
+  }
+
+  /**
+   * Finds the compounds that contain every given element and have a molar mass within a range.
+   * 
+   * @param minMass the smallest molar mass, inclusive
+   * @param maxMass the largest molar mass, inclusive
+   * @param elements the symbols of the elements, e.g. "Fe" and "S"
+   * @return the record numbers of the matching compounds, in ascending order
+   * @throws IllegalArgumentException if an element is unknown
+   */
+
+  public int[] containing(double minMass, double maxMass, String... elements) {
+    return find(elements, minMass, maxMass, null);
+  }
+
+  /**
+   * Finds the compounds of a bond type that contain every given element.
+   * 
+   * @param bondType "hydrogen", "ionic", "metallic" or "covalent"
+   * @param elements the symbols of the elements, e.g. "Cl"
+   * @return the record numbers of the matching compounds, in ascending order
+   * @throws IllegalArgumentException if the bond type or an element is unknown
+   */
+
+  public int[] withBondType(String bondType, String... elements) {
+    return find(elements, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, bondType);
+  }
+
+  /**
+   * Finds the compounds that match every condition of a query.
+   * 
+   * @param elements the symbols of the elements every compound must contain; may be empty
+   * @param minMass the smallest molar mass, inclusive
+   * @param maxMass the largest molar mass, inclusive
+   * @param bondType the bond type every compound must have, or null for any
+   * @return the record numbers of the matching compounds, in ascending order
+   * @throws IllegalArgumentException if the bond type or an element is unknown
+   */
+
+  public int[] find(String[] elements, double minMass, double maxMass, String bondType) {
+    RecordBitmap[] bitmaps = new RecordBitmap[elements.length + 1];
+    int count = 0;
+    for (String element : elements) {
+      int atomicNumber = PeriodicTable.atomicNumberOf(element);
+      if (atomicNumber == 0) {
+        throw new IllegalArgumentException("Unknown element: " + element);
+      }
+      bitmaps[count++] = elementBitmaps[atomicNumber];
+    }
+    if (bondType != null) {
+      bitmaps[count++] = bondTypeBitmaps[bondTypeIndex(bondType)];
+    }
+    // The range of the sorted mass column that falls within the masses
+    int first = lowerBound(minMass);
+    int last = upperBound(maxMass);
+    int inRange = Math.max(0, last - first);
+    if (count == 0) {
+      int[] records = Arrays.copyOfRange(recordsByMass, first, first + inRange);
+      Arrays.sort(records);
+      return records;
+    }
+    // Intersect the smallest bitmaps first, so that the intermediate results stay small
+    Arrays.sort(bitmaps, 0, count, new Comparator<RecordBitmap>() {
+      @Override
+      public int compare(RecordBitmap left, RecordBitmap right) {
+        return Integer.compare(left.cardinality(), right.cardinality());
+      }
+    });
+    RecordBitmap result = bitmaps[0];
+    for (int index = 1; index < count && result.cardinality() > 0; index++) {
+      result = result.and(bitmaps[index]);
+    }
+    if (inRange == size) {
+      return result.toArray();
+    }
+    if (inRange < result.cardinality()) {
+      int[] records = Arrays.copyOfRange(recordsByMass, first, first + inRange);
+      Arrays.sort(records);
+      return result.and(RecordBitmap.ofSorted(records, inRange)).toArray();
+    }
+    int[] records = result.toArray();
+    int matches = 0;
+    for (int record : records) {
+      if (masses[record] >= minMass && masses[record] <= maxMass) {
+        records[matches++] = record;
+      }
+    }
+    return Arrays.copyOf(records, matches);
+  }
+
+  /**
+   * Counts the compounds that contain an element.
+   * 
+   * @param element the symbol of the element
+   * @return the number of compounds containing it
+   * @throws IllegalArgumentException if the element is unknown
+   */
+
+  public int countContaining(String element) {
+    int atomicNumber = PeriodicTable.atomicNumberOf(element);
+    if (atomicNumber == 0) {
+      throw new IllegalArgumentException("Unknown element: " + element);
+    }
+    return elementBitmaps[atomicNumber].cardinality();
+  }
+
+  /* UTILITY METHODS */
+
+  // The first position in the sorted masses whose mass is at least the given one
+  private int lowerBound(double mass) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sortedMasses[middle] < mass) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  // The first position in the sorted masses whose mass is greater than the given one
+  private int upperBound(double mass) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sortedMasses[middle] <= mass) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static int bondTypeIndex(String bondType) {
+    for (int type = 0; type < BOND_TYPES.length; type++) {
+      if (BOND_TYPES[type].equals(bondType)) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown bond type: " + bondType);
+  }
+
+  // A bottom-up merge sort of the record numbers by mass, which keeps equal masses in record order
+  private static int[] sortByMass(double[] masses, int size) {
+    int[] records = new int[size];
+    for (int record = 0; record < size; record++) {
+      records[record] = record;
+    }
+    int[] merged = new int[size];
+    for (long width = 1; width < size; width *= 2) {
+      for (long start = 0; start < size; start += 2 * width) {
+        int middle = (int) Math.min(start + width, size);
+        int end = (int) Math.min(start + 2 * width, size);
+        int left = (int) start;
+        int right = middle;
+        for (int position = (int) start; position < end; position++) {
+          if (left < middle && (right == end || masses[records[left]] <= masses[records[right]])) {
+            merged[position] = records[left++];
+          } else {
+            merged[position] = records[right++];
+          }
+        }
+      }
+      int[] swap = records;
+      records = merged;
+      merged = swap;
+    }
+    return records;
+  }
+
+  private static final class Builder {
+
+    final RecordBitmap.Builder[] elements =
+        new RecordBitmap.Builder[PeriodicTable.MAX_ATOMIC_NUMBER + 1];
+    final RecordBitmap.Builder[] bondTypes = new RecordBitmap.Builder[BOND_TYPES.length];
+    final double[] masses;
+    int size;
+
+    Builder(int capacity) {
+      for (int atomicNumber = 0; atomicNumber < elements.length; atomicNumber++) {
+        elements[atomicNumber] = new RecordBitmap.Builder();
+      }
+      for (int type = 0; type < bondTypes.length; type++) {
+        bondTypes[type] = new RecordBitmap.Builder();
+      }
+      masses = new double[capacity];
+    }
+
+    void add(PackedFormula formula, double molarMass, String bondType) {
+      // A PackedFormula lists each element once, in order, as the bitmaps need
+      for (int index = 0; index < formula.size(); index++) {
+        elements[formula.atomicNumberAt(index)].add(size);
+      }
+      bondTypes[bondTypeIndex(bondType)].add(size);
+      masses[size] = molarMass;
+      size++;
+    }
+  }
+}
@@ -0,0 +1,485 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.catalog;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.mordoch.chemtools.formulatools.Formula;
+import com.mordoch.chemtools.formulatools.PackedFormula;
+import com.mordoch.chemtools.util.Analysis;
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
+
+/**
+ * Matches measured elemental analyses, e.g. the C, H, N and S percentages sent by a lab, against
+ * a library of known compounds. Each compound is stored as its percent composition over a fixed
+ * basis of elements, and the compounds are arranged in a KD-tree: every node splits its subtree on
+ * the element whose percents vary most within it. A query walks down to the nearest leaf and only
+ * visits the other side of a split when it could hold a closer compound, so finding the nearest
+ * compounds takes about log(n) steps rather than a scan of the library.
+ * <p>
+ * The distance between a sample and a compound is the Euclidean distance between their percent
+ * vectors, in percentage points. Elements outside the basis are ignored, as an analysis that only
+ * measures C, H, N and S says nothing about oxygen.
+ * </p>
+ * <p>
+ * The tree is stored implicitly in flat arrays sorted so that each subtree is contiguous, and a
+ * matcher is immutable, so it can be shared between threads. Batches of samples are matched in
+ * parallel on a ForkJoinPool.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class CompositionMatcher {
+
+  // Batches are split into tasks of at least this many samples
+  private static final int MIN_BATCH_SAMPLES = 64;
+
+  private final int[] atomicNumbers;
+  private final int dimensions;
+  private final int size;
+  // The percent vectors and record numbers in tree order, and the dimension each node splits on
+  private final double[] points;
+  private final int[] records;
+  private final byte[] splits;
+  private final ForkJoinPool pool;
+
+  private CompositionMatcher(int[] atomicNumbers, double[] vectors, int size, ForkJoinPool pool) {
+    this.atomicNumbers = atomicNumbers;
+    this.dimensions = atomicNumbers.length;
+    this.size = size;
+    this.pool = pool;
+    int[] order = new int[size];
+    for (int record = 0; record < size; record++) {
+      order[record] = record;
+    }
+    this.splits = new byte[size];
+    build(vectors, order, 0, size);
+    this.points = new double[size * dimensions];
+    for (int node = 0; node < size; node++) {
+      System.arraycopy(vectors, order[node] * dimensions, points, node * dimensions, dimensions);
+    }
+    this.records = order;
+  }
+
+  /**
+   * Builds a matcher over every record of a catalog, matching batches on the common ForkJoinPool.
+   * 
+   * @param catalog the library of compounds
+   * @param basis the symbols of the elements that are measured, e.g. "C", "H", "N" and "S"
+   * @return the matcher
+   * @throws IllegalArgumentException if an element is unknown or repeated
+   */
+
+  public static CompositionMatcher of(CompoundCatalog catalog, String... basis) {
+    return of(catalog, basis, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Builds a matcher over every record of a catalog.
+   * 
+   * @param catalog the library of compounds
+   * @param basis the symbols of the elements that are measured, e.g. "C", "H", "N" and "S"
+   * @param pool the pool to match batches on
+   * @return the matcher
+   * @throws IllegalArgumentException if an element is unknown or repeated
+   */
+
+  public static CompositionMatcher of(CompoundCatalog catalog, String[] basis,
+      ForkJoinPool pool) {
+    int[] atomicNumbers = toAtomicNumbers(basis);
+    double[] vectors = new double[catalog.size() * atomicNumbers.length];
+    for (int record = 0; record < catalog.size(); record++) {
+      double molarMass = catalog.molarMassAt(record);
+      for (int index = 0; index < catalog.numOfElementsAt(record); index++) {
+        int dimension = indexOf(atomicNumbers, catalog.atomicNumberAt(record, index));
+        if (dimension >= 0) {
+          vectors[record * atomicNumbers.length + dimension] = percent(
+              catalog.countAt(record, index), catalog.atomicNumberAt(record, index), molarMass);
+        }
+      }
+    }
+    return new CompositionMatcher(atomicNumbers, vectors, catalog.size(), pool);
+  }
+
+  /**
+   * Builds a matcher over a List of formulas, matching batches on the common ForkJoinPool. The
+   * record numbers of the matches are indexes into the List.
+   * 
+   * @param formulas the library of compounds
+   * @param basis the symbols of the elements that are measured, e.g. "C", "H", "N" and "S"
+   * @return the matcher
+   * @throws IllegalArgumentException if an element is unknown or repeated
+   */
+
+  public static CompositionMatcher of(List<Formula> formulas, String... basis) {
+    int[] atomicNumbers = toAtomicNumbers(basis);
+    double[] vectors = new double[formulas.size() * atomicNumbers.length];
+    for (int record = 0; record < formulas.size(); record++) {
+      PackedFormula formula = PackedFormula.of(formulas.get(record));
+      double molarMass = Analysis.computeMolarMass(formula);
+      for (int index = 0; index < formula.size(); index++) {
+        int dimension = indexOf(atomicNumbers, formula.atomicNumberAt(index));
+        if (dimension >= 0) {
+          vectors[record * atomicNumbers.length + dimension] =
+              percent(formula.countAt(index), formula.atomicNumberAt(index), molarMass);
+        }
+      }
+    }
+    return new CompositionMatcher(atomicNumbers, vectors, formulas.size(),
+        ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Gets the number of compounds in the library.
+   * 
+   * @return the number of compounds
+   */
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Finds the compounds whose composition is nearest to a measured one.
+   * 
+   * @param percents the measured percent of each element of the basis, in the same order
+   * @param k the largest number of compounds to return
+   * @param tolerance the largest distance, in percentage points, of a match
+   * @return up to k matches, nearest first
+   * @throws IllegalArgumentException if there is not one percent per element of the basis, or
+   *         the tolerance is negative or NaN
+   */
+
+  public Match[] nearest(double[] percents, int k, double tolerance) {
+    if (!(tolerance >= 0)) {
+      throw new IllegalArgumentException("Tolerance must not be negative: " + tolerance);
+    }
+    if (percents.length != dimensions) {
+      throw new IllegalArgumentException("Expected " + dimensions + " percents, got "
+          + percents.length);
+    }
+    Neighbors neighbors = new Neighbors(Math.max(0, Math.min(k, size)), tolerance);
+    if (neighbors.capacity > 0) {
+      search(percents, 0, size, neighbors);
+    }
+    return neighbors.toMatches();
+  }
+
+  /**
+   * Matches a batch of samples in parallel.
+   * 
+   * @param samples the measured percents of each sample
+   * @param k the largest number of compounds to return per sample
+   * @param tolerance the largest distance, in percentage points, of a match
+   * @return the matches of each sample, nearest first, in the order of the samples
+   * @throws IllegalArgumentException if a sample does not have one percent per element of the
+   *         basis, or the tolerance is negative or NaN
+   */
+
+  public Match[][] nearestAll(double[][] samples, int k, double tolerance) {
+    if (!(tolerance >= 0)) {
+      throw new IllegalArgumentException("Tolerance must not be negative: " + tolerance);
+    }
+    for (double[] sample : samples) {
+      if (sample.length != dimensions) {
+        throw new IllegalArgumentException("Expected " + dimensions + " percents, got "
+            + sample.length);
+      }
+    }
+    Match[][] results = new Match[samples.length][];
+    int threshold =
+        Math.max(MIN_BATCH_SAMPLES, samples.length / (pool.getParallelism() * 4));
+    pool.invoke(new BatchTask(samples, results, k, tolerance, 0, samples.length, threshold));
+    return results;
+  }
+
+  /**
+   * A compound that matched a sample.
+   */
+
+  public static final class Match {
+
+    private final int record;
+    private final double distance;
+
+    Match(int record, double distance) {
+      this.record = record;
+      this.distance = distance;
+    }
+
+    /**
+     * Gets the record number of the compound in the catalog or List the matcher was built from.
+     * 
+     * @return the record number
+     */
+
+    public int record() {
+      return record;
+    }
+
+    /**
+     * Gets the distance between the compound and the sample.
+     * 
+     * @return the distance, in percentage points
+     */
+
+    public double distance() {
+      return distance;
+    }
+
+    @Override
+    public String toString() {
+      return record + " (" + distance + ")";
+    }
+  }
+
+  /* UTILITY METHODS */
+
+  // Arranges order[start, end) so that its middle is the median on the widest dimension
+  private void build(double[] vectors, int[] order, int start, int end) {
+    if (end - start <= 1) {
+      return;
+    }
+    int split = widestDimension(vectors, order, start, end);
+    int middle = (start + end) >>> 1;
+    select(vectors, order, start, end - 1, middle, split);
+    splits[middle] = (byte) split;
+    build(vectors, order, start, middle);
+    build(vectors, order, middle + 1, end);
+  }
+
+  private int widestDimension(double[] vectors, int[] order, int start, int end) {
+    int widest = 0;
+    double widestSpread = -1;
+    for (int dimension = 0; dimension < dimensions; dimension++) {
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      for (int node = start; node < end; node++) {
+        double value = vectors[order[node] * dimensions + dimension];
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+      }
+      if (max - min > widestSpread) {
+        widestSpread = max - min;
+        widest = dimension;
+      }
+    }
+    return widest;
+  }
+
+  // Quickselect: moves the nth smallest value on a dimension to position nth of order[low, high]
+  private void select(double[] vectors, int[] order, int low, int high, int nth, int dimension) {
+    while (low < high) {
+      double pivot = vectors[order[(low + high) >>> 1] * dimensions + dimension];
+      int left = low;
+      int right = high;
+      while (left <= right) {
+        while (vectors[order[left] * dimensions + dimension] < pivot) {
+          left++;
+        }
+        while (vectors[order[right] * dimensions + dimension] > pivot) {
+          right--;
+        }
+        if (left <= right) {
+          int swap = order[left];
+          order[left] = order[right];
+          order[right] = swap;
+          left++;
+          right--;
+        }
+      }
+      if (nth <= right) {
+        high = right;
+      } else if (nth >= left) {
+        low = left;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private void search(double[] percents, int start, int end, Neighbors neighbors) {
+    while (start < end) {
+      int middle = (start + end) >>> 1;
+      int offset = middle * dimensions;
+      double squaredDistance = 0;
+      for (int dimension = 0; dimension < dimensions; dimension++) {
+        double difference = percents[dimension] - points[offset + dimension];
+        squaredDistance += difference * difference;
+      }
+      neighbors.offer(records[middle], squaredDistance);
+      int split = splits[middle];
+      double difference = percents[split] - points[offset + split];
+      // Search the side the sample is on first; the other only if it could hold a closer match
+      if (difference < 0) {
+        search(percents, start, middle, neighbors);
+        start = middle + 1;
+      } else {
+        search(percents, middle + 1, end, neighbors);
+        end = middle;
+      }
+      if (difference * difference > neighbors.bound()) {
+        return;
+      }
+    }
+  }
+
+  private static int[] toAtomicNumbers(String[] basis) {
+    int[] atomicNumbers = new int[basis.length];
+    for (int index = 0; index < basis.length; index++) {
+      atomicNumbers[index] = PeriodicTable.atomicNumberOf(basis[index]);
+      if (atomicNumbers[index] == 0) {
+        throw new IllegalArgumentException("Unknown element: " + basis[index]);
+      }
+      if (indexOf(atomicNumbers, atomicNumbers[index]) != index) {
+        throw new IllegalArgumentException("Repeated element: " + basis[index]);
+      }
+    }
+    return atomicNumbers;
+  }
+
+  private static int indexOf(int[] atomicNumbers, int atomicNumber) {
+    for (int index = 0; index < atomicNumbers.length; index++) {
+      if (atomicNumbers[index] == atomicNumber) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private static double percent(int count, int atomicNumber, double molarMass) {
+    return count * PeriodicTable.mass(atomicNumber) / molarMass * 100;
+  }
+
+  // The k nearest compounds found so far, as a max-heap on the squared distance
+  private static final class Neighbors {
+
+    final int capacity;
+    final double squaredTolerance;
+    final int[] records;
+    final double[] squaredDistances;
+    int size;
+
+    Neighbors(int capacity, double tolerance) {
+      this.capacity = capacity;
+      this.squaredTolerance = tolerance * tolerance;
+      this.records = new int[capacity];
+      this.squaredDistances = new double[capacity];
+    }
+
+    // The squared distance a compound must be within to be kept
+    double bound() {
+      return size < capacity ? squaredTolerance : squaredDistances[0];
+    }
+
+    void offer(int record, double squaredDistance) {
+      if (squaredDistance > squaredTolerance) {
+        return;
+      }
+      if (size < capacity) {
+        // Sift up
+        int child = size++;
+        while (child > 0 && squaredDistances[(child - 1) / 2] < squaredDistance) {
+          records[child] = records[(child - 1) / 2];
+          squaredDistances[child] = squaredDistances[(child - 1) / 2];
+          child = (child - 1) / 2;
+        }
+        records[child] = record;
+        squaredDistances[child] = squaredDistance;
+      } else if (squaredDistance < squaredDistances[0]) {
+        // Replace the farthest and sift down
+        int parent = 0;
+        while (true) {
+          int child = 2 * parent + 1;
+          if (child >= size) {
+            break;
+          }
+          if (child + 1 < size && squaredDistances[child + 1] > squaredDistances[child]) {
+            child++;
+          }
+          if (squaredDistances[child] <= squaredDistance) {
+            break;
+          }
+          records[parent] = records[child];
+          squaredDistances[parent] = squaredDistances[child];
+          parent = child;
+        }
+        records[parent] = record;
+        squaredDistances[parent] = squaredDistance;
+      }
+    }
+
+    Match[] toMatches() {
+      Match[] matches = new Match[size];
+      for (int index = 0; index < size; index++) {
+        matches[index] = new Match(records[index], Math.sqrt(squaredDistances[index]));
+      }
+      Arrays.sort(matches, new Comparator<Match>() {
+        @Override
+        public int compare(Match left, Match right) {
+          int order = Double.compare(left.distance, right.distance);
+          return order != 0 ? order : Integer.compare(left.record, right.record);
+        }
+      });
+      return matches;
+    }
+  }
+
+  private final class BatchTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double[][] samples;
+    private final Match[][] results;
+    private final int k;
+    private final double tolerance;
+    private final int start;
+    private final int end;
+    private final int threshold;
+
+    BatchTask(double[][] samples, Match[][] results, int k, double tolerance, int start, int end,
+        int threshold) {
+      this.samples = samples;
+      this.results = results;
+      this.k = k;
+      this.tolerance = tolerance;
+      this.start = start;
+      this.end = end;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= threshold) {
+        for (int index = start; index < end; index++) {
+          results[index] = nearest(samples[index], k, tolerance);
+        }
+      } else {
+        int middle = (start + end) >>> 1;
+        invokeAll(new BatchTask(samples, results, k, tolerance, start, middle, threshold),
+            new BatchTask(samples, results, k, tolerance, middle, end, threshold));
+      }
+    }
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.catalog;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.mordoch.chemtools.formulatools.FormulaParser;
+import com.mordoch.chemtools.formulatools.PackedFormula;
+
+/**
+ * A read-only catalog of compounds, stored in a file written by {@link CatalogWriter} and read
+ * through memory-mapped buffers. Nothing is loaded onto the heap: the catalog object holds only
+ * the mapping, so a catalog of tens of millions of compounds costs no more heap than an empty one
+ * and the operating system pages the file in as it is read.
+ * <p>
+ * Each compound is a record numbered from 0 in the order it was added. A record holds the
+ * elements of the formula in order of atomic number and the number of atoms of each; the
+ * coefficient is not stored. The file has four sections after a 64-byte header:
+ * </p>
+ * <ol>
+ * <li>The records, packed one after another (see {@link CatalogKey}).</li>
+ * <li>The molar mass of each record, as a column of doubles.</li>
+ * <li>The position of each record in the file, as a column of longs.</li>
+ * <li>A hash index of the formulas: an open-addressing table of longs, each holding the hash of a
+ * formula in its high half and its record number plus one in its low half.</li>
+ * </ol>
+ * Looking a formula up hashes it, probes the index and compares the candidate records in place,
+ * so neither lookups nor the accessors allocate. A catalog can be shared between threads.
+ * <p>
+ * The mapping is released when the catalog is garbage collected.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class CompoundCatalog {
+
+  // "CHCT" in little-endian order
+  static final int MAGIC = 0x54434843;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 64;
+
+  // Positions of the header fields
+  static final int SIZE_FIELD = 8;
+  static final int MASSES_FIELD = 16;
+  static final int POSITIONS_FIELD = 24;
+  static final int INDEX_FIELD = 32;
+  static final int INDEX_CAPACITY_FIELD = 40;
+  static final int LENGTH_FIELD = 48;
+
+  // Every thread gets its own parser and key, as both keep state between calls.
+  private static final ThreadLocal<Lookup> LOOKUP = new ThreadLocal<Lookup>() {
+    @Override
+    protected Lookup initialValue() {
+      return new Lookup();
+    }
+  };
+
+  private final MappedFile file;
+  private final int size;
+  private final long massesStart;
+  private final long positionsStart;
+  private final long indexStart;
+  private final long indexMask;
+
+  private CompoundCatalog(MappedFile file) {
+    this.file = file;
+    this.size = (int) file.getLong(SIZE_FIELD);
+    this.massesStart = file.getLong(MASSES_FIELD);
+    this.positionsStart = file.getLong(POSITIONS_FIELD);
+    this.indexStart = file.getLong(INDEX_FIELD);
+    this.indexMask = file.getLong(INDEX_CAPACITY_FIELD) - 1;
+  }
+
+  /**
+   * Opens a catalog file.
+   * 
+   * @param path the file written by a CatalogWriter
+   * @return the catalog
+   * @throws IOException if the file can't be read or is not a complete catalog
+   */
+
+  public static CompoundCatalog open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long length = channel.size();
+      if (length < HEADER_SIZE) {
+        throw new IOException("Not a compound catalog: " + path);
+      }
+      MappedFile file = MappedFile.map(channel, FileChannel.MapMode.READ_ONLY, length);
+      // The writer sets the magic number last, so an unfinished catalog is rejected here.
+      if (file.getInt(0) != MAGIC || file.getLong(LENGTH_FIELD) != length) {
+        throw new IOException("Not a compound catalog: " + path);
+      }
+      if (file.getInt(4) != VERSION) {
+        throw new IOException("Unsupported compound catalog version " + file.getInt(4) + ": "
+            + path);
+      }
+      return new CompoundCatalog(file);
+    }
+  }
+
+  /**
+   * Gets the number of records in the catalog.
+   * 
+   * @return the number of records
+   */
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Looks up a formula, such as "C6H12O6". The order of the elements and any coefficient are
+   * ignored, so "H2O", "OH2" and "(2)H2O" all find water.
+   * 
+   * @param formula the formula to look up
+   * @return the number of the first record holding the formula, or -1 if there is none
+   * @throws IllegalArgumentException if the formula is malformed or contains an unknown element
+   */
+
+  public int find(CharSequence formula) {
+    Lookup lookup = LOOKUP.get();
+    lookup.parser.scan(formula, 0, formula.length());
+    lookup.key.set(lookup.parser);
+    return find(lookup.key);
+  }
+
+  /**
+   * Looks up a formula. The coefficient is ignored.
+   * 
+   * @param formula the formula to look up
+   * @return the number of the first record holding the formula, or -1 if there is none
+   */
+
+  public int find(PackedFormula formula) {
+    CatalogKey key = LOOKUP.get().key;
+    key.set(formula);
+    return find(key);
+  }
+
+  /**
+   * Gets the molar mass of a record, computed when the catalog was written.
+   * 
+   * @param record the number of the record
+   * @return the molar mass in g/mol
+   */
+
+  public double molarMassAt(int record) {
+    checkRecord(record);
+    return file.getDouble(massesStart + 8L * record);
+  }
+
+  /**
+   * Gets the number of distinct elements in a record.
+   * 
+   * @param record the number of the record
+   * @return the number of elements
+   */
+
+  public int numOfElementsAt(int record) {
+    checkRecord(record);
+    return (file.getByte(positionOf(record)) & 0xff) & ~CatalogKey.WIDE_COUNTS;
+  }
+
+  /**
+   * Gets the atomic number of an element of a record. Elements are in order of atomic number.
+   * 
+   * @param record the number of the record
+   * @param index the index of the element
+   * @return the atomic number
+   */
+
+  public int atomicNumberAt(int record, int index) {
+    long position = positionOf(record, index);
+    return file.getByte(position + 1 + index);
+  }
+
+  /**
+   * Gets the number of atoms of an element of a record.
+   * 
+   * @param record the number of the record
+   * @param index the index of the element
+   * @return the number of atoms
+   */
+
+  public int countAt(int record, int index) {
+    long position = positionOf(record, index);
+    int header = file.getByte(position) & 0xff;
+    long countPosition = position + 1 + (header & ~CatalogKey.WIDE_COUNTS);
+    return CatalogKey.countAt(file, countPosition, header, index);
+  }
+
+  /**
+   * Copies a record onto the heap as a PackedFormula with a coefficient of 1.
+   * 
+   * @param record the number of the record
+   * @return the formula of the record
+   */
+
+  public PackedFormula formulaAt(int record) {
+    checkRecord(record);
+    CatalogKey key = LOOKUP.get().key;
+    key.read(file, positionOf(record));
+    int[] atomicNumbers = new int[key.size()];
+    int[] counts = new int[key.size()];
+    for (int index = 0; index < key.size(); index++) {
+      atomicNumbers[index] = key.atomicNumberAt(index);
+      counts[index] = key.countAt(index);
+    }
+    return PackedFormula.of(atomicNumbers, counts, key.size(), 1);
+  }
+
+  /* UTILITY METHODS */
+
+  private int find(CatalogKey key) {
+    int hash = key.hash();
+    long slot = hash & indexMask;
+    while (true) {
+      long entry = file.getLong(indexStart + 8 * slot);
+      if (entry == 0) {
+        return -1;
+      }
+      if ((int) (entry >>> 32) == hash) {
+        int record = (int) entry - 1;
+        if (key.matches(file, positionOf(record))) {
+          return record;
+        }
+      }
+      slot = (slot + 1) & indexMask;
+    }
+  }
+
+  private long positionOf(int record) {
+    return file.getLong(positionsStart + 8L * record);
+  }
+
+  private long positionOf(int record, int index) {
+    checkRecord(record);
+    long position = positionOf(record);
+    int length = (file.getByte(position) & 0xff) & ~CatalogKey.WIDE_COUNTS;
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+    }
+    return position;
+  }
+
+  private void checkRecord(int record) {
+    if (record < 0 || record >= size) {
+      throw new IndexOutOfBoundsException("Index " + record + " out of bounds for length " + size);
+    }
+  }
+
+  private static final class Lookup {
+    final FormulaParser parser = new FormulaParser();
+    final CatalogKey key = new CatalogKey();
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.catalog;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A file mapped into memory as a sequence of MappedByteBuffers, addressed by long positions. A
+ * single buffer can't map more than 2 GB, so the file is mapped in chunks of 1 GB. Each chunk also
+ * maps the first bytes of the next one, which means that a value never straddles two buffers and
+ * can always be read with one absolute get. Values are little-endian.
+ * <p>
+ * Only absolute gets and puts are used, so the buffers' positions never change and any number of
+ * threads can read at once.
+ * </p>
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+final class MappedFile {
+
+  private static final int CHUNK_SHIFT = 30;
+  private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+  // The widest value read or written
+  private static final int OVERLAP = 8;
+
+  private final MappedByteBuffer[] chunks;
+  private final long size;
+
+  private MappedFile(MappedByteBuffer[] chunks, long size) {
+    this.chunks = chunks;
+    this.size = size;
+  }
+
+  /**
+   * Maps the first bytes of a file. The mapping stays valid after the channel is closed.
+   * 
+   * @param channel the file to map
+   * @param mode READ_ONLY or READ_WRITE; READ_WRITE grows the file to the given size
+   * @param size the number of bytes to map
+   * @return the mapped file
+   * @throws IOException if the file can't be mapped
+   */
+
+  static MappedFile map(FileChannel channel, FileChannel.MapMode mode, long size)
+      throws IOException {
+    int count = (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+    MappedByteBuffer[] chunks = new MappedByteBuffer[count];
+    for (int index = 0; index < count; index++) {
+      long start = (long) index << CHUNK_SHIFT;
+      long length = Math.min(size - start, (CHUNK_MASK + 1) + OVERLAP);
+      chunks[index] = channel.map(mode, start, length);
+      chunks[index].order(ByteOrder.LITTLE_ENDIAN);
+    }
+    return new MappedFile(chunks, size);
+  }
+
+  long size() {
+    return size;
+  }
+
+  byte getByte(long position) {
+    return chunks[chunk(position)].get(offset(position));
+  }
+
+  short getShort(long position) {
+    return chunks[chunk(position)].getShort(offset(position));
+  }
+
+  int getInt(long position) {
+    return chunks[chunk(position)].getInt(offset(position));
+  }
+
+  long getLong(long position) {
+    return chunks[chunk(position)].getLong(offset(position));
+  }
+
+  double getDouble(long position) {
+    return chunks[chunk(position)].getDouble(offset(position));
+  }
+
+  void putInt(long position, int value) {
+    chunks[chunk(position)].putInt(offset(position), value);
+  }
+
+  void putLong(long position, long value) {
+    chunks[chunk(position)].putLong(offset(position), value);
+  }
+
+  void putDouble(long position, double value) {
+    chunks[chunk(position)].putDouble(offset(position), value);
+  }
+
+  /**
+   * Writes any changes made through a READ_WRITE mapping to the file.
+   */
+
+  void force() {
+    for (MappedByteBuffer chunk : chunks) {
+      chunk.force();
+    }
+  }
+
+  /* UTILITY METHODS */
+
+  private static int chunk(long position) {
+    return (int) (position >>> CHUNK_SHIFT);
+  }
+
+  private static int offset(long position) {
+    return (int) (position & CHUNK_MASK);
+  }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.catalog;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, compressed set of record numbers, organized like a Roaring bitmap. The numbers are
+ * split by their high 16 bits into containers of up to 65536 numbers each. A sparse container is a
+ * sorted array of the low 16 bits of its numbers, two bytes per number; once a container holds
+ * more than {@value #MAX_ARRAY_CARDINALITY} numbers it becomes a plain bitmap of 8 KB, which is
+ * smaller. Intersections are computed container by container, picking the cheapest way for each
+ * pair of container kinds.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+final class RecordBitmap {
+
+  // At this cardinality an array container takes as much room as a bitmap container
+  static final int MAX_ARRAY_CARDINALITY = 4096;
+  private static final int BITMAP_WORDS = 1024;
+
+  static final RecordBitmap EMPTY = new RecordBitmap(new char[0], new char[0][], new long[0][],
+      new int[0], 0);
+
+  private final char[] keys;
+  // For each container, either its sorted low bits or its bitmap; the other is null
+  private final char[][] arrays;
+  private final long[][] bitmaps;
+  private final int[] cardinalities;
+  private final int cardinality;
+
+  private RecordBitmap(char[] keys, char[][] arrays, long[][] bitmaps, int[] cardinalities,
+      int cardinality) {
+    this.keys = keys;
+    this.arrays = arrays;
+    this.bitmaps = bitmaps;
+    this.cardinalities = cardinalities;
+    this.cardinality = cardinality;
+  }
+
+  /**
+   * Builds a bitmap from record numbers in ascending order.
+   * 
+   * @param records the record numbers, in ascending order and without repeats
+   * @param size the number of records to read from the array
+   * @return the bitmap
+   */
+
+  static RecordBitmap ofSorted(int[] records, int size) {
+    Builder builder = new Builder();
+    for (int index = 0; index < size; index++) {
+      builder.add(records[index]);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Gets the number of records in the set.
+   * 
+   * @return the number of records
+   */
+
+  int cardinality() {
+    return cardinality;
+  }
+
+  /**
+   * Checks whether a record is in the set.
+   * 
+   * @param record the number of the record
+   * @return true if the set contains the record
+   */
+
+  boolean contains(int record) {
+    int container = Arrays.binarySearch(keys, (char) (record >>> 16));
+    if (container < 0) {
+      return false;
+    }
+    char low = (char) record;
+    if (arrays[container] != null) {
+      return Arrays.binarySearch(arrays[container], 0, cardinalities[container], low) >= 0;
+    }
+    return (bitmaps[container][low >>> 6] & (1L << low)) != 0;
+  }
+
+  /**
+   * Copies the record numbers into an array, in ascending order.
+   * 
+   * @return the record numbers
+   */
+
+  int[] toArray() {
+    int[] records = new int[cardinality];
+    int size = 0;
+    for (int container = 0; container < keys.length; container++) {
+      int high = keys[container] << 16;
+      if (arrays[container] != null) {
+        for (int index = 0; index < cardinalities[container]; index++) {
+          records[size++] = high | arrays[container][index];
+        }
+      } else {
+        long[] words = bitmaps[container];
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+          long bits = words[word];
+          while (bits != 0) {
+            records[size++] = high | (word << 6) | Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+          }
+        }
+      }
+    }
+    return records;
+  }
+
+  /**
+   * Computes the intersection of two bitmaps.
+   * 
+   * @param other the other bitmap
+   * @return a bitmap of the records in both
+   */
+
+  RecordBitmap and(RecordBitmap other) {
+    int capacity = Math.min(keys.length, other.keys.length);
+    char[] newKeys = new char[capacity];
+    char[][] newArrays = new char[capacity][];
+    long[][] newBitmaps = new long[capacity][];
+    int[] newCardinalities = new int[capacity];
+    int size = 0;
+    int total = 0;
+    int left = 0;
+    int right = 0;
+    while (left < keys.length && right < other.keys.length) {
+      if (keys[left] < other.keys[right]) {
+        left++;
+      } else if (keys[left] > other.keys[right]) {
+        right++;
+      } else {
+        int count;
+        if (arrays[left] != null && other.arrays[right] != null) {
+          char[] result = new char[Math.min(cardinalities[left], other.cardinalities[right])];
+          count = intersect(arrays[left], cardinalities[left], other.arrays[right],
+              other.cardinalities[right], result);
+          newArrays[size] = result;
+        } else if (arrays[left] != null || other.arrays[right] != null) {
+          boolean leftIsArray = arrays[left] != null;
+          char[] values = leftIsArray ? arrays[left] : other.arrays[right];
+          int length = leftIsArray ? cardinalities[left] : other.cardinalities[right];
+          long[] words = leftIsArray ? other.bitmaps[right] : bitmaps[left];
+          char[] result = new char[length];
+          count = 0;
+          for (int index = 0; index < length; index++) {
+            char value = values[index];
+            if ((words[value >>> 6] & (1L << value)) != 0) {
+              result[count++] = value;
+            }
+          }
+          newArrays[size] = result;
+        } else {
+          long[] words = new long[BITMAP_WORDS];
+          count = 0;
+          for (int word = 0; word < BITMAP_WORDS; word++) {
+            words[word] = bitmaps[left][word] & other.bitmaps[right][word];
+            count += Long.bitCount(words[word]);
+          }
+          if (count > MAX_ARRAY_CARDINALITY) {
+            newBitmaps[size] = words;
+          } else {
+            newArrays[size] = toValues(words, count);
+          }
+        }
+        if (count > 0) {
+          newKeys[size] = keys[left];
+          newCardinalities[size] = count;
+          total += count;
+          size++;
+        } else {
+          newArrays[size] = null;
+          newBitmaps[size] = null;
+        }
+        left++;
+        right++;
+      }
+    }
+    return new RecordBitmap(Arrays.copyOf(newKeys, size), Arrays.copyOf(newArrays, size),
+        Arrays.copyOf(newBitmaps, size), Arrays.copyOf(newCardinalities, size), total);
+  }
+
+  /**
+   * Collects record numbers in ascending order into a bitmap.
+   */
+
+  static final class Builder {
+
+    private char[] keys = new char[4];
+    private char[][] arrays = new char[4][];
+    private long[][] bitmaps = new long[4][];
+    private int[] cardinalities = new int[4];
+    private int size;
+    private int total;
+
+    /**
+     * Adds a record, which must be larger than any added before.
+     * 
+     * @param record the number of the record
+     */
+
+    void add(int record) {
+      char high = (char) (record >>> 16);
+      char low = (char) record;
+      if (size == 0 || keys[size - 1] != high) {
+        if (size == keys.length) {
+          keys = Arrays.copyOf(keys, size * 2);
+          arrays = Arrays.copyOf(arrays, size * 2);
+          bitmaps = Arrays.copyOf(bitmaps, size * 2);
+          cardinalities = Arrays.copyOf(cardinalities, size * 2);
+        }
+        keys[size] = high;
+        arrays[size] = new char[4];
+        size++;
+      }
+      int container = size - 1;
+      int count = cardinalities[container];
+      if (arrays[container] != null) {
+        if (count == MAX_ARRAY_CARDINALITY) {
+          bitmaps[container] = toWords(arrays[container], count);
+          arrays[container] = null;
+        } else {
+          if (count == arrays[container].length) {
+            arrays[container] = Arrays.copyOf(arrays[container], count * 2);
+          }
+          arrays[container][count] = low;
+        }
+      }
+      if (bitmaps[container] != null) {
+        bitmaps[container][low >>> 6] |= 1L << low;
+      }
+      cardinalities[container] = count + 1;
+      total++;
+    }
+
+    /**
+     * Builds the bitmap. The builder must not be used afterwards.
+     * 
+     * @return the bitmap
+     */
+
+    RecordBitmap build() {
+      if (size == 0) {
+        return EMPTY;
+      }
+      for (int container = 0; container < size; container++) {
+        if (arrays[container] != null) {
+          arrays[container] = Arrays.copyOf(arrays[container], cardinalities[container]);
+        }
+      }
+      return new RecordBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(arrays, size),
+          Arrays.copyOf(bitmaps, size), Arrays.copyOf(cardinalities, size), total);
+    }
+  }
+
+  /* UTILITY METHODS */
+
+  private static int intersect(char[] left, int leftSize, char[] right, int rightSize,
+      char[] result) {
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < leftSize && j < rightSize) {
+      if (left[i] < right[j]) {
+        i++;
+      } else if (left[i] > right[j]) {
+        j++;
+      } else {
+        result[count++] = left[i];
+        i++;
+        j++;
+      }
+    }
+    return count;
+  }
+
+  private static long[] toWords(char[] values, int count) {
+    long[] words = new long[BITMAP_WORDS];
+    for (int index = 0; index < count; index++) {
+      words[values[index] >>> 6] |= 1L << values[index];
+    }
+    return words;
+  }
+
+  private static char[] toValues(long[] words, int count) {
+    char[] values = new char[count];
+    int size = 0;
+    for (int word = 0; word < BITMAP_WORDS; word++) {
+      long bits = words[word];
+      while (bits != 0) {
+        values[size++] = (char) ((word << 6) | Long.numberOfTrailingZeros(bits));
+        bits &= bits - 1;
+      }
+    }
+    return values;
+  }
+}
@@ -0,0 +1,7 @@
+/**
+ * This package contains the compound catalog, an on-disk table of formulas that is read through
+ * memory-mapped files.
+ * @author Ariel Mordoch
+ * @since 0.8-alpha
+ */
+package com.mordoch.chemtools.catalog;
@@ -1,5 +1,5 @@
 /*
- * Copyright Ariel Mordoch 2014 
+ * Copyright Ariel Mordoch 2014
  * This file is part of Chemistry Tools.
  * 
  * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
@@ -16,12 +16,24 @@
 
 package com.mordoch.chemtools.formulatools;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
+
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
 
 /**
- * This class acts a container for Formula objects that represent a chemical equation. 
- * Theoretically, this class can hold as many Formula objects as there is address space, 
- * so I've set the limit to 10 reactants and products.
+ * This class represents a chemical equation: its reactants and products, each with a coefficient.
+ * There is no limit on the number of species.
+ * <p>
+ * Rather than a Formula object per species, an Equation keeps every species in a few primitive
+ * arrays: the atomic numbers and subscripts of all species one after the other, the offset at
+ * which each species starts, and the coefficient of each species. Memory use therefore grows
+ * linearly with the number of species and elements, which makes large reaction mechanisms
+ * practical. {@link #getReactants()} and {@link #getProducts()} still present the species as
+ * Formula objects, which are created when they are asked for.
+ * </p>
  * 
  * @author Ariel Mordoch
  * @version 1.0
@@ -30,10 +42,22 @@ import java.util.List;
 
 public class Equation {
 
-  private List<Formula> reactants;
-  private List<Formula> products;
+  private static final byte[] NO_ELEMENTS = new byte[0];
+  private static final int[] NO_COUNTS = new int[0];
+
+  // The elements of every species, one species after the other. The arrays are never modified
+  // once built, so they can be shared between copies.
+  private byte[] atomicNumbers = NO_ELEMENTS;
+  private int[] subscripts = NO_COUNTS;
+  // Species i has the elements from offsets[i] to offsets[i + 1]
+  private int[] offsets = {0};
+  private double[] coefficients = new double[0];
+  private int numOfReactants;
   private double ACTIVATION_ENERGY;
-  
+  // Set once the equation is shared through FtHelper's intern pool
+  private volatile boolean frozen;
+  // Computed on first use; cleared whenever the species change
+  private volatile MolRatioMatrix molRatios;
 
   /**
    * Default constructor, constructs and equation representing photosynthesis.
@@ -41,8 +65,8 @@ public class Equation {
 
   public Equation() {
     Equation eq = FtHelper.parseEquation("(6)C1O2 + (6) H2O1 ---> C6H12O6 + (6)O2");
-    setReactants(eq.getReactants());
-    setProducts(eq.getProducts());
+    // The arrays are never modified, so they can be shared with the parsed equation.
+    copyFrom(eq);
     setActivationEnergy(eq.getActivationEnergy());
   }
 
@@ -55,33 +79,87 @@ public class Equation {
    * @param listOfProducts a List representing the individual products contains in a chemical
    *        equation.
    * @param activation_energy insiginificant for now
+   * @throws IllegalArgumentException if a formula contains an unknown element
    */
 
   public Equation(List<Formula> listOfReactants, List<Formula> listOfProducts,
       double activation_energy) {
-    setReactants(listOfReactants);
-    setProducts(listOfProducts);
+    store(listOfReactants, listOfProducts);
     setActivationEnergy(activation_energy);
   }
 
   /**
-   * Gets the reactants of a chemical equation.
+   * Creates an equation from the packed form of its species. This is the most compact way to
+   * build a large equation; no Formula objects are involved.
+   * 
+   * @param species the reactants followed by the products
+   * @param speciesCoefficients the coefficient of each species; the coefficients of the
+   *        PackedFormulas themselves are ignored
+   * @param numOfReactants how many of the species are reactants
+   * @param activationEnergy insignificant for now
+   */
+
+  public Equation(PackedFormula[] species, double[] speciesCoefficients, int numOfReactants,
+      double activationEnergy) {
+    if (speciesCoefficients.length != species.length || numOfReactants < 0
+        || numOfReactants > species.length) {
+      throw new IllegalArgumentException("Species and coefficients don't match");
+    }
+    int size = 0;
+    for (PackedFormula formula : species) {
+      size += formula.size();
+    }
+    byte[] newAtomicNumbers = new byte[size];
+    int[] newSubscripts = new int[size];
+    int[] newOffsets = new int[species.length + 1];
+    int position = 0;
+    for (int index = 0; index < species.length; index++) {
+      for (int element = 0; element < species[index].size(); element++) {
+        newAtomicNumbers[position] = (byte) species[index].atomicNumberAt(element);
+        newSubscripts[position] = species[index].countAt(element);
+        position++;
+      }
+      newOffsets[index + 1] = position;
+    }
+    atomicNumbers = newAtomicNumbers;
+    subscripts = newSubscripts;
+    offsets = newOffsets;
+    coefficients = speciesCoefficients.clone();
+    this.numOfReactants = numOfReactants;
+    setActivationEnergy(activationEnergy);
+  }
+
+  // Takes ownership of the arrays; used by the parser.
+  Equation(byte[] atomicNumbers, int[] subscripts, int[] offsets, double[] coefficients,
+      int numOfReactants, double activationEnergy) {
+    this.atomicNumbers = atomicNumbers;
+    this.subscripts = subscripts;
+    this.offsets = offsets;
+    this.coefficients = coefficients;
+    this.numOfReactants = numOfReactants;
+    setActivationEnergy(activationEnergy);
+  }
+
+  /**
+   * Gets the reactants of a chemical equation. The List is a read-only view; use
+   * {@link #setReactants(List)} to change the reactants.
    * 
    * @return a List containing the reactants
    */
 
   public List<Formula> getReactants() {
-    return reactants;
+    return new SpeciesList(0, numOfReactants);
   }
 
   /**
-   * Gets the products of a chemical equation.
+   * Gets the products of a chemical equation. The List is a read-only view; use
+   * {@link #setProducts(List)} to change the products.
    * 
    * @return a List containing the products
    */
 
   public List<Formula> getProducts() {
-    return products;
+    return new SpeciesList(numOfReactants, coefficients.length);
   }
 
   public double getActivationEnergy() {
@@ -92,28 +170,200 @@ public class Equation {
    * Sets the reactants of the current instance.
    * 
    * @param listOfReactants a List containing the reactants
+   * @throws UnsupportedOperationException if the equation is shared
+   * @throws IllegalArgumentException if a formula contains an unknown element
    */
 
   public final void setReactants(List<Formula> listOfReactants) {
-    reactants = listOfReactants;
+    checkNotFrozen();
+    store(listOfReactants, getProducts());
   }
 
   /**
    * Sets the products of the current instance.
    * 
    * @param listOfProducts a List containing the products
+   * @throws UnsupportedOperationException if the equation is shared
+   * @throws IllegalArgumentException if a formula contains an unknown element
    */
 
   public final void setProducts(List<Formula> listOfProducts) {
-    products = listOfProducts;
-    saveTheHeap();
+    checkNotFrozen();
+    store(getReactants(), listOfProducts);
   }
 
 
   public final void setActivationEnergy(double activation_energy) {
+    checkNotFrozen();
     ACTIVATION_ENERGY = activation_energy;
   }
 
+  /**
+   * Gets the number of reactants.
+   * 
+   * @return the number of reactants
+   */
+
+  public final int numOfReactants() {
+    return numOfReactants;
+  }
+
+  /**
+   * Gets the number of products.
+   * 
+   * @return the number of products
+   */
+
+  public final int numOfProducts() {
+    return coefficients.length - numOfReactants;
+  }
+
+  /**
+   * Gets the number of species, reactants and products together. Species are numbered from 0,
+   * reactants first.
+   * 
+   * @return the number of species
+   */
+
+  public final int numOfSpecies() {
+    return coefficients.length;
+  }
+
+  /**
+   * Gets the coefficient of a species without creating a Formula.
+   * 
+   * @param species the index of the species; reactants come first
+   * @return the coefficient of the species
+   */
+
+  public final double coefficientAt(int species) {
+    return coefficients[species];
+  }
+
+  /**
+   * Gets the number of elements written in a species. An element written twice, as in
+   * "C1H3C1O2H1", is counted twice.
+   *
+   * @param species the index of the species; reactants come first
+   * @return the number of elements in the species
+   */
+
+  public final int numOfElementsAt(int species) {
+    return offsets[species + 1] - offsets[species];
+  }
+
+  /**
+   * Gets the atomic number of an element of a species, in the order they were written.
+   *
+   * @param species the index of the species; reactants come first
+   * @param index the index of the element within the species
+   * @return the atomic number of the element
+   */
+
+  public final int atomicNumberAt(int species, int index) {
+    return atomicNumbers[elementIndex(species, index)];
+  }
+
+  /**
+   * Gets the subscript of an element of a species, in the order they were written.
+   *
+   * @param species the index of the species; reactants come first
+   * @param index the index of the element within the species
+   * @return the subscript of the element
+   */
+
+  public final int subscriptAt(int species, int index) {
+    return subscripts[elementIndex(species, index)];
+  }
+
+  /**
+   * Returns a copy of the equation with different coefficients. The copy shares the elements of
+   * this equation rather than copying them.
+   *
+   * @param newCoefficients the coefficient of each species; reactants come first
+   * @return a new, modifiable Equation
+   */
+
+  public final Equation withCoefficients(double[] newCoefficients) {
+    if (newCoefficients.length != coefficients.length) {
+      throw new IllegalArgumentException("Expected " + coefficients.length + " coefficients");
+    }
+    return new Equation(atomicNumbers, subscripts, offsets, newCoefficients.clone(),
+        numOfReactants, ACTIVATION_ENERGY);
+  }
+
+  /**
+   * Gets a species in packed form, with its coefficient.
+   * 
+   * @param species the index of the species; reactants come first
+   * @return the species as a PackedFormula
+   */
+
+  public final PackedFormula speciesAt(int species) {
+    int start = offsets[species];
+    int size = offsets[species + 1] - start;
+    int[] numbers = new int[size];
+    for (int index = 0; index < size; index++) {
+      numbers[index] = atomicNumbers[start + index];
+    }
+    int[] counts = new int[size];
+    System.arraycopy(subscripts, start, counts, 0, size);
+    return PackedFormula.of(numbers, counts, size, coefficients[species]);
+  }
+
+  /**
+   * Computes the molar mass of one unit of a species, ignoring its coefficient, without creating a
+   * Formula.
+   * 
+   * @param species the index of the species; reactants come first
+   * @return the molar mass of the species, in g/mol
+   */
+
+  public final double molarMassAt(int species) {
+    double molarMass = 0;
+    for (int index = offsets[species]; index < offsets[species + 1]; index++) {
+      molarMass += subscripts[index] * PeriodicTable.mass(atomicNumbers[index]);
+    }
+    return molarMass;
+  }
+
+  /**
+   * Gets the mol ratios between the species of the equation. They are computed the first time they
+   * are asked for and kept until the reactants or products change, so a shared equation computes
+   * them once for all threads.
+   * 
+   * @return the mol ratios and molar masses of the species
+   */
+
+  public final MolRatioMatrix molRatios() {
+    MolRatioMatrix matrix = molRatios;
+    if (matrix == null) {
+      // Two threads may both compute it; the results are the same, so either one can be kept.
+      matrix = new MolRatioMatrix(this);
+      molRatios = matrix;
+    }
+    return matrix;
+  }
+
+  /**
+   * Checks whether the equation is shared and therefore can't be modified. Equations returned by
+   * {@link FtHelper#parseEquation(String)} are shared.
+   * 
+   * @return true if the equation can't be modified
+   */
+
+  public final boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Makes the equation unmodifiable so that it can be shared between callers and threads.
+   */
+
+  final void freeze() {
+    frozen = true;
+  }
+
   /**
    * Constructs and returns the string that was the original equation.
    * 
@@ -121,20 +371,126 @@ public class Equation {
    */
 
   public final String original() {
-    String originalEq = "";
-    for (Formula formula : reactants) {
-      originalEq += formula.toString();
+    StringBuilder originalEq = new StringBuilder(atomicNumbers.length * 4);
+    for (int species = 0; species < coefficients.length; species++) {
+      appendSpecies(species, originalEq);
+    }
+    return originalEq.toString();
+  }
+
+  /* UTILITY METHODS */
+
+  private void copyFrom(Equation other) {
+    atomicNumbers = other.atomicNumbers;
+    subscripts = other.subscripts;
+    offsets = other.offsets;
+    coefficients = other.coefficients;
+    numOfReactants = other.numOfReactants;
+  }
+
+  // Packs the formulas into new arrays, which replace the current ones.
+  private void store(List<Formula> reactants, List<Formula> products) {
+    int numOfSpecies = reactants.size() + products.size();
+    int size = 0;
+    for (int species = 0; species < numOfSpecies; species++) {
+      size += formulaAt(reactants, products, species).getElements().size();
     }
-    for (Formula formula : products) {
-      originalEq += formula.toString();
+    byte[] newAtomicNumbers = new byte[size];
+    int[] newSubscripts = new int[size];
+    int[] newOffsets = new int[numOfSpecies + 1];
+    double[] newCoefficients = new double[numOfSpecies];
+    int position = 0;
+    for (int species = 0; species < numOfSpecies; species++) {
+      Formula formula = formulaAt(reactants, products, species);
+      List<String> elements = formula.getElements();
+      List<Integer> formulaSubscripts = formula.getSubscripts();
+      for (int index = 0; index < elements.size(); index++) {
+        int atomicNumber = PeriodicTable.atomicNumberOf(elements.get(index));
+        if (atomicNumber == 0) {
+          throw new IllegalArgumentException("Unknown element: " + elements.get(index));
+        }
+        newAtomicNumbers[position] = (byte) atomicNumber;
+        newSubscripts[position] = formulaSubscripts.get(index);
+        position++;
+      }
+      newOffsets[species + 1] = position;
+      newCoefficients[species] = formula.getCoefficient();
     }
-    return originalEq;
+    atomicNumbers = newAtomicNumbers;
+    subscripts = newSubscripts;
+    offsets = newOffsets;
+    coefficients = newCoefficients;
+    numOfReactants = reactants.size();
+    molRatios = null;
   }
-  
-  private final void saveTheHeap() throws UnsupportedOperationException {
-    if ( reactants.size() + products.size() > 10 ) {
-      throw new UnsupportedOperationException("Equation size exceeds limit");
+
+  private static Formula formulaAt(List<Formula> reactants, List<Formula> products, int species) {
+    return species < reactants.size() ? reactants.get(species)
+        : products.get(species - reactants.size());
+  }
+
+  // Same form as Formula#toString()
+  private void appendSpecies(int species, StringBuilder builder) {
+    if (coefficients[species] != 1) {
+      builder.append('(').append(coefficients[species]).append(')');
+    }
+    for (int index = offsets[species]; index < offsets[species + 1]; index++) {
+      builder.append(PeriodicTable.symbol(atomicNumbers[index])).append(subscripts[index]);
+    }
+  }
+
+  private Formula toFormula(int species) {
+    int start = offsets[species];
+    int size = offsets[species + 1] - start;
+    List<String> elements = new ArrayList<String>(size);
+    List<Integer> formulaSubscripts = new ArrayList<Integer>(size);
+    for (int index = start; index < start + size; index++) {
+      elements.add(PeriodicTable.symbol(atomicNumbers[index]));
+      formulaSubscripts.add(subscripts[index]);
     }
+    Formula formula = new Formula(elements, formulaSubscripts, coefficients[species]);
+    // Changes to it would be lost, so don't allow any.
+    formula.freeze();
+    return formula;
   }
 
+  private int elementIndex(int species, int index) {
+    if (index < 0 || index >= numOfElementsAt(species)) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length "
+          + numOfElementsAt(species));
+    }
+    return offsets[species] + index;
+  }
+
+  private void checkNotFrozen() {
+    if (frozen) {
+      throw new UnsupportedOperationException("Equation is shared and can't be modified");
+    }
+  }
+
+  // A read-only view of a range of species as Formula objects.
+  private final class SpeciesList extends AbstractList<Formula> implements RandomAccess {
+
+    private final int from;
+    private final int to;
+
+    SpeciesList(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public Formula get(int index) {
+      if (index < 0 || index >= to - from) {
+        throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length "
+            + (to - from));
+      }
+      return toFormula(from + index);
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+  }
 }
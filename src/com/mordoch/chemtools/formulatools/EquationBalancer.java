@@ -0,0 +1,480 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.formulatools;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
+
+/**
+ * Computes the coefficients that balance a chemical equation. The equation is turned into a
+ * composition matrix with a row per element and a column per species (products are negative), and
+ * the balancing coefficients are the smallest positive integer vector in its null space.
+ * <p>
+ * The null space is found by fraction-free Gauss-Jordan elimination: a row is eliminated by
+ * cross-multiplying it with the pivot row and is then divided by the GCD of its entries, which
+ * keeps every number an exact integer and small. The arithmetic is done on longs, with overflow
+ * checks; if a long ever overflows, the equation is solved again with BigIntegers.
+ * </p>
+ * <p>
+ * Coefficients written in the equation, such as the "(6)" of "(6)O2", are ignored. Like
+ * {@link FormulaParser}, an instance keeps its work arrays between calls and is
+ * <strong>not</strong> thread-safe, so every thread should own its own balancer.
+ * </p>
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class EquationBalancer {
+
+  private static final String ARROW = "--->";
+
+  private final FormulaParser parser = new FormulaParser();
+  // The species of the last equation: the spans of their formulas in the text
+  private int[] speciesStart = new int[8];
+  private int[] speciesEnd = new int[8];
+  private int numOfSpecies;
+  private int numOfReactants;
+  // Row of each element in the matrix, plus one; 0 for elements not in the equation
+  private final int[] rowOfElement = new int[PeriodicTable.MAX_ATOMIC_NUMBER + 1];
+  private int[] elementOfRow = new int[16];
+  private int numOfRows;
+  // The composition matrix, row by row, and a copy to eliminate in
+  private long[] matrix = new long[64];
+  private long[] work = new long[64];
+  private int[] pivotColumns = new int[16];
+
+  /**
+   * Balances an equation such as "C3H8 + O2 ---> CO2 + H2O".
+   * 
+   * @param equation the equation, written as for {@link FtHelper#parseEquation(String)}
+   * @return the coefficients of the reactants, then of the products, in the order they are
+   *         written; they have no common factor
+   * @throws IllegalArgumentException if the equation is malformed, can't be balanced, or can be
+   *         balanced in more than one independent way
+   */
+
+  public long[] balance(CharSequence equation) {
+    split(equation);
+    clearMatrix();
+    for (int species = 0; species < numOfSpecies; species++) {
+      parser.scan(equation, speciesStart[species], speciesEnd[species]);
+      int sign = species < numOfReactants ? 1 : -1;
+      for (int token = 0; token < parser.size(); token++) {
+        add(parser.atomicNumberAt(token), species, sign * (long) parser.subscriptAt(token));
+      }
+    }
+    return solve();
+  }
+
+  /**
+   * Balances an Equation.
+   * 
+   * @param equation the equation
+   * @return the coefficients of the reactants, then of the products; they have no common factor
+   * @throws IllegalArgumentException if the equation can't be balanced, or can be balanced in
+   *         more than one independent way
+   */
+
+  public long[] balance(Equation equation) {
+    numOfReactants = equation.numOfReactants();
+    numOfSpecies = equation.numOfSpecies();
+    clearMatrix();
+    for (int species = 0; species < numOfSpecies; species++) {
+      int sign = species < numOfReactants ? 1 : -1;
+      for (int index = 0; index < equation.numOfElementsAt(species); index++) {
+        add(equation.atomicNumberAt(species, index), species,
+            sign * (long) equation.subscriptAt(species, index));
+      }
+    }
+    return solve();
+  }
+
+  /**
+   * Returns a copy of an Equation whose formulas have the coefficients that balance it.
+   * 
+   * @param equation the equation
+   * @return a new, balanced Equation
+   * @throws IllegalArgumentException if the equation can't be balanced in exactly one way
+   */
+
+  public Equation balanced(Equation equation) {
+    long[] coefficients = balance(equation);
+    double[] newCoefficients = new double[coefficients.length];
+    for (int species = 0; species < coefficients.length; species++) {
+      newCoefficients[species] = coefficients[species];
+    }
+    return equation.withCoefficients(newCoefficients);
+  }
+
+  /**
+   * Balances an equation and writes it out with its coefficients, e.g. "C3H8 + O2 ---&gt; CO2 +
+   * H2O" becomes "C3H8 + (5)O2 ---&gt; (3)CO2 + (4)H2O". Coefficients of 1 are left out.
+   * 
+   * @param equation the equation, written as for {@link FtHelper#parseEquation(String)}
+   * @return the balanced equation
+   * @throws IllegalArgumentException if the equation can't be balanced in exactly one way
+   */
+
+  public String balanceToString(CharSequence equation) {
+    long[] coefficients = balance(equation);
+    StringBuilder balanced = new StringBuilder(equation.length() + coefficients.length * 4);
+    for (int species = 0; species < numOfSpecies; species++) {
+      if (species == numOfReactants) {
+        balanced.append(" ").append(ARROW).append(" ");
+      } else if (species > 0) {
+        balanced.append(" + ");
+      }
+      if (coefficients[species] != 1) {
+        balanced.append('(').append(coefficients[species]).append(')');
+      }
+      balanced.append(equation, speciesStart[species], speciesEnd[species]);
+    }
+    return balanced.toString();
+  }
+
+  /**
+   * Balances a list of equations. Equations that can't be balanced get null rather than stopping
+   * the whole list.
+   * 
+   * @param equations the equations, written as for {@link FtHelper#parseEquation(String)}
+   * @return the coefficients of each equation, or null for those that can't be balanced
+   */
+
+  public List<long[]> balanceAll(List<? extends CharSequence> equations) {
+    List<long[]> results = new ArrayList<long[]>(equations.size());
+    for (CharSequence equation : equations) {
+      try {
+        results.add(balance(equation));
+      } catch (IllegalArgumentException e) {
+        results.add(null);
+      }
+    }
+    return results;
+  }
+
+  /* UTILITY METHODS */
+
+  // Finds the species of an equation, trimmed of spaces.
+  private void split(CharSequence equation) {
+    int arrow = indexOf(equation, ARROW);
+    if (arrow < 0 || indexOf(equation, ARROW, arrow + ARROW.length()) >= 0) {
+      throw new IllegalArgumentException("Equation must contain '" + ARROW + "' once: " + equation);
+    }
+    numOfSpecies = 0;
+    splitSide(equation, 0, arrow);
+    numOfReactants = numOfSpecies;
+    splitSide(equation, arrow + ARROW.length(), equation.length());
+  }
+
+  private void splitSide(CharSequence equation, int start, int end) {
+    int speciesFrom = start;
+    for (int index = start; index <= end; index++) {
+      if (index == end || equation.charAt(index) == '+') {
+        int from = speciesFrom;
+        int to = index;
+        while (from < to && equation.charAt(from) == ' ') {
+          from++;
+        }
+        while (to > from && equation.charAt(to - 1) == ' ') {
+          to--;
+        }
+        // Skip the coefficient that was written, if any; it is computed instead.
+        if (from < to && equation.charAt(from) == '(') {
+          while (from < to && equation.charAt(from) != ')') {
+            from++;
+          }
+          from++;
+          while (from < to && equation.charAt(from) == ' ') {
+            from++;
+          }
+        }
+        if (from >= to) {
+          throw new IllegalArgumentException("Missing formula in equation: " + equation);
+        }
+        if (numOfSpecies == speciesStart.length) {
+          speciesStart = Arrays.copyOf(speciesStart, numOfSpecies * 2);
+          speciesEnd = Arrays.copyOf(speciesEnd, numOfSpecies * 2);
+        }
+        speciesStart[numOfSpecies] = from;
+        speciesEnd[numOfSpecies] = to;
+        numOfSpecies++;
+        speciesFrom = index + 1;
+      }
+    }
+  }
+
+  private void clearMatrix() {
+    for (int row = 0; row < numOfRows; row++) {
+      rowOfElement[elementOfRow[row]] = 0;
+    }
+    numOfRows = 0;
+  }
+
+  private void add(int atomicNumber, int species, long count) {
+    int row = rowOfElement[atomicNumber] - 1;
+    if (row < 0) {
+      row = numOfRows++;
+      rowOfElement[atomicNumber] = numOfRows;
+      if (row == elementOfRow.length) {
+        elementOfRow = Arrays.copyOf(elementOfRow, row * 2);
+      }
+      elementOfRow[row] = atomicNumber;
+      if (numOfRows * numOfSpecies > matrix.length) {
+        matrix = Arrays.copyOf(matrix, Math.max(matrix.length * 2, numOfRows * numOfSpecies));
+      }
+      Arrays.fill(matrix, row * numOfSpecies, numOfRows * numOfSpecies, 0);
+    }
+    matrix[row * numOfSpecies + species] += count;
+  }
+
+  private long[] solve() {
+    if (numOfReactants == 0 || numOfReactants == numOfSpecies) {
+      throw new IllegalArgumentException("Equation needs reactants and products");
+    }
+    long[] coefficients;
+    try {
+      coefficients = solveWithLongs();
+    } catch (ArithmeticException e) {
+      coefficients = solveWithBigIntegers();
+    }
+    for (long coefficient : coefficients) {
+      if (coefficient <= 0) {
+        throw new IllegalArgumentException("Equation can't be balanced with positive coefficients");
+      }
+    }
+    return coefficients;
+  }
+
+  private long[] solveWithLongs() {
+    int rows = numOfRows;
+    int columns = numOfSpecies;
+    if (work.length < matrix.length) {
+      work = new long[matrix.length];
+    }
+    System.arraycopy(matrix, 0, work, 0, rows * columns);
+    if (pivotColumns.length < rows) {
+      pivotColumns = new int[rows];
+    }
+    int rank = 0;
+    for (int column = 0; column < columns && rank < rows; column++) {
+      // Pick the smallest nonzero entry as the pivot to keep the numbers small.
+      int pivotRow = -1;
+      for (int row = rank; row < rows; row++) {
+        long entry = work[row * columns + column];
+        if (entry != 0 && (pivotRow < 0
+            || Math.abs(entry) < Math.abs(work[pivotRow * columns + column]))) {
+          pivotRow = row;
+        }
+      }
+      if (pivotRow < 0) {
+        continue;
+      }
+      swapRows(work, pivotRow, rank, columns);
+      long pivot = work[rank * columns + column];
+      for (int row = 0; row < rows; row++) {
+        long entry = work[row * columns + column];
+        if (row == rank || entry == 0) {
+          continue;
+        }
+        long divisor = gcd(pivot, entry);
+        long pivotFactor = pivot / divisor;
+        long entryFactor = entry / divisor;
+        long rowDivisor = 0;
+        for (int index = 0; index < columns; index++) {
+          long value = Math.subtractExact(
+              Math.multiplyExact(work[row * columns + index], pivotFactor),
+              Math.multiplyExact(work[rank * columns + index], entryFactor));
+          work[row * columns + index] = value;
+          rowDivisor = gcd(rowDivisor, value);
+        }
+        if (rowDivisor > 1) {
+          for (int index = 0; index < columns; index++) {
+            work[row * columns + index] /= rowDivisor;
+          }
+        }
+      }
+      pivotColumns[rank++] = column;
+    }
+    int free = freeColumn(rank, columns);
+    // Each pivot row now reads pivot * x[pivotColumn] + entry * x[free] = 0.
+    long scale = 1;
+    for (int row = 0; row < rank; row++) {
+      long pivot = Math.abs(work[row * columns + pivotColumns[row]]);
+      scale = Math.multiplyExact(scale / gcd(scale, pivot), pivot);
+    }
+    long[] coefficients = new long[columns];
+    coefficients[free] = scale;
+    long divisor = scale;
+    for (int row = 0; row < rank; row++) {
+      long pivot = work[row * columns + pivotColumns[row]];
+      long coefficient =
+          Math.negateExact(Math.multiplyExact(work[row * columns + free], scale / pivot));
+      coefficients[pivotColumns[row]] = coefficient;
+      divisor = gcd(divisor, coefficient);
+    }
+    for (int index = 0; index < columns; index++) {
+      coefficients[index] /= divisor;
+    }
+    return coefficients;
+  }
+
+  // The same elimination as solveWithLongs, for the rare equations that overflow a long.
+  private long[] solveWithBigIntegers() {
+    int rows = numOfRows;
+    int columns = numOfSpecies;
+    BigInteger[] big = new BigInteger[rows * columns];
+    for (int index = 0; index < big.length; index++) {
+      big[index] = BigInteger.valueOf(matrix[index]);
+    }
+    int rank = 0;
+    for (int column = 0; column < columns && rank < rows; column++) {
+      int pivotRow = -1;
+      for (int row = rank; row < rows; row++) {
+        BigInteger entry = big[row * columns + column];
+        if (entry.signum() != 0 && (pivotRow < 0
+            || entry.abs().compareTo(big[pivotRow * columns + column].abs()) < 0)) {
+          pivotRow = row;
+        }
+      }
+      if (pivotRow < 0) {
+        continue;
+      }
+      for (int index = 0; index < columns; index++) {
+        BigInteger temp = big[pivotRow * columns + index];
+        big[pivotRow * columns + index] = big[rank * columns + index];
+        big[rank * columns + index] = temp;
+      }
+      BigInteger pivot = big[rank * columns + column];
+      for (int row = 0; row < rows; row++) {
+        BigInteger entry = big[row * columns + column];
+        if (row == rank || entry.signum() == 0) {
+          continue;
+        }
+        BigInteger divisor = pivot.gcd(entry);
+        BigInteger pivotFactor = pivot.divide(divisor);
+        BigInteger entryFactor = entry.divide(divisor);
+        BigInteger rowDivisor = BigInteger.ZERO;
+        for (int index = 0; index < columns; index++) {
+          BigInteger value = big[row * columns + index].multiply(pivotFactor)
+              .subtract(big[rank * columns + index].multiply(entryFactor));
+          big[row * columns + index] = value;
+          rowDivisor = rowDivisor.gcd(value);
+        }
+        if (rowDivisor.compareTo(BigInteger.ONE) > 0) {
+          for (int index = 0; index < columns; index++) {
+            big[row * columns + index] = big[row * columns + index].divide(rowDivisor);
+          }
+        }
+      }
+      if (pivotColumns.length <= rank) {
+        pivotColumns = Arrays.copyOf(pivotColumns, rank + 1);
+      }
+      pivotColumns[rank++] = column;
+    }
+    int free = freeColumn(rank, columns);
+    BigInteger scale = BigInteger.ONE;
+    for (int row = 0; row < rank; row++) {
+      BigInteger pivot = big[row * columns + pivotColumns[row]].abs();
+      scale = scale.divide(scale.gcd(pivot)).multiply(pivot);
+    }
+    BigInteger[] solution = new BigInteger[columns];
+    solution[free] = scale;
+    BigInteger divisor = scale;
+    for (int row = 0; row < rank; row++) {
+      BigInteger pivot = big[row * columns + pivotColumns[row]];
+      solution[pivotColumns[row]] =
+          big[row * columns + free].multiply(scale.divide(pivot)).negate();
+      divisor = divisor.gcd(solution[pivotColumns[row]]);
+    }
+    long[] coefficients = new long[columns];
+    for (int index = 0; index < columns; index++) {
+      BigInteger coefficient = solution[index].divide(divisor);
+      if (coefficient.bitLength() >= Long.SIZE) {
+        throw new IllegalArgumentException("Balancing coefficients are too large: " + coefficient);
+      }
+      coefficients[index] = coefficient.longValue();
+    }
+    return coefficients;
+  }
+
+  // Finds the only column without a pivot; the balancing coefficients are unique only if there
+  // is exactly one.
+  private int freeColumn(int rank, int columns) {
+    if (rank == columns) {
+      throw new IllegalArgumentException("Equation can't be balanced");
+    }
+    if (columns - rank > 1) {
+      throw new IllegalArgumentException(
+          "Equation can be balanced in more than one independent way");
+    }
+    for (int row = 0; row < rank; row++) {
+      if (pivotColumns[row] != row) {
+        return row;
+      }
+    }
+    return rank;
+  }
+
+  private static void swapRows(long[] matrix, int first, int second, int columns) {
+    if (first == second) {
+      return;
+    }
+    for (int index = 0; index < columns; index++) {
+      long temp = matrix[first * columns + index];
+      matrix[first * columns + index] = matrix[second * columns + index];
+      matrix[second * columns + index] = temp;
+    }
+  }
+
+  private static long gcd(long a, long b) {
+    if (a == Long.MIN_VALUE || b == Long.MIN_VALUE) {
+      // Its absolute value doesn't fit in a long
+      throw new ArithmeticException("long overflow");
+    }
+    a = Math.abs(a);
+    b = Math.abs(b);
+    while (b != 0) {
+      long remainder = a % b;
+      a = b;
+      b = remainder;
+    }
+    return a;
+  }
+
+  private static int indexOf(CharSequence text, String target) {
+    return indexOf(text, target, 0);
+  }
+
+  private static int indexOf(CharSequence text, String target, int from) {
+    outer:
+    for (int index = from; index <= text.length() - target.length(); index++) {
+      for (int offset = 0; offset < target.length(); offset++) {
+        if (text.charAt(index + offset) != target.charAt(offset)) {
+          continue outer;
+        }
+      }
+      return index;
+    }
+    return -1;
+  }
+}
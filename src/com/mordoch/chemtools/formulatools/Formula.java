@@ -16,6 +16,8 @@
 
 package com.mordoch.chemtools.formulatools;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -33,6 +35,8 @@ public class Formula {
   private List<Integer> subscripts;
   private double coefficient;
   private String bondType;
+  // Set once the formula is shared through FtHelper's intern pool
+  private volatile boolean frozen;
 
   /**
    * Default constructor, creates a Formula representing oxygen in its natural state.
@@ -40,8 +44,9 @@ public class Formula {
 
   public Formula() {
     Formula formula = FtHelper.parseFormula("O2");
-    elements = formula.getElements();
-    subscripts = formula.getSubscripts();
+    // The parsed formula is shared, so copy its lists
+    elements = new ArrayList<String>(formula.getElements());
+    subscripts = new ArrayList<Integer>(formula.getSubscripts());
     coefficient = formula.getCoefficient();
     bondType = "covalent";
   }
@@ -86,7 +91,7 @@ public class Formula {
 
   public final List<Integer> getSubscripts() {
     // If subscripts is empty, add 1's corresponding to the amount of elements in the formula
-    if (subscripts.isEmpty()) {
+    if (subscripts.isEmpty() && !frozen) {
       for (int i = 0; i < elements.size(); i++) {
         subscripts.add(1);
       }
@@ -109,9 +114,11 @@ public class Formula {
    * Sets the elements of a formula.
    * 
    * @param listOfElements a List of bondType String containing the elements of a formula
+   * @throws UnsupportedOperationException if the formula is shared
    */
 
   public final void setElements(List<String> listOfElements) {
+      checkNotFrozen();
       elements = listOfElements;
   }
 
@@ -119,9 +126,11 @@ public class Formula {
    * Sets the subscripts of a formula.
    * 
    * @param listOfSubscripts a List of bondType Integer containing the subscripts of a formula
+   * @throws UnsupportedOperationException if the formula is shared
    */
 
   public final void setSubscripts(List<Integer> listOfSubscripts) {
+      checkNotFrozen();
       subscripts = listOfSubscripts;
   }
 
@@ -130,9 +139,11 @@ public class Formula {
    * and thus the coefficient is simply set to 1. 
    * 
    * @param aCoefficient the coefficient of the formula
+   * @throws UnsupportedOperationException if the formula is shared
    */
 
   public final void setCoefficient(double aCoefficient) {
+    checkNotFrozen();
     if (aCoefficient < 1) {
       coefficient = 1;
     } else {
@@ -140,6 +151,27 @@ public class Formula {
     }
   }
 
+  /**
+   * Checks whether the formula is shared and therefore can't be modified. Formulas returned by
+   * {@link FtHelper#parseFormula(String)} are shared.
+   * 
+   * @return true if the formula can't be modified
+   */
+
+  public final boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Makes the formula unmodifiable so that it can be shared between callers and threads.
+   */
+
+  final void freeze() {
+    elements = Collections.unmodifiableList(getElements());
+    subscripts = Collections.unmodifiableList(getSubscripts());
+    frozen = true;
+  }
+
   /**
    * Returns the bond type of the formula.
    * 
@@ -170,4 +202,10 @@ public class Formula {
     }
     return originalFormula;
   }
+
+  private void checkNotFrozen() {
+    if (frozen) {
+      throw new UnsupportedOperationException("Formula is shared and can't be modified");
+    }
+  }
 }
@@ -0,0 +1,287 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ *
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.formulatools;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
+
+/**
+ * A single-pass formula lexer. It reads a CharSequence once, from left to right, and follows the
+ * same grammar as {@link FtHelper#parseFormula(String)}:
+ * <ol>
+ * <li>A coefficient is written within parenthesis, e.g. "(.5)O2".</li>
+ * <li>An element symbol is an uppercase letter followed by up to two lowercase letters, e.g. "C",
+ * "Co" or "Uuo".</li>
+ * <li>The digits following a symbol are its subscript. A symbol without digits has a subscript of
+ * 1.</li>
+ * </ol>
+ * Digits are accumulated arithmetically and symbols are resolved by character code through
+ * {@link PeriodicTable}, so scanning a formula does not allocate. An instance keeps its token
+ * buffers between calls and is meant to be reused in a loop; it is <strong>not</strong>
+ * thread-safe, so every thread should own its own parser.
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class FormulaParser {
+
+  // The largest mantissa that can be turned into a double without rounding.
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+  private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+      1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+  // Token buffers, reused between calls
+  private int[] atomicNumbers = new int[16];
+  private int[] subscripts = new int[16];
+  private int size;
+  private double coefficient;
+  private int scanStart;
+
+  /**
+   * Parses a formula such as "C6H12O6" and returns a new Formula object representing it.
+   *
+   * @param formula the formula to parse
+   * @return a Formula object representing the given formula
+   * @throws IllegalArgumentException if the formula is malformed, has no elements or contains an
+   *         unknown element
+   */
+
+  public Formula parse(CharSequence formula) {
+    scanElements(formula, 0, formula.length());
+    List<String> listOfElements = new ArrayList<String>(size);
+    List<Integer> listOfSubscripts = new ArrayList<Integer>(size);
+    for (int index = 0; index < size; index++) {
+      listOfElements.add(PeriodicTable.symbol(atomicNumbers[index]));
+      listOfSubscripts.add(subscripts[index]);
+    }
+    return new Formula(listOfElements, listOfSubscripts, coefficient);
+  }
+
+  /**
+   * Parses a formula such as "C6H12O6" and returns a new PackedFormula representing it.
+   *
+   * @param formula the formula to parse
+   * @return a PackedFormula representing the given formula
+   * @throws IllegalArgumentException if the formula is malformed, has no elements or contains an
+   *         unknown element
+   */
+
+  public PackedFormula parsePacked(CharSequence formula) {
+    scanElements(formula, 0, formula.length());
+    return PackedFormula.of(this);
+  }
+
+  /**
+   * Scans the characters between start (inclusive) and end (exclusive) of a CharSequence. The
+   * tokens are kept by the parser and can be read with {@link #size()},
+   * {@link #atomicNumberAt(int)}, {@link #subscriptAt(int)} and {@link #coefficient()} until the
+   * next call. Nothing is allocated unless the formula has more elements than any formula seen
+   * before by this instance.
+   *
+   * @param formula the characters to scan
+   * @param start the index of the first character of the formula
+   * @param end the index after the last character of the formula
+   * @return the number of element tokens found
+   * @throws IllegalArgumentException if the formula is malformed or contains an unknown element
+   */
+
+  public int scan(CharSequence formula, int start, int end) {
+    size = 0;
+    coefficient = 1;
+    scanStart = start;
+    int index = start;
+    while (index < end) {
+      char current = formula.charAt(index);
+      if (current == '(') {
+        index = scanCoefficient(formula, index + 1, end);
+      } else if (current >= 'A' && current <= 'Z') {
+        // Find the longest known symbol starting here
+        char second = lowercaseAt(formula, index + 1, end);
+        char third = second == 0 ? 0 : lowercaseAt(formula, index + 2, end);
+        int atomicNumber = PeriodicTable.atomicNumberOf(current, second, third);
+        int length = 3;
+        if (atomicNumber == 0 || third == 0) {
+          atomicNumber = PeriodicTable.atomicNumberOf(current, second, (char) 0);
+          length = 2;
+        }
+        if (atomicNumber == 0 || second == 0) {
+          atomicNumber = PeriodicTable.atomicNumberOf(current, (char) 0, (char) 0);
+          length = 1;
+        }
+        if (atomicNumber == 0) {
+          throw malformed("Unknown element in formula", formula, end);
+        }
+        index += length;
+        // Now accumulate the subscript, if there is one
+        int subscript = 0;
+        boolean hasSubscript = false;
+        while (index < end && isDigit(formula.charAt(index))) {
+          int digit = formula.charAt(index) - '0';
+          if (subscript > (Integer.MAX_VALUE - digit) / 10) {
+            throw malformed("Subscript is too large in formula", formula, end);
+          }
+          subscript = subscript * 10 + digit;
+          hasSubscript = true;
+          index++;
+        }
+        add(atomicNumber, hasSubscript ? subscript : 1);
+      } else {
+        throw malformed("Unexpected character '" + current + "' in formula", formula, end);
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Gets the number of element tokens found by the last scan.
+   *
+   * @return the number of element tokens
+   */
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the atomic number of an element token found by the last scan.
+   *
+   * @param index the index of the token
+   * @return the atomic number of the element
+   */
+
+  public int atomicNumberAt(int index) {
+    return atomicNumbers[index];
+  }
+
+  /**
+   * Gets the symbol of an element token found by the last scan. The returned String is shared, so
+   * this does not allocate.
+   *
+   * @param index the index of the token
+   * @return the symbol of the element, e.g. "Fe"
+   */
+
+  public String symbolAt(int index) {
+    return PeriodicTable.symbol(atomicNumbers[index]);
+  }
+
+  /**
+   * Gets the subscript of an element token found by the last scan.
+   *
+   * @param index the index of the token
+   * @return the subscript of the element
+   */
+
+  public int subscriptAt(int index) {
+    return subscripts[index];
+  }
+
+  /**
+   * Gets the coefficient found by the last scan, or 1 if the formula did not have one.
+   *
+   * @return the coefficient
+   */
+
+  public double coefficient() {
+    return coefficient;
+  }
+
+  /* UTILITY METHODS */
+
+  // A formula such as "" or "(2)" scans without error but describes nothing.
+  private void scanElements(CharSequence formula, int start, int end) {
+    if (scan(formula, start, end) == 0) {
+      throw malformed("Formula has no elements", formula, end);
+    }
+  }
+
+  private int scanCoefficient(CharSequence formula, int index, int end) {
+    long mantissa = 0;
+    int decimals = 0;
+    boolean seenPoint = false;
+    boolean seenDigit = false;
+    boolean exact = true;
+    int first = index;
+    while (index < end && formula.charAt(index) != ')') {
+      char current = formula.charAt(index);
+      if (isDigit(current)) {
+        seenDigit = true;
+        if (mantissa < MAX_EXACT_MANTISSA / 10) {
+          mantissa = mantissa * 10 + (current - '0');
+          if (seenPoint) {
+            decimals++;
+          }
+        } else {
+          exact = false;
+        }
+      } else if (current == '.' && !seenPoint) {
+        seenPoint = true;
+      } else {
+        throw malformed("Malformed coefficient in formula", formula, end);
+      }
+      index++;
+    }
+    if (index == end || !seenDigit) {
+      throw malformed("Malformed coefficient in formula", formula, end);
+    }
+    if (exact && decimals < POWERS_OF_TEN.length) {
+      // Both operands are exact, so the quotient is correctly rounded just like parseDouble.
+      coefficient = mantissa / POWERS_OF_TEN[decimals];
+    } else {
+      coefficient = Double.parseDouble(formula.subSequence(first, index).toString());
+    }
+    // Skip the ')'
+    return index + 1;
+  }
+
+  // Only the scanned part of the sequence goes in the message; it may be a view of a large buffer.
+  private IllegalArgumentException malformed(String problem, CharSequence formula, int end) {
+    return new IllegalArgumentException(problem + ": " + formula.subSequence(scanStart, end));
+  }
+
+  private void add(int atomicNumber, int subscript) {
+    if (size == atomicNumbers.length) {
+      int[] largerAtomicNumbers = new int[size * 2];
+      int[] largerSubscripts = new int[size * 2];
+      System.arraycopy(atomicNumbers, 0, largerAtomicNumbers, 0, size);
+      System.arraycopy(subscripts, 0, largerSubscripts, 0, size);
+      atomicNumbers = largerAtomicNumbers;
+      subscripts = largerSubscripts;
+    }
+    atomicNumbers[size] = atomicNumber;
+    subscripts[size] = subscript;
+    size++;
+  }
+
+  private static char lowercaseAt(CharSequence formula, int index, int end) {
+    if (index < end) {
+      char current = formula.charAt(index);
+      if (current >= 'a' && current <= 'z') {
+        return current;
+      }
+    }
+    return 0;
+  }
+
+  private static boolean isDigit(char character) {
+    return character >= '0' && character <= '9';
+  }
+}
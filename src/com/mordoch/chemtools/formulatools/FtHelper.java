@@ -16,11 +16,12 @@
 
 package com.mordoch.chemtools.formulatools;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
-import com.mordoch.chemtools.util.elementinfo.ElementInfo;
+import com.mordoch.chemtools.util.BoundedCache;
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
+import com.mordoch.chemtools.util.metrics.Metrics;
 
 /**
  * The sole purpose of this class is to offload excess methods from Formula.
@@ -32,8 +33,27 @@ import com.mordoch.chemtools.util.elementinfo.ElementInfo;
 
 public class FtHelper {
 
-  private static Map<String, Double> massList = ElementInfo.mass.unwrap();
-  private static Map<String, String> typeList = ElementInfo.type.unwrap();
+  /** The number of formulas and equations each intern pool holds by default. */
+  public static final int DEFAULT_POOL_CAPACITY = 8192;
+
+  // Parsed formulas and equations, shared between callers and keyed by the string they came from
+  private static volatile BoundedCache<String, Formula> formulaPool =
+      newPool(DEFAULT_POOL_CAPACITY);
+  private static volatile BoundedCache<String, Equation> equationPool =
+      newPool(DEFAULT_POOL_CAPACITY);
+
+  // The kinds of element a formula contains, for determineBondType
+  private static final int CONTAINS_HYDROGEN = 1;
+  private static final int CONTAINS_METAL = 2;
+  private static final int CONTAINS_NONMETAL = 4;
+
+  // FormulaParser keeps state between calls, so every thread gets its own instance.
+  private static final ThreadLocal<FormulaParser> PARSER = new ThreadLocal<FormulaParser>() {
+    @Override
+    protected FormulaParser initialValue() {
+      return new FormulaParser();
+    }
+  };
 
 
   /**
@@ -46,126 +66,45 @@ public class FtHelper {
    * <li>If a formula contains a coefficient, it must be written within parenthesis, e.g. "(.5)O2"</li>
    * <li>Fractional coefficients must be input as decimals.</li>
    * </ol>
+   * The formula is scanned once by a {@link FormulaParser} owned by the calling thread.
+   * <p>
+   * Parsed formulas are interned: parsing the same string again returns the same Formula object,
+   * which is frozen and can't be modified (see {@link Formula#isFrozen()}). The pool holds a
+   * bounded number of formulas and drops the least recently used ones.
+   * </p>
    * 
    * @param formulaToParse a string such as "C6H12O6" to parse
-   * @return a Formula object representing formulaToParse
+   * @return a shared Formula object representing formulaToParse
+   * @throws IllegalArgumentException if the formula is malformed or contains an unknown element
    */
 
   public static Formula parseFormula(String formulaToParse) {
-    // Convert the string to an array of chars
-    char[] asCharArray = formulaToParse.toCharArray();
-
-    /************** COEFFICIENT **************/
-    // Starting character for search is '(', ending character is ')'
-    double coefficient = 1;
-
-    for (int index = 0; index < asCharArray.length; index++) {
-      // Is the element '('? If so, loop through until we find ')'
-      if (asCharArray[index] == '(') {
-        // Set the '(' to '/'
-        asCharArray[index] = '/';
-        String finalValue = "";
-        // Loop until we find ')'
-        int indexForWhile = index + 1;
-        while (asCharArray[indexForWhile] != ')') {
-          finalValue += Character.toString(asCharArray[indexForWhile]);
-          // Set the character to '/'
-          asCharArray[indexForWhile] = '/';
-          indexForWhile++;
-        }
-        // Since the current char is ')', set it to '/'
-        asCharArray[indexForWhile] = '/';
-        // Now that we've constructed a number, that's the coefficient.
-        coefficient = Double.parseDouble(finalValue);
-      }
-    }
-
-    /************** SUBSCRIPTS **************/
-
-    List<Integer> listOfSubscripts = new ArrayList<Integer>();
-
-    for (int index = 0; index < asCharArray.length; index++) {
-      // A pattern to compare the current char to.
-      String possibleDigits = "0123456789";
-      // The string that holds what will be an integer.
-      String finalValue = "";
-      // If the current character is an integer, then continue, otherwise, start the next iteration.
-      if (possibleDigits.indexOf(asCharArray[index]) != -1) {
-        // Since we are going to loop until we find a character that isn't an integer, the while
-        // loop requires is own index value.
-        int indexForWhile = index;
-        // This test is used so many times that I'll just test out here.
-        boolean currentCharIsAnInt = possibleDigits.indexOf(asCharArray[indexForWhile]) != -1;
-        // As long as the char on the current iteration is an integer, loop.
-        while (currentCharIsAnInt) {
-          // If this is the last index, add the int value to finalValue and then stop looping.
-          if (indexForWhile == asCharArray.length - 1) {
-            finalValue += asCharArray[indexForWhile];
-            asCharArray[indexForWhile] = '/';
-            break;
-          } else {
-            finalValue += Character.toString(asCharArray[indexForWhile]);
-            asCharArray[indexForWhile] = '/';
-            indexForWhile++;
-            // Since we just advanced the index, check if current char is an int again.
-            currentCharIsAnInt = possibleDigits.indexOf(asCharArray[indexForWhile]) != -1;
-          }
-        }
-        listOfSubscripts.add(Integer.parseInt(finalValue));
-      }
-    }
-
-    /************** ELEMENTS **************/
-
-    List<String> listOfElements = new ArrayList<String>();
-
-    for (int index = 0; index < asCharArray.length; index++) {
-      // If this is the last index, skip the two-letter symbol check
-      if (index == asCharArray.length - 1) {
-        if (asCharArray[index] != '/') {
-          // Concatenate the two characters then add to elements
-          listOfElements.add(Character.toString(asCharArray[index]));
-          // Discard element
-          asCharArray[index] = '/';
-        }
-      } else {
-        // If element has a two-letter symbol
-        if (asCharArray[index] != '/' && asCharArray[index + 1] != '/') {
-          // An input like CO will test true, so start a try/catch
-          boolean isSingleElement = false;
-          // Try getting the molar mass. If it doesn't exist, we know we have a single element, so
-          // set isSingleElement to true.
-          try {
-            String molarMassToGet = Character.toString(asCharArray[index]) + Character.toString(asCharArray[index + 1]); 
-            massList.get(molarMassToGet);
-          } catch (NullPointerException e) {
-            listOfElements.add(Character.toString(asCharArray[index]));
-            isSingleElement = true;
-          }
-          // If we have a single element, don't run this code
-          if (!isSingleElement) {
-            // Concatenate the two characters then add to parsedFormula
-            listOfElements.add(Character.toString(asCharArray[index])
-                + Character.toString(asCharArray[index + 1]));
-            // Discard the elements
-            asCharArray[index] = '/';
-            asCharArray[index + 1] = '/';
-          }
-        } else if (asCharArray[index] != '/') {
-          // Add to to parsedFormula
-          listOfElements.add(Character.toString(asCharArray[index]));
-          // Discard element
-          asCharArray[index] = '/';
-        }
-
+    long start = Metrics.start();
+    try {
+      BoundedCache<String, Formula> pool = formulaPool;
+      Formula pooledFormula = pool.get(formulaToParse);
+      if (pooledFormula != null) {
+        return pooledFormula;
       }
+      Formula parsedFormula = PARSER.get().parse(formulaToParse);
+      parsedFormula.freeze();
+      return pool.putIfAbsent(formulaToParse, parsedFormula);
+    } finally {
+      Metrics.PARSE_FORMULA.stop(start);
     }
+  }
 
-    /************** RETURN **************/
+  /**
+   * Parses a formula using the same rules as {@link FtHelper#parseFormula(String)}, but returns
+   * the compact {@link PackedFormula} representation instead.
+   * 
+   * @param formulaToParse a formula such as "C6H12O6" to parse
+   * @return a PackedFormula representing formulaToParse
+   * @throws IllegalArgumentException if the formula is malformed or contains an unknown element
+   */
 
-    Formula parsedFormula = new Formula(listOfElements, listOfSubscripts, coefficient);
-    // Return the Formula object
-    return parsedFormula;
+  public static PackedFormula parsePackedFormula(CharSequence formulaToParse) {
+    return PARSER.get().parsePacked(formulaToParse);
   }
 
   /**
@@ -174,33 +113,107 @@ public class FtHelper {
    * individual formulas using {@link FtHelper#parseFormula(String)}, so keep in mind that the
    * equation's parts must be syntactically compatible with it. <strong>In order for this method
    * function, the reactants and products must be separated by the sequence '---&gt;' exactly.</strong>
+   * <p>
+   * Like formulas, parsed equations are interned, frozen and shared.
+   * </p>
    * 
    * @param equationToParse a string containing the equation to parse
-   * @return an Equation object representing the given equation
+   * @return a shared Equation object representing the given equation
+   * @throws IllegalArgumentException if the equation is malformed, e.g. has a side or a species
+   *         with no elements
    */
 
   public static Equation parseEquation(String equationToParse) {
-    //Equation parsedEquation = new Equation(Double.NaN);
-    // Sample: H2 + (.5)O2 ---> H2O1
-    // Split the 2 sides of the equation
-    String[] splitEquation = equationToParse.split("--->");
-    // Now split into individual formulas (remove spaces so as not to confuse parseFormula)
-    String allReactants = splitEquation[0].replaceAll("\\s", "");
-    String allProducts = splitEquation[1].replaceAll("\\s", "");
-    String[] individualReactants = allReactants.split("\\+");
-    String[] individualProducts = allProducts.split("\\+");
-    // Now parse each reactant & product and put them into their respective list
-    List<Formula> reactants = new ArrayList<Formula>();
-    List<Formula> products = new ArrayList<Formula>();
-    for (String reactant : individualReactants) {
-      reactants.add(parseFormula(reactant));
-    }
-    for (String product : individualProducts) {
-      products.add(parseFormula(product));
+    long start = Metrics.start();
+    try {
+      BoundedCache<String, Equation> pool = equationPool;
+      Equation pooledEquation = pool.get(equationToParse);
+      if (pooledEquation != null) {
+        return pooledEquation;
+      }
+      //Equation parsedEquation = new Equation(Double.NaN);
+      // Sample: H2 + (.5)O2 ---> H2O1
+      // Split the 2 sides of the equation
+      String[] splitEquation = equationToParse.split("--->", -1);
+      if (splitEquation.length != 2) {
+        throw new IllegalArgumentException("Equation must have exactly one '--->': "
+            + equationToParse);
+      }
+      // Now split into individual formulas (remove spaces so as not to confuse parseFormula)
+      String allReactants = splitEquation[0].replaceAll("\\s", "");
+      String allProducts = splitEquation[1].replaceAll("\\s", "");
+      String[] individualReactants = allReactants.split("\\+", -1);
+      String[] individualProducts = allProducts.split("\\+", -1);
+      // Now scan each reactant & product straight into the arrays of the Equation
+      FormulaParser parser = PARSER.get();
+      int numOfSpecies = individualReactants.length + individualProducts.length;
+      byte[] atomicNumbers = new byte[numOfSpecies * 4];
+      int[] subscripts = new int[numOfSpecies * 4];
+      int[] offsets = new int[numOfSpecies + 1];
+      double[] coefficients = new double[numOfSpecies];
+      int size = 0;
+      for (int species = 0; species < numOfSpecies; species++) {
+        String formula = species < individualReactants.length ? individualReactants[species]
+            : individualProducts[species - individualReactants.length];
+        int formulaSize = parser.scan(formula, 0, formula.length());
+        if (formulaSize == 0) {
+          throw new IllegalArgumentException("Equation has an empty reactant or product: "
+              + equationToParse);
+        }
+        if (size + formulaSize > atomicNumbers.length) {
+          int capacity = Math.max(atomicNumbers.length * 2, size + formulaSize);
+          atomicNumbers = Arrays.copyOf(atomicNumbers, capacity);
+          subscripts = Arrays.copyOf(subscripts, capacity);
+        }
+        for (int index = 0; index < formulaSize; index++) {
+          atomicNumbers[size] = (byte) parser.atomicNumberAt(index);
+          subscripts[size] = parser.subscriptAt(index);
+          size++;
+        }
+        offsets[species + 1] = size;
+        coefficients[species] = parser.coefficient();
+      }
+      // Build the Equation object and return
+      Equation parsedEquation = new Equation(Arrays.copyOf(atomicNumbers, size),
+          Arrays.copyOf(subscripts, size), offsets, coefficients, individualReactants.length,
+          Double.NaN);
+      parsedEquation.freeze();
+      return pool.putIfAbsent(equationToParse, parsedEquation);
+    } finally {
+      Metrics.PARSE_EQUATION.stop(start);
     }
-    // Build the Equation object and return
-    Equation parsedEquation = new Equation(reactants, products, Double.NaN);
-    return parsedEquation;
+  }
+
+  /**
+   * Replaces the formula and equation intern pools with empty ones. A capacity of 0 turns
+   * interning off, though parsed objects are still frozen.
+   * 
+   * @param capacity the largest number of formulas, and of equations, to keep
+   */
+
+  public static void configureInternPools(int capacity) {
+    formulaPool = newPool(capacity);
+    equationPool = newPool(capacity);
+  }
+
+  /**
+   * Gets the pool of interned formulas, e.g. to read its hit and miss counters.
+   * 
+   * @return the formula intern pool
+   */
+
+  public static BoundedCache<String, Formula> getFormulaPool() {
+    return formulaPool;
+  }
+
+  /**
+   * Gets the pool of interned equations, e.g. to read its hit and miss counters.
+   * 
+   * @return the equation intern pool
+   */
+
+  public static BoundedCache<String, Equation> getEquationPool() {
+    return equationPool;
   }
   
   /**
@@ -208,9 +221,10 @@ public class FtHelper {
    * make up that formula. This following the logic employed:
    * <ul>
    *    <li>If the formula contains hydrogen and is only composed of 2 elements, the bond is a hydrogen bond.</li>
-   *    <li>If the formula contains metals and nonmetals, the bond is covalent.</li>
+   *    <li>If the formula contains metals and nonmetals, the bond is ionic.</li>
    *    <li>If the formula contains only metals, the bond is metallic.</li>
    *    <li>If the formula contains only nonmetals, the bond is covalent.</li>
+   *    <li>Metalloids are ignored, so a formula without metals is covalent.</li>
    * </ul>
    * 
    * @param formula the formula for which to determine the bond type
@@ -218,26 +232,65 @@ public class FtHelper {
    */
   
   public static String determineBondType(Formula formula) {
-    
     List<String> elements = formula.getElements();
-    List<String> elementTypes = new ArrayList<String>();
+    int types = 0;
     for (String element : elements) {
-      elementTypes.add(typeList.get(element));
+      int atomicNumber = PeriodicTable.atomicNumberOf(element);
+      if (atomicNumber == 0) {
+        throw new IllegalArgumentException("Unknown element: " + element);
+      }
+      types |= typeFlag(atomicNumber);
     }
-    String bondType = null;
-    if (elementTypes.contains("Hydrogen") && elements.size() <= 2) {
-      bondType = "hydrogen";
-      return bondType;
+    return bondType(types, elements.size());
+  }
+
+  /**
+   * Determines the bond type of a formula, following the same logic as
+   * {@link #determineBondType(Formula)}.
+   * 
+   * @param formula the formula for which to determine the bond type
+   * @return the bond type, as a String
+   * @since 0.8-alpha
+   */
+
+  public static String determineBondType(PackedFormula formula) {
+    int types = 0;
+    for (int index = 0; index < formula.size(); index++) {
+      types |= typeFlag(formula.atomicNumberAt(index));
     }
-    if (elementTypes.contains("Metal") && elementTypes.contains("Nonmetal")) {
-      bondType = "ionic";
-    } else if(elementTypes.contains("Metal") && !elementTypes.contains("Nonmetal")) {
-      bondType = "metallic";
-    } else if(elementTypes.contains("Nonmetal")&& !elementTypes.contains("Metal")) {
-      bondType = "covalent";
+    return bondType(types, formula.size());
+  }
+
+  /* UTILITY METHODS */
+
+  private static int typeFlag(int atomicNumber) {
+    switch (PeriodicTable.type(atomicNumber)) {
+      case HYDROGEN:
+        return CONTAINS_HYDROGEN;
+      case METAL:
+        return CONTAINS_METAL;
+      case NONMETAL:
+        return CONTAINS_NONMETAL;
+      default:
+        // Metalloids don't decide the bond type on their own
+        return 0;
     }
-    return bondType;
+  }
+
+  private static String bondType(int types, int numOfElements) {
+    if ((types & CONTAINS_HYDROGEN) != 0 && numOfElements <= 2) {
+      return "hydrogen";
+    }
+    if ((types & CONTAINS_METAL) != 0 && (types & CONTAINS_NONMETAL) != 0) {
+      return "ionic";
+    } else if ((types & CONTAINS_METAL) != 0) {
+      return "metallic";
+    }
+    return "covalent";
+  }
 
+  private static <V> BoundedCache<String, V> newPool(int capacity) {
+    return new BoundedCache<String, V>(capacity, BoundedCache.EvictionPolicy.LEAST_RECENTLY_USED);
   }
 
 }
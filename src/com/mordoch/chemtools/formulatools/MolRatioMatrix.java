@@ -0,0 +1,181 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.formulatools;
+
+/**
+ * An immutable table of the mol ratios between every pair of species in an {@link Equation}, along
+ * with the molar mass of each species. It is computed once per equation, by
+ * {@link Equation#molRatios()}, and after that every stoichiometry question is a lookup. Since
+ * nothing in it ever changes, any number of threads can read it at the same time without locking.
+ * <p>
+ * The ratio from species i to species j is the number of moles of j that react or form for every
+ * mole of i, i.e. the coefficient of j divided by the coefficient of i. Species are numbered from
+ * 0, reactants first, as in {@link Equation#coefficientAt(int)}. The full matrix is kept for
+ * equations of up to {@link #MAX_MATRIX_SPECIES} species, at most 2 KiB; the ratios of larger
+ * equations are divided out of the coefficients when asked for. Parsed equations are interned and
+ * keep their ratios, so this bounds what each pooled equation holds on to.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class MolRatioMatrix {
+
+  /** The largest number of species for which every ratio is computed in advance. */
+  public static final int MAX_MATRIX_SPECIES = 16;
+
+  private final int numOfReactants;
+  private final double[] coefficients;
+  private final double[] molarMasses;
+  // ratios[i][j] is coefficients[j] / coefficients[i], or null for large equations
+  private final double[][] ratios;
+
+  MolRatioMatrix(Equation equation) {
+    int numOfSpecies = equation.numOfSpecies();
+    numOfReactants = equation.numOfReactants();
+    coefficients = new double[numOfSpecies];
+    molarMasses = new double[numOfSpecies];
+    for (int species = 0; species < numOfSpecies; species++) {
+      coefficients[species] = equation.coefficientAt(species);
+      molarMasses[species] = equation.molarMassAt(species);
+    }
+    if (numOfSpecies <= MAX_MATRIX_SPECIES) {
+      ratios = new double[numOfSpecies][numOfSpecies];
+      for (int from = 0; from < numOfSpecies; from++) {
+        for (int to = 0; to < numOfSpecies; to++) {
+          ratios[from][to] = coefficients[to] / coefficients[from];
+        }
+      }
+    } else {
+      ratios = null;
+    }
+  }
+
+  /**
+   * Gets the number of species, reactants and products together.
+   *
+   * @return the number of species
+   */
+
+  public int numOfSpecies() {
+    return coefficients.length;
+  }
+
+  /**
+   * Gets the number of reactants.
+   *
+   * @return the number of reactants
+   */
+
+  public int numOfReactants() {
+    return numOfReactants;
+  }
+
+  /**
+   * Gets the mol ratio between two species.
+   *
+   * @param fromSpecies the index of the species whose moles are known
+   * @param toSpecies the index of the species whose moles are wanted
+   * @return the moles of toSpecies per mole of fromSpecies
+   * @throws IndexOutOfBoundsException if either index is not that of a species
+   */
+
+  public double ratio(int fromSpecies, int toSpecies) {
+    if (ratios != null) {
+      return ratios[fromSpecies][toSpecies];
+    }
+    return coefficients[toSpecies] / coefficients[fromSpecies];
+  }
+
+  /**
+   * Gets the mol ratio between a reactant and a product.
+   *
+   * @param reactant the index (starting at 0) of the reactant
+   * @param product the index (starting at 0) of the product
+   * @return the moles of the product formed per mole of the reactant
+   * @throws IndexOutOfBoundsException if there is no such reactant or product
+   */
+
+  public double productPerReactant(int reactant, int product) {
+    return ratio(reactantSpecies(reactant), productSpecies(product));
+  }
+
+  /**
+   * Gets the molar mass of one unit of a species, ignoring its coefficient.
+   *
+   * @param species the index of the species
+   * @return the molar mass of the species, in g/mol
+   */
+
+  public double molarMass(int species) {
+    return molarMasses[species];
+  }
+
+  /**
+   * Computes the theoretical yield of a product, given the mass of the limiting reactant.
+   *
+   * @param gramsOfReactant amount of reactant available to react, in grams
+   * @param reactant the index (starting at 0) of the limiting reactant
+   * @param product the index (starting at 0) of the product
+   * @return theoretical yield of the product, in grams
+   * @throws IndexOutOfBoundsException if there is no such reactant or product
+   */
+
+  public double theoreticalYield(double gramsOfReactant, int reactant, int product) {
+    int from = reactantSpecies(reactant);
+    int to = productSpecies(product);
+    double molesOfReactant = gramsOfReactant / molarMasses[from];
+    return molesOfReactant * ratio(from, to) * molarMasses[to];
+  }
+
+  /**
+   * Computes the percent yield of a product, given its actual yield and the mass of the limiting
+   * reactant.
+   *
+   * @param actualYield actual yield of the product, in grams
+   * @param gramsOfReactant amount of reactant available to react, in grams
+   * @param reactant the index (starting at 0) of the limiting reactant
+   * @param product the index (starting at 0) of the product
+   * @return percent yield of the product, as a fraction
+   * @throws IndexOutOfBoundsException if there is no such reactant or product
+   */
+
+  public double percentYield(double actualYield, double gramsOfReactant, int reactant,
+      int product) {
+    return actualYield / theoreticalYield(gramsOfReactant, reactant, product);
+  }
+
+  /* UTILITY METHODS */
+
+  private int reactantSpecies(int reactant) {
+    return checkIndex(reactant, numOfReactants);
+  }
+
+  private int productSpecies(int product) {
+    return numOfReactants + checkIndex(product, coefficients.length - numOfReactants);
+  }
+
+  private static int checkIndex(int index, int length) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length "
+          + length);
+    }
+    return index;
+  }
+}
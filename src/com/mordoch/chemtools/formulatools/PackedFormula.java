@@ -0,0 +1,311 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ *
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.formulatools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
+
+/**
+ * A compact, immutable representation of a chemical formula. Rather than Lists of symbols and
+ * boxed subscripts, a PackedFormula holds two parallel arrays: the atomic numbers of its elements
+ * and the number of atoms of each. The elements are sorted by atomic number and each element
+ * appears once, so "H1O1H1" and "H2O1" are equal. The hash code is computed when the object is
+ * built, which makes PackedFormula cheap to use as a Map key.
+ * <p>
+ * A PackedFormula can be converted to and from a {@link Formula} with {@link #of(Formula)} and
+ * {@link #toFormula()}.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class PackedFormula {
+
+  private final byte[] atomicNumbers;
+  private final int[] counts;
+  private final double coefficient;
+  private final int hash;
+
+  // The arrays must already be sorted and merged; they are not copied.
+  private PackedFormula(byte[] atomicNumbers, int[] counts, double coefficient) {
+    this.atomicNumbers = atomicNumbers;
+    this.counts = counts;
+    this.coefficient = coefficient;
+    int h = Arrays.hashCode(atomicNumbers);
+    h = 31 * h + Arrays.hashCode(counts);
+    long bits = Double.doubleToLongBits(coefficient);
+    this.hash = 31 * h + (int) (bits ^ (bits >>> 32));
+  }
+
+  /**
+   * Builds a PackedFormula from a Formula.
+   *
+   * @param formula the formula to pack
+   * @return a PackedFormula representing the same formula
+   * @throws IllegalArgumentException if the formula contains an unknown element
+   */
+
+  public static PackedFormula of(Formula formula) {
+    List<String> elements = formula.getElements();
+    List<Integer> subscripts = formula.getSubscripts();
+    int size = elements.size();
+    int[] elementNumbers = new int[size];
+    int[] elementCounts = new int[size];
+    for (int index = 0; index < size; index++) {
+      int atomicNumber = PeriodicTable.atomicNumberOf(elements.get(index));
+      if (atomicNumber == 0) {
+        throw new IllegalArgumentException("Unknown element: " + elements.get(index));
+      }
+      elementNumbers[index] = atomicNumber;
+      elementCounts[index] = subscripts.get(index);
+    }
+    return of(elementNumbers, elementCounts, size, formula.getCoefficient());
+  }
+
+  /**
+   * Parses a formula, using the grammar of {@link FtHelper#parseFormula(String)}, directly into a
+   * PackedFormula.
+   *
+   * @param formula the formula to parse, e.g. "C6H12O6"
+   * @return a PackedFormula representing the given formula
+   * @throws IllegalArgumentException if the formula is malformed or contains an unknown element
+   */
+
+  public static PackedFormula parse(CharSequence formula) {
+    return FtHelper.parsePackedFormula(formula);
+  }
+
+  /**
+   * Builds a PackedFormula from the tokens of a parser's last scan.
+   *
+   * @param parser a parser that has scanned a formula
+   * @return a PackedFormula representing the scanned formula
+   */
+
+  public static PackedFormula of(FormulaParser parser) {
+    int size = parser.size();
+    int[] elementNumbers = new int[size];
+    int[] elementCounts = new int[size];
+    for (int index = 0; index < size; index++) {
+      elementNumbers[index] = parser.atomicNumberAt(index);
+      elementCounts[index] = parser.subscriptAt(index);
+    }
+    return of(elementNumbers, elementCounts, size, parser.coefficient());
+  }
+
+  /**
+   * Builds a PackedFormula from parallel arrays of atomic numbers and counts. The arrays may be in
+   * any order and may repeat elements; neither array is modified or kept.
+   *
+   * @param atomicNumbers the atomic numbers of the elements
+   * @param counts the number of atoms of each element
+   * @param size the number of entries to read from both arrays
+   * @param coefficient the coefficient of the formula
+   * @return a PackedFormula representing the given elements
+   * @throws IllegalArgumentException if an atomic number is not in the periodic table or a count
+   *         is negative
+   */
+
+  public static PackedFormula of(int[] atomicNumbers, int[] counts, int size, double coefficient) {
+    for (int index = 0; index < size; index++) {
+      if (!PeriodicTable.contains(atomicNumbers[index])) {
+        throw new IllegalArgumentException("Unknown atomic number: " + atomicNumbers[index]);
+      }
+      if (counts[index] < 0) {
+        throw new IllegalArgumentException("Negative count of "
+            + PeriodicTable.symbol(atomicNumbers[index]) + ": " + counts[index]);
+      }
+    }
+    int[] sortedNumbers = Arrays.copyOf(atomicNumbers, size);
+    int[] sortedCounts = Arrays.copyOf(counts, size);
+    // Formulas are short, so an insertion sort is the quickest way to order them.
+    for (int index = 1; index < size; index++) {
+      int number = sortedNumbers[index];
+      int count = sortedCounts[index];
+      int position = index - 1;
+      while (position >= 0 && sortedNumbers[position] > number) {
+        sortedNumbers[position + 1] = sortedNumbers[position];
+        sortedCounts[position + 1] = sortedCounts[position];
+        position--;
+      }
+      sortedNumbers[position + 1] = number;
+      sortedCounts[position + 1] = count;
+    }
+    // Merge repeated elements
+    int unique = 0;
+    for (int index = 0; index < size; index++) {
+      if (unique > 0 && sortedNumbers[unique - 1] == sortedNumbers[index]) {
+        sortedCounts[unique - 1] = Math.addExact(sortedCounts[unique - 1], sortedCounts[index]);
+      } else {
+        sortedNumbers[unique] = sortedNumbers[index];
+        sortedCounts[unique] = sortedCounts[index];
+        unique++;
+      }
+    }
+    byte[] packedNumbers = new byte[unique];
+    for (int index = 0; index < unique; index++) {
+      packedNumbers[index] = (byte) sortedNumbers[index];
+    }
+    return new PackedFormula(packedNumbers, Arrays.copyOf(sortedCounts, unique), coefficient);
+  }
+
+  /**
+   * Converts this PackedFormula into a Formula. The elements of the Formula are in order of
+   * atomic number.
+   *
+   * @return a Formula representing this formula
+   */
+
+  public Formula toFormula() {
+    List<String> elements = new ArrayList<String>(atomicNumbers.length);
+    List<Integer> subscripts = new ArrayList<Integer>(atomicNumbers.length);
+    for (int index = 0; index < atomicNumbers.length; index++) {
+      elements.add(PeriodicTable.symbol(atomicNumbers[index]));
+      subscripts.add(counts[index]);
+    }
+    return new Formula(elements, subscripts, coefficient);
+  }
+
+  /**
+   * Gets the number of distinct elements in the formula.
+   *
+   * @return the number of distinct elements
+   */
+
+  public int size() {
+    return atomicNumbers.length;
+  }
+
+  /**
+   * Gets the atomic number of the element at an index. Elements are in order of atomic number.
+   *
+   * @param index the index of the element
+   * @return the atomic number of the element
+   */
+
+  public int atomicNumberAt(int index) {
+    return atomicNumbers[index];
+  }
+
+  /**
+   * Gets the number of atoms of the element at an index.
+   *
+   * @param index the index of the element
+   * @return the number of atoms of that element
+   */
+
+  public int countAt(int index) {
+    return counts[index];
+  }
+
+  /**
+   * Gets the number of atoms of an element in the formula.
+   *
+   * @param atomicNumber the atomic number of the element
+   * @return the number of atoms of that element, or 0 if the formula does not contain it
+   */
+
+  public int countOf(int atomicNumber) {
+    // The elements are sorted, so stop as soon as we pass the one we're looking for.
+    for (int index = 0; index < atomicNumbers.length && atomicNumbers[index] <= atomicNumber;
+        index++) {
+      if (atomicNumbers[index] == atomicNumber) {
+        return counts[index];
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Gets the total number of atoms in one unit of the formula, ignoring the coefficient.
+   *
+   * @return the number of atoms
+   */
+
+  public long atomCount() {
+    long total = 0;
+    for (int count : counts) {
+      total += count;
+    }
+    return total;
+  }
+
+  /**
+   * Gets the coefficient of the formula.
+   *
+   * @return the coefficient
+   */
+
+  public double coefficient() {
+    return coefficient;
+  }
+
+  /**
+   * Returns a PackedFormula with the same elements and a different coefficient.
+   *
+   * @param newCoefficient the coefficient of the new formula
+   * @return a PackedFormula with the given coefficient
+   */
+
+  public PackedFormula withCoefficient(double newCoefficient) {
+    if (newCoefficient == coefficient) {
+      return this;
+    }
+    return new PackedFormula(atomicNumbers, counts, newCoefficient);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof PackedFormula)) {
+      return false;
+    }
+    PackedFormula that = (PackedFormula) other;
+    return hash == that.hash
+        && Double.doubleToLongBits(coefficient) == Double.doubleToLongBits(that.coefficient)
+        && Arrays.equals(atomicNumbers, that.atomicNumbers) && Arrays.equals(counts, that.counts);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  /**
+   * Returns the string representation of the formula in the same form as
+   * {@link Formula#toString()}, e.g. "H2O1".
+   */
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(atomicNumbers.length * 4);
+    if (coefficient != 1) {
+      builder.append('(').append(coefficient).append(')');
+    }
+    for (int index = 0; index < atomicNumbers.length; index++) {
+      builder.append(PeriodicTable.symbol(atomicNumbers[index])).append(counts[index]);
+    }
+    return builder.toString();
+  }
+}
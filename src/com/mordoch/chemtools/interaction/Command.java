@@ -0,0 +1,230 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.interaction;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mordoch.chemtools.formulatools.Equation;
+import com.mordoch.chemtools.formulatools.EquationBalancer;
+import com.mordoch.chemtools.formulatools.Formula;
+import com.mordoch.chemtools.formulatools.FtHelper;
+import com.mordoch.chemtools.util.Analysis;
+import com.mordoch.chemtools.util.Stoichiometry;
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
+
+/**
+ * The operations offered to scripts and services by {@link CommandLine} and {@link HttpService}.
+ * Each takes one or more named fields as Strings, e.g. a formula, and produces named results in
+ * the order they are printed. All of them are safe to run from several threads at once.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+enum Command {
+
+  MOLAR_MASS("molar-mass", "formula") {
+    @Override
+    void compute(String[] fields, Map<String, Object> result) {
+      result.put("molarMass", Analysis.computeMolarMass(fields[0]));
+    }
+  },
+
+  PERCENT_COMPOSITION("percent-comp", "formula") {
+    @Override
+    void compute(String[] fields, Map<String, Object> result) {
+      Formula formula = FtHelper.parseFormula(fields[0]);
+      double[] percents = Analysis.computePercentComposition(fields[0]);
+      // An element may appear more than once in a formula; report it once.
+      Map<String, Double> composition = new LinkedHashMap<String, Double>();
+      List<String> elements = formula.getElements();
+      for (int index = 0; index < percents.length; index++) {
+        Double previous = composition.get(elements.get(index));
+        composition.put(elements.get(index),
+            previous == null ? percents[index] : previous + percents[index]);
+      }
+      result.put("percentComposition", composition);
+    }
+  },
+
+  EMPIRICAL("empirical", "formula") {
+    @Override
+    void compute(String[] fields, Map<String, Object> result) {
+      result.put("empirical", Analysis.empiricalFromMolecular(fields[0]).toString());
+    }
+  },
+
+  MOLECULAR("molecular", "empirical", "molarMass") {
+    @Override
+    void compute(String[] fields, Map<String, Object> result) {
+      double molarMass = Double.parseDouble(fields[1]);
+      result.put("molarMass", molarMass);
+      result.put("molecular", Analysis.molecularFromEmpirical(fields[0], molarMass).toString());
+    }
+  },
+
+  YIELD("yield", "equation", "grams", "reactant", "product") {
+    @Override
+    void compute(String[] fields, Map<String, Object> result) {
+      double grams = Double.parseDouble(fields[1]);
+      int reactant = Integer.parseInt(fields[2]);
+      int product = Integer.parseInt(fields[3]);
+      if (!fields[0].contains("--->")) {
+        throw new IllegalArgumentException("Equation has no '--->': " + fields[0]);
+      }
+      Equation equation = FtHelper.parseEquation(fields[0]);
+      // The indexes start at 1, as they do in the menu.
+      if (reactant < 1 || reactant > equation.numOfReactants()) {
+        throw new IllegalArgumentException("No reactant " + reactant + "; the equation has "
+            + equation.numOfReactants());
+      }
+      if (product < 1 || product > equation.numOfProducts()) {
+        throw new IllegalArgumentException("No product " + product + "; the equation has "
+            + equation.numOfProducts());
+      }
+      result.put("grams", grams);
+      result.put("reactant", reactant);
+      result.put("product", product);
+      result.put("theoreticalYield",
+          Stoichiometry.theoreticalYield(equation, grams, reactant, product));
+    }
+  },
+
+  BALANCE("balance", "equation") {
+    @Override
+    void compute(String[] fields, Map<String, Object> result) {
+      result.put("balanced", BALANCERS.get().balanceToString(fields[0]));
+    }
+  },
+
+  ELEMENT("element", "symbol") {
+    @Override
+    void compute(String[] fields, Map<String, Object> result) {
+      int atomicNumber = PeriodicTable.atomicNumberOf(fields[0]);
+      if (atomicNumber == 0) {
+        throw new IllegalArgumentException("Unknown element: " + fields[0]);
+      }
+      int charge = PeriodicTable.charge(atomicNumber);
+      result.put("name", PeriodicTable.name(atomicNumber));
+      result.put("atomicNumber", atomicNumber);
+      result.put("mass", PeriodicTable.mass(atomicNumber));
+      result.put("charge", charge == PeriodicTable.UNKNOWN_CHARGE ? null : charge);
+      result.put("type", PeriodicTable.type(atomicNumber).toString());
+      result.put("family", PeriodicTable.family(atomicNumber).toString());
+    }
+  };
+
+  // Balancers keep state between calls, so every thread gets its own.
+  private static final ThreadLocal<EquationBalancer> BALANCERS =
+      new ThreadLocal<EquationBalancer>() {
+        @Override
+        protected EquationBalancer initialValue() {
+          return new EquationBalancer();
+        }
+      };
+
+  private final String name;
+  private final String[] fieldNames;
+
+  private Command(String name, String... fieldNames) {
+    this.name = name;
+    this.fieldNames = fieldNames;
+  }
+
+  /**
+   * Finds the command with a given name.
+   * 
+   * @param name the name of the command, e.g. "molar-mass"
+   * @return the command, or null if there is none with that name
+   */
+
+  static Command find(String name) {
+    for (Command command : values()) {
+      if (command.name.equals(name)) {
+        return command;
+      }
+    }
+    return null;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the names of the fields of an input. The first one identifies the input, e.g. "formula".
+   * 
+   * @return the names of the fields; the array is shared and must not be modified
+   */
+
+  String[] getFieldNames() {
+    return fieldNames;
+  }
+
+  /**
+   * Computes the results for one input and puts them in a Map, in the order they are printed.
+   * 
+   * @param fields the fields of the input, as many as there are field names
+   * @param result where to put the results
+   * @throws IllegalArgumentException if the input is malformed or refers to a reactant or
+   *         product that doesn't exist
+   */
+
+  abstract void compute(String[] fields, Map<String, Object> result);
+
+  /**
+   * Computes the results for one input, catching the errors caused by bad input.
+   * 
+   * @param fields the fields of the input
+   * @param result where to put the results
+   * @return null if the results were computed, otherwise a message describing the problem
+   */
+
+  String execute(String[] fields, Map<String, Object> result) {
+    try {
+      compute(fields, result);
+      return null;
+    } catch (IllegalArgumentException e) {
+      return e.getMessage();
+    }
+  }
+
+  /**
+   * Writes the outcome of {@link #execute(String[], Map)} as a JSON object: the first field of the
+   * input, followed by either the results or an "error" member.
+   * 
+   * @param fields the fields of the input
+   * @param result the results
+   * @param error the error message, or null if there was none
+   * @param writer where to write the object
+   */
+
+  void writeJson(String[] fields, Map<String, Object> result, String error, JsonWriter writer) {
+    writer.beginObject().name(fieldNames[0]).value(fields[0]);
+    if (error == null) {
+      for (Map.Entry<String, Object> entry : result.entrySet()) {
+        writer.name(entry.getKey()).value(entry.getValue());
+      }
+    } else {
+      writer.name("error").value(error);
+    }
+    writer.endObject();
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.interaction;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * A non-interactive command-line interface for scripts. Each subcommand takes its inputs as
+ * arguments, or reads them from standard input one per line when no arguments are given, and
+ * writes one line per input:
+ * <ul>
+ * <li><code>molar-mass &lt;formula&gt;...</code></li>
+ * <li><code>percent-comp &lt;formula&gt;...</code></li>
+ * <li><code>empirical &lt;formula&gt;...</code></li>
+ * <li><code>yield &lt;equation&gt; &lt;grams&gt; &lt;reactant&gt; &lt;product&gt;...</code>; on
+ * standard input the four fields of a line are separated by tabs.</li>
+ * <li><code>molecular &lt;empirical formula&gt; &lt;molar mass&gt;...</code></li>
+ * <li><code>balance &lt;equation&gt;...</code></li>
+ * <li><code>element &lt;symbol&gt;...</code></li>
+ * </ul>
+ * The output is tab-separated: the input followed by the results. With <code>--json</code>, each
+ * line is a JSON object instead. An input that can't be processed gets "NaN" (or an "error" member
+ * in JSON), so the output always has one line per input.
+ * <p>
+ * Unlike {@link Menu}, nothing is printed but the results, and nothing waits on the user.
+ * </p>
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class CommandLine {
+
+  /** Exit status when every input was processed. */
+  public static final int SUCCESS = 0;
+  /** Exit status when at least one input could not be processed. */
+  public static final int INPUT_ERROR = 1;
+  /** Exit status when the command line itself is wrong. */
+  public static final int USAGE_ERROR = 2;
+
+  private CommandLine() {}
+
+  /**
+   * Checks whether a command-line argument names a subcommand.
+   * 
+   * @param argument the first command-line argument
+   * @return true if {@link #run(String[], InputStream, PrintStream, PrintStream)} handles it
+   */
+
+  public static boolean isCommand(String argument) {
+    return argument.equals("help") || argument.equals("--help") || Command.find(argument) != null;
+  }
+
+  /**
+   * Runs a subcommand.
+   * 
+   * @param args the command-line arguments, beginning with the name of the subcommand
+   * @param in where to read inputs from when none are given as arguments
+   * @param out where to write the results
+   * @param err where to write error messages
+   * @return the exit status: {@link #SUCCESS}, {@link #INPUT_ERROR} or {@link #USAGE_ERROR}
+   */
+
+  public static int run(String[] args, InputStream in, PrintStream out, PrintStream err) {
+    if (args.length == 0 || args[0].equals("help") || args[0].equals("--help")) {
+      usage(args.length == 0 ? err : out);
+      return args.length == 0 ? USAGE_ERROR : SUCCESS;
+    }
+    Command command = Command.find(args[0]);
+    if (command == null) {
+      err.println("Unknown command: " + args[0]);
+      usage(err);
+      return USAGE_ERROR;
+    }
+    boolean json = false;
+    List<String> arguments = new ArrayList<String>();
+    for (int index = 1; index < args.length; index++) {
+      if (args[index].equals("--json")) {
+        json = true;
+      } else {
+        arguments.add(args[index]);
+      }
+    }
+    int arity = command.getFieldNames().length;
+    if (arguments.size() % arity != 0) {
+      err.println("Usage: " + usageOf(command));
+      return USAGE_ERROR;
+    }
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+        1 << 16);
+    StringBuilder line = new StringBuilder();
+    int errors = 0;
+    try {
+      if (!arguments.isEmpty()) {
+        for (int index = 0; index < arguments.size(); index += arity) {
+          String[] fields = arguments.subList(index, index + arity).toArray(new String[arity]);
+          errors += process(command, fields, json, line, err);
+          writer.append(line);
+        }
+      } else {
+        BufferedReader reader =
+            new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        String inputLine;
+        while ((inputLine = reader.readLine()) != null) {
+          inputLine = inputLine.trim();
+          if (inputLine.isEmpty()) {
+            continue;
+          }
+          String[] fields = arity == 1 ? new String[] {inputLine} : inputLine.split("\t");
+          if (fields.length != arity) {
+            fields = pad(fields, arity);
+          }
+          errors += process(command, fields, json, line, err);
+          writer.append(line);
+          // Only flush once the input that has arrived is used up, so that a script feeding
+          // one line at a time gets its answer but large inputs are written in large blocks.
+          if (!reader.ready()) {
+            writer.flush();
+          }
+        }
+      }
+      writer.flush();
+    } catch (IOException e) {
+      err.println("I/O error: " + e.getMessage());
+      return INPUT_ERROR;
+    }
+    return errors == 0 ? SUCCESS : INPUT_ERROR;
+  }
+
+  /* UTILITY METHODS */
+
+  // Processes one input into a line of output; returns the number of errors (0 or 1).
+  private static int process(Command command, String[] fields, boolean json, StringBuilder line,
+      PrintStream err) {
+    line.setLength(0);
+    Map<String, Object> result = new LinkedHashMap<String, Object>();
+    String error = command.execute(fields, result);
+    if (json) {
+      command.writeJson(fields, result, error, new JsonWriter(line));
+    } else {
+      line.append(fields[0]);
+      if (error == null) {
+        for (Object value : result.values()) {
+          line.append('\t');
+          appendTabSeparated(value, line);
+        }
+      } else {
+        line.append("\tNaN");
+        err.println(fields[0] + ": " + error);
+      }
+    }
+    line.append('\n');
+    return error == null ? 0 : 1;
+  }
+
+  // Maps, such as a percent composition, are written as "key:value" pairs separated by ';'.
+  private static void appendTabSeparated(Object value, StringBuilder line) {
+    if (value instanceof Map) {
+      boolean first = true;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        if (!first) {
+          line.append(';');
+        }
+        line.append(entry.getKey()).append(':').append(entry.getValue());
+        first = false;
+      }
+    } else if (value != null) {
+      line.append(value);
+    }
+  }
+
+  // A line with missing fields is still processed, so that it gets its line of output.
+  private static String[] pad(String[] fields, int arity) {
+    String[] padded = new String[arity];
+    for (int index = 0; index < arity; index++) {
+      padded[index] = index < fields.length ? fields[index] : "";
+    }
+    return padded;
+  }
+
+  private static String usageOf(Command command) {
+    StringBuilder usage = new StringBuilder(command.getName()).append(" [--json]");
+    for (String fieldName : command.getFieldNames()) {
+      usage.append(" <").append(fieldName).append('>');
+    }
+    return usage.append("...").toString();
+  }
+
+  private static void usage(PrintStream stream) {
+    stream.println("Usage: <command> [--json] [inputs...]");
+    stream.println("Inputs are read from standard input, one per line, when none are given.");
+    stream.println("Commands:");
+    for (Command command : Command.values()) {
+      stream.println("  " + usageOf(command));
+    }
+    stream.println("  --batch <operation> <input file> <output file> [--threads <n>]");
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.interaction;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A long-running process that runs {@link CommandLine} subcommands sent by {@link DaemonClient}
+ * over a Unix domain socket. The daemon loads the element tables and warms up the compiler before
+ * it starts listening, so each command costs about as much as the computation itself instead of
+ * the startup of a JVM.
+ * <p>
+ * The socket file is only accessible to the user who started the daemon, and it is deleted when
+ * the daemon is closed.
+ * </p>
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class Daemon implements Closeable {
+
+  private static final int WARM_UP_ROUNDS = 2000;
+
+  private final Path socketPath;
+  private final ServerSocketChannel server;
+  private final ExecutorService executor;
+
+  /**
+   * Creates a daemon listening on a socket file. A socket file left behind by a daemon that is no
+   * longer running is replaced.
+   * 
+   * @param socketPath the path of the socket file
+   * @throws IOException if the socket can't be created, e.g. because a daemon is already running
+   */
+
+  public Daemon(Path socketPath) throws IOException {
+    this.socketPath = socketPath;
+    if (Files.exists(socketPath)) {
+      if (isRunning(socketPath)) {
+        throw new IOException("A daemon is already listening on " + socketPath);
+      }
+      Files.delete(socketPath);
+    }
+    server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    server.bind(UnixDomainSocketAddress.of(socketPath));
+    try {
+      Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+    } catch (UnsupportedOperationException e) {
+      // Not a POSIX file system; the socket keeps the default permissions.
+    }
+    executor = RequestExecutors.newExecutor();
+  }
+
+  /**
+   * Gets the socket file used when none is given: "chem-tools-&lt;user&gt;.sock" in the temporary
+   * directory.
+   * 
+   * @return the default path of the socket file
+   */
+
+  public static Path defaultSocketPath() {
+    return Paths.get(System.getProperty("java.io.tmpdir"),
+        "chem-tools-" + System.getProperty("user.name") + ".sock");
+  }
+
+  /**
+   * Runs every subcommand on sample inputs, so that the element tables are loaded and the hot
+   * code is compiled before the first real request.
+   */
+
+  public static void warmUp() {
+    String[][] samples = {{"molar-mass", "C6H12O6", "Xx"}, {"percent-comp", "CH3COOH"},
+        {"empirical", "C6H12O6"}, {"molecular", "CH2O", "180.156"},
+        {"yield", "C3H8 + (5)O2 ---> (3)CO2 + (4)H2O", "100", "1", "1"},
+        {"balance", "C3H8 + O2 ---> CO2 + H2O"}, {"element", "Fe"}};
+    PrintStream sink = new PrintStream(new ByteArrayOutputStream());
+    InputStream noInput = new ByteArrayInputStream(new byte[0]);
+    for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+      for (String[] sample : samples) {
+        CommandLine.run(sample, noInput, sink, sink);
+        CommandLine.run(new String[] {sample[0], "--json", sample[1]}, noInput, sink, sink);
+      }
+    }
+  }
+
+  /**
+   * Accepts connections until the daemon is closed. Each connection is handled on its own thread.
+   * 
+   * @throws IOException if accepting a connection fails for a reason other than the daemon being
+   *         closed
+   */
+
+  public void serve() throws IOException {
+    while (true) {
+      final SocketChannel channel;
+      try {
+        channel = server.accept();
+      } catch (ClosedChannelException e) {
+        return;
+      }
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          handle(channel);
+        }
+      });
+    }
+  }
+
+  /**
+   * Stops accepting connections and deletes the socket file. Commands in progress are finished.
+   */
+
+  @Override
+  public void close() throws IOException {
+    server.close();
+    executor.shutdown();
+    Files.deleteIfExists(socketPath);
+  }
+
+  /* UTILITY METHODS */
+
+  private static boolean isRunning(Path socketPath) {
+    try {
+      SocketChannel.open(UnixDomainSocketAddress.of(socketPath)).close();
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static void handle(SocketChannel channel) {
+    try (SocketChannel connection = channel) {
+      FramedChannel frames = new FramedChannel(connection);
+      if (frames.read() != FramedChannel.ARGUMENTS) {
+        return;
+      }
+      String[] args = decodeArguments(frames.payload(), frames.payloadLength());
+      PrintStream out = new PrintStream(
+          new BufferedOutputStream(frames.newOutputStream(FramedChannel.OUTPUT), 1 << 16), false,
+          "UTF-8");
+      PrintStream err = new PrintStream(
+          new BufferedOutputStream(frames.newOutputStream(FramedChannel.ERROR_OUTPUT), 8192),
+          true, "UTF-8");
+      int status;
+      try {
+        status = CommandLine.run(args, new FramedInputStream(frames), out, err);
+      } catch (RuntimeException e) {
+        // A bug in one command must not leave the client without an exit status.
+        err.println("Internal error: " + e);
+        status = CommandLine.INPUT_ERROR;
+      }
+      out.flush();
+      err.flush();
+      frames.writeInt(FramedChannel.EXIT, status);
+    } catch (IOException e) {
+      // The client went away; there is nobody left to tell.
+    }
+  }
+
+  private static String[] decodeArguments(byte[] payload, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(payload, 0, length);
+    String[] args = new String[buffer.getInt()];
+    for (int index = 0; index < args.length; index++) {
+      int argumentLength = buffer.getInt();
+      args[index] = new String(payload, buffer.position(), argumentLength, StandardCharsets.UTF_8);
+      buffer.position(buffer.position() + argumentLength);
+    }
+    return args;
+  }
+
+  // Standard input of the client, asked for the first time it is read.
+  private static final class FramedInputStream extends InputStream {
+
+    private final FramedChannel frames;
+    private boolean requested;
+    private boolean ended;
+    private int position;
+
+    FramedInputStream(FramedChannel frames) {
+      this.frames = frames;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] data, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (!requested) {
+        frames.write(FramedChannel.INPUT_REQUEST);
+        requested = true;
+        // The payload still holds the arguments; skip it.
+        position = frames.payloadLength();
+      }
+      while (!ended && position == frames.payloadLength()) {
+        byte type = frames.read();
+        position = 0;
+        if (type == FramedChannel.END_OF_INPUT) {
+          ended = true;
+        } else if (type != FramedChannel.INPUT) {
+          throw new IOException("Unexpected frame: " + (char) type);
+        }
+      }
+      if (ended) {
+        return -1;
+      }
+      int count = Math.min(length, frames.payloadLength() - position);
+      System.arraycopy(frames.payload(), position, data, offset, count);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return requested && !ended ? frames.payloadLength() - position : 0;
+    }
+  }
+}
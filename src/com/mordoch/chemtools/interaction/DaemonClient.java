@@ -0,0 +1,141 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.interaction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Sends a {@link CommandLine} subcommand to a running {@link Daemon} and prints what it answers.
+ * The output, error output and exit status are exactly those the command line would have
+ * produced, and standard input is forwarded only if the command reads it. If no daemon is
+ * listening, the command is run in this process instead.
+ * <p>
+ * Usage: <code>DaemonClient [--socket &lt;path&gt;] &lt;command&gt; [arguments...]</code>
+ * </p>
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class DaemonClient {
+
+  private DaemonClient() {}
+
+  public static void main(String[] args) {
+    Path socketPath = Daemon.defaultSocketPath();
+    if (args.length >= 2 && args[0].equals("--socket")) {
+      socketPath = Path.of(args[1]);
+      String[] remaining = new String[args.length - 2];
+      System.arraycopy(args, 2, remaining, 0, remaining.length);
+      args = remaining;
+    }
+    System.exit(run(socketPath, args, System.in, System.out, System.err));
+  }
+
+  /**
+   * Runs a subcommand on the daemon listening on a socket, or in this process if there is none.
+   * 
+   * @param socketPath the socket file of the daemon
+   * @param args the command-line arguments, beginning with the name of the subcommand
+   * @param in the standard input to forward if the command reads it
+   * @param out where to write the output
+   * @param err where to write the error output
+   * @return the exit status of the command
+   */
+
+  public static int run(Path socketPath, String[] args, InputStream in, PrintStream out,
+      PrintStream err) {
+    SocketChannel channel;
+    try {
+      channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+    } catch (IOException e) {
+      return CommandLine.run(args, in, out, err);
+    }
+    try (SocketChannel connection = channel) {
+      FramedChannel frames = new FramedChannel(connection);
+      byte[] arguments = encodeArguments(args);
+      frames.write(FramedChannel.ARGUMENTS, arguments, 0, arguments.length);
+      while (true) {
+        byte type = frames.read();
+        switch (type) {
+          case FramedChannel.OUTPUT:
+            out.write(frames.payload(), 0, frames.payloadLength());
+            out.flush();
+            break;
+          case FramedChannel.ERROR_OUTPUT:
+            err.write(frames.payload(), 0, frames.payloadLength());
+            err.flush();
+            break;
+          case FramedChannel.INPUT_REQUEST:
+            forwardInput(in, frames);
+            break;
+          case FramedChannel.EXIT:
+            return frames.payloadInt();
+          default:
+            throw new IOException("Unexpected frame: " + (char) type);
+        }
+      }
+    } catch (IOException e) {
+      err.println("Lost the connection to the daemon: " + e.getMessage());
+      return CommandLine.INPUT_ERROR;
+    }
+  }
+
+  /* UTILITY METHODS */
+
+  private static byte[] encodeArguments(String[] args) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(bytes);
+    data.writeInt(args.length);
+    for (String argument : args) {
+      byte[] encoded = argument.getBytes(StandardCharsets.UTF_8);
+      data.writeInt(encoded.length);
+      data.write(encoded);
+    }
+    return bytes.toByteArray();
+  }
+
+  // Input is forwarded on its own thread, so that output keeps flowing back while it is sent.
+  private static void forwardInput(final InputStream in, final FramedChannel frames) {
+    Thread forwarder = new Thread("stdin forwarder") {
+      @Override
+      public void run() {
+        byte[] buffer = new byte[1 << 16];
+        try {
+          int read;
+          while ((read = in.read(buffer)) != -1) {
+            frames.write(FramedChannel.INPUT, buffer, 0, read);
+          }
+          frames.write(FramedChannel.END_OF_INPUT);
+        } catch (IOException e) {
+          // The connection is gone; the main thread will notice.
+        }
+      }
+    };
+    forwarder.setDaemon(true);
+    forwarder.start();
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.interaction;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * The framed protocol spoken between {@link DaemonClient} and {@link Daemon}. Every frame is a
+ * type byte, the length of the payload as a big-endian int, and the payload.
+ * <ol>
+ * <li>The client sends {@link #ARGUMENTS}: the number of arguments, then each as a length and UTF-8
+ * bytes.</li>
+ * <li>The daemon runs the command and sends {@link #OUTPUT} and {@link #ERROR_OUTPUT} frames as it
+ * goes.</li>
+ * <li>If the command reads standard input, the daemon first sends {@link #INPUT_REQUEST}, and the
+ * client answers with {@link #INPUT} frames followed by an empty {@link #END_OF_INPUT} frame. A
+ * client never reads its standard input unless asked, just as the command line wouldn't.</li>
+ * <li>Finally the daemon sends {@link #EXIT} with the exit status as its payload and closes the
+ * connection.</li>
+ * </ol>
+ * Frames can be written from several threads at once, but only one thread may read.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+final class FramedChannel {
+
+  static final byte ARGUMENTS = 'A';
+  static final byte INPUT_REQUEST = 'N';
+  static final byte INPUT = 'I';
+  static final byte END_OF_INPUT = 'E';
+  static final byte OUTPUT = 'O';
+  static final byte ERROR_OUTPUT = 'R';
+  static final byte EXIT = 'X';
+
+  private static final int HEADER_SIZE = 5;
+  private static final int MAX_PAYLOAD_SIZE = 16 << 20;
+  private static final byte[] EMPTY = new byte[0];
+
+  private final SocketChannel channel;
+  private final ByteBuffer readHeader = ByteBuffer.allocate(HEADER_SIZE);
+  private final ByteBuffer writeHeader = ByteBuffer.allocate(HEADER_SIZE);
+  private byte[] payload = new byte[8192];
+  private int payloadLength;
+
+  FramedChannel(SocketChannel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * Writes a frame.
+   * 
+   * @param type the type of the frame
+   * @param data the array holding the payload
+   * @param offset the index of the payload in the array
+   * @param length the length of the payload
+   * @throws IOException if the frame can't be written
+   */
+
+  synchronized void write(byte type, byte[] data, int offset, int length) throws IOException {
+    writeHeader.clear();
+    writeHeader.put(type).putInt(length).flip();
+    ByteBuffer[] frame = {writeHeader, ByteBuffer.wrap(data, offset, length)};
+    while (frame[1].hasRemaining() || writeHeader.hasRemaining()) {
+      channel.write(frame);
+    }
+  }
+
+  void write(byte type) throws IOException {
+    write(type, EMPTY, 0, 0);
+  }
+
+  void writeInt(byte type, int value) throws IOException {
+    write(type, ByteBuffer.allocate(4).putInt(value).array(), 0, 4);
+  }
+
+  /**
+   * Reads the next frame. Its payload can be read with {@link #payload()} and
+   * {@link #payloadLength()} until the next call.
+   * 
+   * @return the type of the frame
+   * @throws EOFException if the connection is closed before a whole frame was read
+   * @throws IOException if the frame can't be read or is too large
+   */
+
+  byte read() throws IOException {
+    readHeader.clear();
+    readFully(readHeader);
+    byte type = readHeader.get(0);
+    int length = readHeader.getInt(1);
+    if (length < 0 || length > MAX_PAYLOAD_SIZE) {
+      throw new IOException("Bad frame length: " + length);
+    }
+    if (length > payload.length) {
+      payload = new byte[Math.max(length, payload.length * 2)];
+    }
+    readFully(ByteBuffer.wrap(payload, 0, length));
+    payloadLength = length;
+    return type;
+  }
+
+  byte[] payload() {
+    return payload;
+  }
+
+  int payloadLength() {
+    return payloadLength;
+  }
+
+  int payloadInt() {
+    return ByteBuffer.wrap(payload, 0, payloadLength).getInt();
+  }
+
+  /**
+   * Creates an OutputStream that writes every chunk it is given as a frame. The stream does not
+   * buffer, so it should be wrapped in a buffered stream or writer.
+   * 
+   * @param type the type of the frames
+   * @return the stream
+   */
+
+  OutputStream newOutputStream(final byte type) {
+    return new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] data, int offset, int length) throws IOException {
+        if (length > 0) {
+          FramedChannel.this.write(type, data, offset, length);
+        }
+      }
+    };
+  }
+
+  /* UTILITY METHODS */
+
+  private void readFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new EOFException("Connection closed in the middle of a frame");
+      }
+    }
+  }
+}
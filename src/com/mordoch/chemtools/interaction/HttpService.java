@@ -0,0 +1,289 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.interaction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP service offering the same operations as {@link CommandLine}. Every operation has
+ * an endpoint named after its subcommand, e.g. <code>/molar-mass</code>, which accepts:
+ * <ul>
+ * <li><code>GET</code> with the fields as query parameters, e.g.
+ * <code>/molar-mass?formula=H2O</code>, answered with one JSON object;</li>
+ * <li><code>POST</code> of a JSON object with the fields as members, answered with one JSON
+ * object;</li>
+ * <li><code>POST</code> of a JSON array of such objects, answered with an array of results in the
+ * same order. Elements of the array may also be strings, which are taken as the first field, so
+ * <code>["H2O", "CO2"]</code> can be posted to <code>/molar-mass</code>.</li>
+ * </ul>
+ * The results are the same objects <code>--json</code> prints on the command line, including an
+ * "error" member for inputs that can't be processed. A request that isn't valid JSON gets status
+ * 400. <code>/health</code> answers <code>{"status":"ok"}</code>.
+ * <p>
+ * Requests are handled on virtual threads when the Java runtime has them; see
+ * {@link RequestExecutors}.
+ * </p>
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class HttpService {
+
+  public static final int DEFAULT_PORT = 8080;
+
+  // Enough for hundreds of thousands of formulas in one batch
+  private static final int MAX_BODY_SIZE = 64 << 20;
+  private static final int BACKLOG = 1024;
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  static {
+    // Without TCP_NODELAY, every small response on a kept-alive connection waits for the
+    // client's delayed ACK, which limits each connection to a few dozen requests per second. The
+    // server reads this property once, when the first server is created.
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+  }
+
+  /**
+   * Creates a service listening on an address. The service does not answer requests until it is
+   * started.
+   * 
+   * @param address the address and port to listen on
+   * @throws IOException if the address can't be bound
+   */
+
+  public HttpService(InetSocketAddress address) throws IOException {
+    server = HttpServer.create(address, BACKLOG);
+    executor = RequestExecutors.newExecutor();
+    server.setExecutor(executor);
+    for (Command command : Command.values()) {
+      server.createContext("/" + command.getName(), new CommandHandler(command));
+    }
+    server.createContext("/health", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, "{\"status\":\"ok\"}");
+      }
+    });
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        respondWithError(exchange, 404, "No such endpoint: " + exchange.getRequestURI().getPath());
+      }
+    });
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Stops the service, waiting up to a given time for requests in progress to finish.
+   * 
+   * @param delay the longest time to wait, in seconds
+   */
+
+  public void stop(int delay) {
+    server.stop(delay);
+    executor.shutdown();
+  }
+
+  /**
+   * Gets the address the service is listening on. This tells the port when the service was created
+   * with port 0.
+   * 
+   * @return the address of the service
+   */
+
+  public InetSocketAddress getAddress() {
+    return server.getAddress();
+  }
+
+  /**
+   * Tells whether requests are handled on virtual threads.
+   * 
+   * @return true if this Java runtime has virtual threads
+   */
+
+  public static boolean usesVirtualThreads() {
+    return RequestExecutors.usesVirtualThreads();
+  }
+
+  /* UTILITY METHODS */
+
+  private static final class CommandHandler implements HttpHandler {
+
+    private final Command command;
+
+    CommandHandler(Command command) {
+      this.command = command;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      try {
+        String path = exchange.getRequestURI().getPath();
+        if (!path.equals("/" + command.getName())) {
+          respondWithError(exchange, 404, "No such endpoint: " + path);
+          return;
+        }
+        Object request;
+        String method = exchange.getRequestMethod();
+        if (method.equals("GET")) {
+          request = parseQuery(exchange.getRequestURI().getRawQuery());
+        } else if (method.equals("POST")) {
+          String body = readBody(exchange.getRequestBody());
+          if (body == null) {
+            respondWithError(exchange, 413, "Request body is larger than " + MAX_BODY_SIZE);
+            return;
+          }
+          request = JsonReader.parse(body);
+        } else {
+          exchange.getResponseHeaders().set("Allow", "GET, POST");
+          respondWithError(exchange, 405, "Method not allowed: " + method);
+          return;
+        }
+        StringBuilder response = new StringBuilder();
+        JsonWriter writer = new JsonWriter(response);
+        if (request instanceof List) {
+          List<?> inputs = (List<?>) request;
+          response.ensureCapacity(inputs.size() * 48);
+          writer.beginArray();
+          for (Object input : inputs) {
+            processInput(input, writer);
+          }
+          writer.endArray();
+        } else if (request instanceof Map) {
+          processInput(request, writer);
+        } else {
+          respondWithError(exchange, 400, "Expected a JSON object or array");
+          return;
+        }
+        respond(exchange, 200, response);
+      } catch (IllegalArgumentException e) {
+        respondWithError(exchange, 400, e.getMessage());
+      } catch (RuntimeException e) {
+        // A bug must not drop the connection without a response.
+        respondWithError(exchange, 500, "Internal error: " + e);
+      }
+    }
+
+    private void processInput(Object input, JsonWriter writer) {
+      String[] fieldNames = command.getFieldNames();
+      String[] fields = new String[fieldNames.length];
+      Map<String, Object> result = new LinkedHashMap<String, Object>();
+      String error = null;
+      if (input instanceof Map) {
+        Map<?, ?> object = (Map<?, ?>) input;
+        for (int index = 0; index < fieldNames.length; index++) {
+          fields[index] = toField(object.get(fieldNames[index]));
+          if (fields[index] == null && error == null) {
+            error = "Missing field: " + fieldNames[index];
+          }
+        }
+      } else if (input instanceof String && fieldNames.length == 1) {
+        fields[0] = (String) input;
+      } else {
+        error = "Expected an object with the fields " + String.join(", ", fieldNames);
+      }
+      if (error == null) {
+        error = command.execute(fields, result);
+      }
+      command.writeJson(fields, result, error, writer);
+    }
+  }
+
+  // Numbers are passed on as they would be written on the command line, so 1.0 becomes "1".
+  private static String toField(Object value) {
+    if (value instanceof Double) {
+      double number = (Double) value;
+      if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+        return String.valueOf((long) number);
+      }
+    }
+    return value == null ? null : value.toString();
+  }
+
+  private static Map<String, Object> parseQuery(String query) {
+    Map<String, Object> parameters = new LinkedHashMap<String, Object>();
+    if (query == null) {
+      return parameters;
+    }
+    for (String parameter : query.split("&")) {
+      int equals = parameter.indexOf('=');
+      if (equals > 0) {
+        parameters.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+            URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+      }
+    }
+    return parameters;
+  }
+
+  // Returns null if the body is too large.
+  private static String readBody(InputStream body) throws IOException {
+    byte[] buffer = new byte[8192];
+    int length = 0;
+    int read;
+    while ((read = body.read(buffer, length, buffer.length - length)) != -1) {
+      length += read;
+      if (length == buffer.length) {
+        if (length >= MAX_BODY_SIZE) {
+          return null;
+        }
+        byte[] larger = new byte[Math.min(length * 2, MAX_BODY_SIZE)];
+        System.arraycopy(buffer, 0, larger, 0, length);
+        buffer = larger;
+      }
+    }
+    return new String(buffer, 0, length, StandardCharsets.UTF_8);
+  }
+
+  private static void respondWithError(HttpExchange exchange, int status, String message)
+      throws IOException {
+    StringBuilder response = new StringBuilder();
+    new JsonWriter(response).beginObject().name("error").value(message).endObject();
+    respond(exchange, status, response);
+  }
+
+  private static void respond(HttpExchange exchange, int status, CharSequence json)
+      throws IOException {
+    byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    OutputStream out = exchange.getResponseBody();
+    out.write(bytes);
+    out.close();
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.interaction;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A small JSON parser. Objects become LinkedHashMaps, arrays become ArrayLists, numbers become
+ * Longs (or Doubles if they have a fraction, an exponent or don't fit in a long), and strings,
+ * booleans and null become what one would expect.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class JsonReader {
+
+  // Deeper documents are rejected rather than risking a StackOverflowError.
+  private static final int MAX_DEPTH = 256;
+
+  private final CharSequence text;
+  private int position;
+
+  private JsonReader(CharSequence text) {
+    this.text = text;
+  }
+
+  /**
+   * Parses a JSON document.
+   * 
+   * @param text the JSON text
+   * @return the value the document represents
+   * @throws IllegalArgumentException if the text is not valid JSON
+   */
+
+  public static Object parse(CharSequence text) {
+    JsonReader reader = new JsonReader(text);
+    Object value = reader.readValue(0);
+    reader.skipWhitespace();
+    if (reader.position != text.length()) {
+      throw reader.error("Unexpected text after the document");
+    }
+    return value;
+  }
+
+  /* UTILITY METHODS */
+
+  private Object readValue(int depth) {
+    if (depth > MAX_DEPTH) {
+      throw error("Document is nested too deeply");
+    }
+    skipWhitespace();
+    if (position == text.length()) {
+      throw error("Unexpected end of document");
+    }
+    char current = text.charAt(position);
+    switch (current) {
+      case '{':
+        return readObject(depth);
+      case '[':
+        return readArray(depth);
+      case '"':
+        return readString();
+      case 't':
+        expect("true");
+        return Boolean.TRUE;
+      case 'f':
+        expect("false");
+        return Boolean.FALSE;
+      case 'n':
+        expect("null");
+        return null;
+      default:
+        if (current == '-' || (current >= '0' && current <= '9')) {
+          return readNumber();
+        }
+        throw error("Unexpected character '" + current + "'");
+    }
+  }
+
+  private Map<String, Object> readObject(int depth) {
+    Map<String, Object> object = new LinkedHashMap<String, Object>();
+    position++;
+    skipWhitespace();
+    if (peek() == '}') {
+      position++;
+      return object;
+    }
+    while (true) {
+      skipWhitespace();
+      if (peek() != '"') {
+        throw error("Expected the name of a member");
+      }
+      String name = readString();
+      skipWhitespace();
+      if (peek() != ':') {
+        throw error("Expected ':'");
+      }
+      position++;
+      object.put(name, readValue(depth + 1));
+      skipWhitespace();
+      char next = peek();
+      position++;
+      if (next == '}') {
+        return object;
+      } else if (next != ',') {
+        throw error("Expected ',' or '}'");
+      }
+    }
+  }
+
+  private List<Object> readArray(int depth) {
+    List<Object> array = new ArrayList<Object>();
+    position++;
+    skipWhitespace();
+    if (peek() == ']') {
+      position++;
+      return array;
+    }
+    while (true) {
+      array.add(readValue(depth + 1));
+      skipWhitespace();
+      char next = peek();
+      position++;
+      if (next == ']') {
+        return array;
+      } else if (next != ',') {
+        throw error("Expected ',' or ']'");
+      }
+    }
+  }
+
+  private String readString() {
+    // Skip the opening quote
+    position++;
+    StringBuilder string = null;
+    int runStart = position;
+    while (true) {
+      if (position >= text.length()) {
+        throw error("Unterminated string");
+      }
+      char current = text.charAt(position);
+      if (current == '"') {
+        String run = text.subSequence(runStart, position).toString();
+        position++;
+        return string == null ? run : string.append(run).toString();
+      } else if (current == '\\') {
+        if (string == null) {
+          string = new StringBuilder();
+        }
+        string.append(text, runStart, position);
+        position++;
+        string.append(readEscape());
+        runStart = position;
+      } else if (current < ' ') {
+        throw error("Control character in string");
+      } else {
+        position++;
+      }
+    }
+  }
+
+  private char readEscape() {
+    char escaped = peek();
+    position++;
+    switch (escaped) {
+      case '"':
+      case '\\':
+      case '/':
+        return escaped;
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u':
+        if (position + 4 > text.length()) {
+          throw error("Malformed unicode escape");
+        }
+        int code = 0;
+        for (int index = 0; index < 4; index++) {
+          int digit = Character.digit(text.charAt(position++), 16);
+          if (digit < 0) {
+            throw error("Malformed unicode escape");
+          }
+          code = code * 16 + digit;
+        }
+        return (char) code;
+      default:
+        throw error("Unknown escape '\\" + escaped + "'");
+    }
+  }
+
+  private Number readNumber() {
+    int start = position;
+    boolean integral = true;
+    if (peek() == '-') {
+      position++;
+    }
+    while (position < text.length()) {
+      char current = text.charAt(position);
+      if (current == '.' || current == 'e' || current == 'E' || current == '+'
+          || (current == '-' && position > start)) {
+        integral = false;
+      } else if (current < '0' || current > '9') {
+        break;
+      }
+      position++;
+    }
+    String number = text.subSequence(start, position).toString();
+    try {
+      if (integral) {
+        try {
+          return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+          // Too large for a long
+        }
+      }
+      return Double.parseDouble(number);
+    } catch (NumberFormatException e) {
+      throw error("Malformed number " + number);
+    }
+  }
+
+  private void expect(String literal) {
+    for (int index = 0; index < literal.length(); index++) {
+      if (peek() != literal.charAt(index)) {
+        throw error("Expected " + literal);
+      }
+      position++;
+    }
+  }
+
+  private char peek() {
+    if (position >= text.length()) {
+      throw error("Unexpected end of document");
+    }
+    return text.charAt(position);
+  }
+
+  private void skipWhitespace() {
+    while (position < text.length()) {
+      char current = text.charAt(position);
+      if (current != ' ' && current != '\t' && current != '\n' && current != '\r') {
+        return;
+      }
+      position++;
+    }
+  }
+
+  private IllegalArgumentException error(String problem) {
+    return new IllegalArgumentException(problem + " at position " + position + " of JSON");
+  }
+}
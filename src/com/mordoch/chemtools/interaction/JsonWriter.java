@@ -0,0 +1,216 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.interaction;
+
+import java.util.Map;
+
+/**
+ * A small streaming JSON writer. Values are appended to a StringBuilder as they are written, and
+ * commas are inserted automatically. Doubles that JSON can't represent (NaN and the infinities)
+ * are written as null.
+ * <p>
+ * The writer does not check that its output is well-formed; calls must be balanced by the caller.
+ * </p>
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class JsonWriter {
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final StringBuilder out;
+  private boolean needsComma;
+
+  /**
+   * Creates a writer that appends to a StringBuilder.
+   * 
+   * @param out where to write the JSON text
+   */
+
+  public JsonWriter(StringBuilder out) {
+    this.out = out;
+  }
+
+  public JsonWriter beginObject() {
+    separate();
+    out.append('{');
+    needsComma = false;
+    return this;
+  }
+
+  public JsonWriter endObject() {
+    out.append('}');
+    needsComma = true;
+    return this;
+  }
+
+  public JsonWriter beginArray() {
+    separate();
+    out.append('[');
+    needsComma = false;
+    return this;
+  }
+
+  public JsonWriter endArray() {
+    out.append(']');
+    needsComma = true;
+    return this;
+  }
+
+  /**
+   * Writes the name of the next member of an object.
+   * 
+   * @param name the name of the member
+   * @return this writer
+   */
+
+  public JsonWriter name(String name) {
+    separate();
+    quote(name);
+    out.append(':');
+    needsComma = false;
+    return this;
+  }
+
+  public JsonWriter value(String value) {
+    if (value == null) {
+      return nullValue();
+    }
+    separate();
+    quote(value);
+    needsComma = true;
+    return this;
+  }
+
+  public JsonWriter value(double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      return nullValue();
+    }
+    separate();
+    out.append(value);
+    needsComma = true;
+    return this;
+  }
+
+  public JsonWriter value(long value) {
+    separate();
+    out.append(value);
+    needsComma = true;
+    return this;
+  }
+
+  public JsonWriter value(boolean value) {
+    separate();
+    out.append(value);
+    needsComma = true;
+    return this;
+  }
+
+  public JsonWriter nullValue() {
+    separate();
+    out.append("null");
+    needsComma = true;
+    return this;
+  }
+
+  /**
+   * Writes a value of any of the types JSON can represent: null, a String, a Number, a Boolean, a
+   * Map with String keys, an Iterable or a double[]. Maps and Iterables are written recursively.
+   * 
+   * @param value the value to write
+   * @return this writer
+   * @throws IllegalArgumentException if the value, or anything within it, has another type
+   */
+
+  public JsonWriter value(Object value) {
+    if (value == null) {
+      nullValue();
+    } else if (value instanceof String) {
+      value((String) value);
+    } else if (value instanceof Double || value instanceof Float) {
+      value(((Number) value).doubleValue());
+    } else if (value instanceof Number) {
+      value(((Number) value).longValue());
+    } else if (value instanceof Boolean) {
+      value(((Boolean) value).booleanValue());
+    } else if (value instanceof Map) {
+      beginObject();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        name(String.valueOf(entry.getKey()));
+        value(entry.getValue());
+      }
+      endObject();
+    } else if (value instanceof Iterable) {
+      beginArray();
+      for (Object element : (Iterable<?>) value) {
+        value(element);
+      }
+      endArray();
+    } else if (value instanceof double[]) {
+      beginArray();
+      for (double element : (double[]) value) {
+        value(element);
+      }
+      endArray();
+    } else {
+      throw new IllegalArgumentException("Can't write a " + value.getClass().getName() + " as JSON");
+    }
+    return this;
+  }
+
+  /* UTILITY METHODS */
+
+  private void separate() {
+    if (needsComma) {
+      out.append(',');
+    }
+  }
+
+  private void quote(String text) {
+    out.append('"');
+    for (int index = 0; index < text.length(); index++) {
+      char current = text.charAt(index);
+      switch (current) {
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          if (current < ' ') {
+            out.append("\\u00").append(HEX_DIGITS[current >> 4]).append(HEX_DIGITS[current & 0xf]);
+          } else {
+            out.append(current);
+          }
+      }
+    }
+    out.append('"');
+  }
+}
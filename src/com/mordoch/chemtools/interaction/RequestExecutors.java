@@ -0,0 +1,77 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.interaction;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executors that {@link HttpService} and {@link Daemon} handle requests on. Requests
+ * run on virtual threads when the Java runtime has them (Java 21 and later) and on a fixed pool of
+ * platform threads otherwise.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+final class RequestExecutors {
+
+  private RequestExecutors() {}
+
+  /**
+   * Creates an executor with a thread per request if possible, or a fixed pool otherwise.
+   * 
+   * @return a new executor
+   */
+
+  static ExecutorService newExecutor() {
+    Method factory = virtualThreadFactory();
+    if (factory != null) {
+      try {
+        return (ExecutorService) factory.invoke(null);
+      } catch (ReflectiveOperationException e) {
+        // e.g. a preview feature that isn't enabled; use platform threads instead.
+      }
+    }
+    // The work is CPU-bound, so more threads than cores would only queue up on the CPU. A few
+    // extra threads cover the time spent on I/O.
+    return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+  }
+
+  /**
+   * Tells whether {@link #newExecutor()} will run requests on virtual threads.
+   * 
+   * @return true if this Java runtime has virtual threads
+   */
+
+  static boolean usesVirtualThreads() {
+    return virtualThreadFactory() != null;
+  }
+
+  /* UTILITY METHODS */
+
+  // Looked up reflectively so that the program still builds and runs on Java 17.
+  private static Method virtualThreadFactory() {
+    try {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util;
+
+/**
+ * Units of amount of substance: moles, their metric fractions, and single particles (atoms or
+ * molecules).
+ * <p>
+ * Conversions are described by {@link PhysicalUnit}, e.g.
+ * {@code AmountUnit.MOLE.convert(value, AmountUnit.PARTICLE)}.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public enum AmountUnit implements PhysicalUnit<AmountUnit> {
+
+  MOLE("mol", 0),
+  MILLIMOLE("mmol", -3),
+  MICROMOLE("umol", -6),
+  NANOMOLE("nmol", -9),
+  PARTICLE("particles", 0, 1 / Constants.AVOGADROS_NUMBER, Constants.AVOGADROS_NUMBER);
+
+  private static final UnitTable TABLE;
+
+  static {
+    AmountUnit[] values = values();
+    UnitTable.Unit[] units = new UnitTable.Unit[values.length];
+    for (int index = 0; index < values.length; index++) {
+      units[index] = values[index].unit;
+    }
+    TABLE = new UnitTable("amount of substance", units);
+  }
+
+  private final UnitTable.Unit unit;
+
+  private AmountUnit(String symbol, int exponent) {
+    unit = new UnitTable.Unit(symbol, exponent);
+  }
+
+  private AmountUnit(String symbol, int exponent, double scale, double inverse) {
+    unit = new UnitTable.Unit(symbol, exponent, scale, inverse);
+  }
+
+  @Override
+  public String getSymbol() {
+    return unit.symbol;
+  }
+
+  /**
+   * Finds a unit by its symbol.
+   *
+   * @param symbol the symbol of the unit, e.g. "mmol"
+   * @return the unit with that symbol
+   * @throws IllegalArgumentException if no unit has that symbol
+   */
+
+  public static AmountUnit fromSymbol(String symbol) {
+    return values()[TABLE.indexOf(symbol)];
+  }
+
+  @Override
+  public double factorTo(AmountUnit to) {
+    return TABLE.factor(ordinal(), to.ordinal());
+  }
+}
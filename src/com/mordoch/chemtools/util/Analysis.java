@@ -18,13 +18,15 @@ package com.mordoch.chemtools.util;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import com.mordoch.chemtools.Main;
 import com.mordoch.chemtools.formulatools.Equation;
 import com.mordoch.chemtools.formulatools.Formula;
 import com.mordoch.chemtools.formulatools.FtHelper;
-import com.mordoch.chemtools.util.elementinfo.ElementInfo;
+import com.mordoch.chemtools.formulatools.PackedFormula;
+import com.mordoch.chemtools.util.elementinfo.IsotopeTable;
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
+import com.mordoch.chemtools.util.metrics.Metrics;
 
 /**
  * This class contains tools for analysis, i.e. finding empirical formula given percent composition.
@@ -37,17 +39,63 @@ import com.mordoch.chemtools.util.elementinfo.ElementInfo;
 
 public class Analysis {
 
-  private static Map<String, Double> mass = ElementInfo.mass.unwrap();
+  /** The number of molar masses cached by {@link #computeMolarMass(String)} by default. */
+  public static final int DEFAULT_MOLAR_MASS_CACHE_CAPACITY = 4096;
+
+  private static volatile BoundedCache<String, Double> molarMassCache =
+      new BoundedCache<String, Double>(DEFAULT_MOLAR_MASS_CACHE_CAPACITY,
+          BoundedCache.EvictionPolicy.LEAST_RECENTLY_USED);
+
+  private static final EmpiricalFormulaSolver EMPIRICAL_SOLVER = new EmpiricalFormulaSolver();
+
+  // IsotopeCalculator caches element distributions and is not thread-safe, so one per thread
+  private static final ThreadLocal<IsotopeCalculator> ISOTOPE_CALCULATOR =
+      new ThreadLocal<IsotopeCalculator>() {
+        @Override
+        protected IsotopeCalculator initialValue() {
+          return new IsotopeCalculator();
+        }
+      };
+
+  /**
+   * Finds the empirical formula of a compound with any number of elements from its percent
+   * composition. The mole ratios are multiplied by the smallest whole number that makes them all
+   * close to whole numbers, so a ratio such as 1 : 1.5 gives 2 : 3 rather than being rounded.
+   * 
+   * @param elements the symbols, i.e. "H", of the elements in the compound
+   * @param percents the percent by mass of each element
+   * @return the empirical formula, with the elements in the order given
+   * @throws IllegalArgumentException if an element is unknown or a percent is negative
+   * @see EmpiricalFormulaSolver
+   * @since 0.8-alpha
+   */
+
+  public static Formula empiricalFromPercentComposition(String[] elements, double[] percents) {
+    return EMPIRICAL_SOLVER.solve(elements, percents);
+  }
+
+  /**
+   * Finds the empirical formula of a compound with any number of elements from the mass of each
+   * element in a sample.
+   * 
+   * @param elements the symbols, i.e. "H", of the elements in the compound
+   * @param masses the mass of each element in the sample
+   * @return the empirical formula, with the elements in the order given
+   * @throws IllegalArgumentException if an element is unknown or a mass is negative
+   * @see EmpiricalFormulaSolver
+   * @since 0.8-alpha
+   */
+
+  public static Formula empiricalFromMass(String[] elements, double[] masses) {
+    // Only the proportions matter, so masses work exactly like percents.
+    return EMPIRICAL_SOLVER.solve(elements, masses);
+  }
 
   /**
    * This method takes 3 percents and 3 elements and finds the empirical formula for a compound
    * containing those elements (the molar masses of each element are found automatically. The user
    * must provide the element's symbol, i.e. "H").
-   * <p>
-   * <b> Note that this method does not check whether one of the normalized subscripts are decimals.
-   * </b>
-   * </p>
-   * <em>An additional method of the same name can find the empirical formula of a compound with two elements rather than three.</em>
+   * <em>An additional method of the same name can find the empirical formula of a compound with any number of elements.</em>
    * 
    * @param percent1 the percent of element 1 in compound X
    * @param percent2 the percent of a second element in compound X
@@ -55,80 +103,40 @@ public class Analysis {
    * @param element1 the symbol, i.e. "H", of the element corresponding to percent1
    * @param element2 the symbol, i.e. "H", of the element corresponding to percent2
    * @param element3 the symbol, i.e. "H", of the element corresponding to percent3
-   * @return empirical formula <b>without correction for decimal subscripts</b>.
+   * @return empirical formula
    * @since 0.1
    */
 
   public static Formula empiricalFromPercentComposition(double percent1, double percent2,
       double percent3, String element1, String element2, String element3) {
-    // First find the mols of each element then find which one is smallest.
-    double element1Mols = percent1 / mass.get(element1);
-    double element2Mols = percent2 / mass.get(element2);
-    double element3Mols = percent3 / mass.get(element3);
-    double normalize = Math.min(element1Mols, Math.min(element2Mols, element3Mols));
-    // Now normalize the formula.
-    double element1Normal = element1Mols / normalize;
-    double element2Normal = element2Mols / normalize;
-    double element3Normal = element3Mols / normalize;
-    // Now construct and return the completed formula.
-    List<String> elements = new ArrayList<String>();
-    elements.add(element1);
-    elements.add(element2);
-    elements.add(element3);
-    List<Integer> subscripts = new ArrayList<Integer>();
-    subscripts.add((int) Math.round(element1Normal));
-    subscripts.add((int) Math.round(element2Normal));
-    subscripts.add((int) Math.round(element3Normal));
-    Formula empiricalFormula = new Formula(elements, subscripts, 1);
-    return empiricalFormula;
+    return empiricalFromPercentComposition(new String[] {element1, element2, element3},
+        new double[] {percent1, percent2, percent3});
   }
 
   /**
    * This method takes 2 percents and 2 elements and finds the empirical formula for a compound
    * containing those elements (the molar masses of each element are found automatically. The user
    * must provide the element's symbol, i.e. "H").
-   * <p>
-   * <b> Note that this method does not check whether one of the normalized subscripts are decimals.
-   * </b>
-   * </p>
-   * <em>An additional method of the same name can find the empirical formula of a compound with three elements rather than two.</em>
+   * <em>An additional method of the same name can find the empirical formula of a compound with any number of elements.</em>
    * 
    * @param percent1 the percent of element 1 in compound X
    * @param percent2 the percent of a second element in compound X
    * @param element1 the symbol, i.e. "H", of the element corresponding to percent1
    * @param element2 the symbol, i.e. "H", of the element corresponding to percent2
-   * @return empirical formula <b>without correction for decimal subscripts</b>.
+   * @return empirical formula
    * @since 0.2
    */
 
   public static Formula empiricalFromPercentComposition(double percent1, double percent2,
       String element1, String element2) {
-    // First find the mols of each element then find which one is smallest.
-    double element1Mols = percent1 / mass.get(element1);
-    double element2Mols = percent2 / mass.get(element2);
-    double normalize = Math.min(element1Mols, element2Mols);
-    // Now normalize the formula.
-    final double element1Normal = element1Mols / normalize;
-    final double element2Normal = element2Mols / normalize;
-    // Now construct the formula and return.
-    List<Integer> subscripts = new ArrayList<Integer>();
-    subscripts.add((int) Math.round(element1Normal));
-    subscripts.add((int) Math.round(element2Normal));
-    List<String> elements = new ArrayList<String>();
-    elements.add(element1);
-    elements.add(element2);
-    Formula empiricalFormula = new Formula(elements, subscripts, 1.0);
-    return empiricalFormula;
+    return empiricalFromPercentComposition(new String[] {element1, element2},
+        new double[] {percent1, percent2});
   }
 
   /**
    * This method takes the total mass of a compound and its three elements and determines the
-   * empirical formula of that compound. Employs the empiricalFromPercentComposition method to work.
-   * <p>
-   * <b> Note that this method does not check whether one of the normalized subscripts are decimals.
-   * </b>
-   * </p>
-   * <em>An additional method of the same name can find the empirical formula of a compound with two elements rather than three.</em>
+   * empirical formula of that compound.
+   * <em>An additional method of the same name can find the empirical formula of a compound with any number of elements.</em>
    * 
    * @param mass1 the mass of an element in compound X
    * @param mass2 the mass of a second element in compound X
@@ -136,47 +144,34 @@ public class Analysis {
    * @param element1 the element that corresponds to mass1
    * @param element2 the element that corresponds to mass2
    * @param element3 the element that corresponds to mass3
-   * @return empirical formula, <b>without correcting for decimal subscripts</b>
-   * @see Analysis#empiricalFromPercentComposition(double, double, double, String, String, String)
+   * @return empirical formula
+   * @see Analysis#empiricalFromMass(String[], double[])
    * @since 0.2
    */
 
   public static Formula empiricalFromMass(double mass1, double mass2, double mass3,
       String element1, String element2, String element3) {
-    // First find the percent composition
-    double element1Percent = mass1 / mass.get(element1);
-    double element2Percent = mass2 / mass.get(element2);
-    double element3Percent = mass3 / mass.get(element3);
-    // Now find empirical formula (there's already a method for this, so why not use it?).
-    return empiricalFromPercentComposition(element1Percent, element2Percent, element3Percent,
-        element1, element2, element3);
+    return empiricalFromMass(new String[] {element1, element2, element3},
+        new double[] {mass1, mass2, mass3});
   }
 
   /**
    * This method takes the total mass of a compound and its two elements and determines the
-   * empirical formula of that compound. Employs the empiricalFromPercentComposition method to work.
-   * <p>
-   * <b> Note that this method does not check whether one of the normalized subscripts are decimals.
-   * </b>
-   * </p>
-   * <em>An additional method of the same name can find the empirical formula of a compound with three elements rather than two.</em>
+   * empirical formula of that compound.
+   * <em>An additional method of the same name can find the empirical formula of a compound with any number of elements.</em>
    * 
    * @param mass1 the mass of an element in compound X
    * @param mass2 the mass of a second element in compound X
    * @param element1 the element that corresponds to mass1
    * @param element2 the element that corresponds to mass2
-   * @return empirical formula, <b>without correcting for decimal subscripts</b>
-   * @see Analysis#empiricalFromPercentComposition(double, double, String, String)
+   * @return empirical formula
+   * @see Analysis#empiricalFromMass(String[], double[])
    * @since 0.2
    */
 
   public static Formula empiricalFromMass(double mass1, double mass2, String element1,
       String element2) {
-    // First find the percent composition
-    double element1Percent = mass1 / mass.get(element1);
-    double element2Percent = mass2 / mass.get(element2);
-    // Now find empirical formula
-    return empiricalFromPercentComposition(element1Percent, element2Percent, element1, element2);
+    return empiricalFromMass(new String[] {element1, element2}, new double[] {mass1, mass2});
   }
 
   /**
@@ -218,41 +213,23 @@ public class Analysis {
   }
 
   /**
-   * This method finds the empirical formula from a given molecular formula, using GCD. <strong>Note
-   * that the method used to find GCD, which is based off Euclid's algorithm, can err.</strong>
+   * This method finds the empirical formula from a given molecular formula, by dividing every
+   * subscript by the GCD of all of the subscripts.
    * 
    * @param formula a molecular formula
    * @return the empirical formula, in the form of a Formula object
    */
 
   public static final Formula empiricalFromMolecular(String formula) {
-    int gcd = Integer.MAX_VALUE;
-    Formula empiricalFormula = FtHelper.parseFormula(formula);
-    List<Integer> subscripts = empiricalFormula.getSubscripts();
-    // We'll find GCDs in pairs and store them in tryGCD
-    int[] tryGcd = new int[10];
-    for (int x = 0; x < subscripts.size() - 1; x++) {
-      // First find the initial min and max of the pair.
-      int min = Math.min(subscripts.get(x), subscripts.get(x + 1));
-      int max = Math.max(subscripts.get(x), subscripts.get(x + 1));
-      // Now loop and use the algorithm.
-      for (int y = 0; y < 1000; y++) {
-        max -= min;
-        min = Math.min(max, min);
-        max = Math.max(max, min);
-        if (max == min) {
-          tryGcd[x] = min;
-          break;
-        }
-      }
+    Formula molecularFormula = FtHelper.parseFormula(formula);
+    List<Integer> subscripts = molecularFormula.getSubscripts();
+    // Fold Euclid's algorithm over all of the subscripts.
+    int gcd = 0;
+    for (int subscript : subscripts) {
+      gcd = gcd(gcd, subscript);
     }
-    // Loop through tryGCD, find the smallest GCD that isn't 0, and set GCD to it.
-    for (int candidateGcd : tryGcd) {
-      if (candidateGcd != 0) {
-        if (candidateGcd < gcd) {
-          gcd = candidateGcd;
-        }
-      }
+    if (gcd == 0) {
+      gcd = 1;
     }
     // Now that we finally have the GCD, divide the subscripts by it
     // and return the empirical formula.
@@ -260,8 +237,9 @@ public class Analysis {
     for (int subscript : subscripts) {
       newSubscripts.add(subscript / gcd);
     }
-    empiricalFormula.setSubscripts(newSubscripts);
-    return empiricalFormula;
+    // The parsed formula is shared, so build a new one rather than modifying it.
+    return new Formula(molecularFormula.getElements(), newSubscripts,
+        molecularFormula.getCoefficient());
   }
 
   /**
@@ -279,7 +257,7 @@ public class Analysis {
     double[] percents = new double[elements.size()];
     double molarMass = computeMolarMass(formula);
     for (int index = 0; index < elements.size(); index++) {
-      percents[index] = subscripts.get(index) * mass.get(elements.get(index)) / molarMass * 100;
+      percents[index] = subscripts.get(index) * massOf(elements.get(index)) / molarMass * 100;
     }
     return percents;
   }
@@ -306,33 +284,88 @@ public class Analysis {
   }
 
   /**
-   * Computes the molar mass of a formula.
+   * Computes the molar mass of a formula. Results are kept in a bounded cache keyed by the formula
+   * string, so repeated formulas are not parsed again; see
+   * {@link #configureMolarMassCache(int, BoundedCache.EvictionPolicy)}.
    * 
    * @param formula a formula, such as "C6H12O6"
    * @return the molar mass of the given formula
    */
 
   public static double computeMolarMass(String formula) {
-    Formula parsedFormula = FtHelper.parseFormula(formula);
-    // First get the subscripts, elements, and coefficients from the forumula and declare a variable
-    // that stores molar mass.
-    List<Integer> subscripts = parsedFormula.getSubscripts();
-    List<String> elements = parsedFormula.getElements();
+    long start = Metrics.start();
+    try {
+      BoundedCache<String, Double> cache = molarMassCache;
+      Double cachedMolarMass = cache.get(formula);
+      if (cachedMolarMass != null) {
+        return cachedMolarMass;
+      }
+      // Note that the given formula must be syntactically compatible with
+      // FtHelper#parseFormula().
+      double molarMass = computeMolarMass(FtHelper.parsePackedFormula(formula));
+      cache.put(formula, molarMass);
+      return molarMass;
+    } finally {
+      Metrics.MOLAR_MASS.stop(start);
+    }
+  }
+
+  /**
+   * Computes the molar mass of a formula. The coefficient of the formula is ignored.
+   * 
+   * @param formula a formula, such as the PackedFormula for "C6H12O6"
+   * @return the molar mass of the given formula
+   */
+
+  public static double computeMolarMass(PackedFormula formula) {
     double molarMass = 0;
-    // Now loop through the elements. Each iteration, multiply the subscript by the molar mass of
-    // the element and its coefficient and add to molarMass.
-    // Note that the given formula must be syntactically compatible with
-    // Parser#parseFormula().
-    for (int index = 0; index < elements.size(); index++) {
-      molarMass += subscripts.get(index) * mass.get(elements.get(index));
+    // Each iteration, multiply the subscript by the molar mass of the element and add to molarMass.
+    for (int index = 0; index < formula.size(); index++) {
+      molarMass += formula.countAt(index) * PeriodicTable.mass(formula.atomicNumberAt(index));
     }
-    // Now discard all the objects and return.
-    parsedFormula = null;
-    subscripts = null;
-    elements = null;
     return molarMass;
   }
 
+  /**
+   * Computes the isotopic distribution of a formula, i.e. the peaks it would show in a mass
+   * spectrum.
+   * 
+   * @param formula a formula, such as "C6H12O6"
+   * @return the isotopic distribution of the formula
+   * @throws IllegalArgumentException if the formula is malformed or contains an element without
+   *         isotope data
+   * @see IsotopeCalculator
+   */
+
+  public static IsotopeDistribution computeIsotopeDistribution(String formula) {
+    return ISOTOPE_CALCULATOR.get().compute(formula);
+  }
+
+  /**
+   * Computes the monoisotopic mass of a formula, using the most abundant isotope of each element.
+   * 
+   * @param formula a formula, such as "C6H12O6"
+   * @return the monoisotopic mass of the formula, in u
+   * @throws IllegalArgumentException if the formula is malformed or contains an element without
+   *         isotope data
+   */
+
+  public static double computeMonoisotopicMass(String formula) {
+    PackedFormula packedFormula = FtHelper.parsePackedFormula(formula);
+    double monoisotopicMass = 0;
+    for (int index = 0; index < packedFormula.size(); index++) {
+      int atomicNumber = packedFormula.atomicNumberAt(index);
+      int isotope = IsotopeTable.mostAbundantIsotope(atomicNumber);
+      if (isotope < 0) {
+        throw new IllegalArgumentException("No isotope data for element: "
+            + PeriodicTable.symbol(atomicNumber));
+      }
+      monoisotopicMass +=
+          packedFormula.countAt(index) * IsotopeTable.isotopeMass(atomicNumber, isotope);
+    }
+    return monoisotopicMass;
+  }
+
   /**
    * Computes the mass of a formula.
    * 
@@ -404,4 +437,52 @@ public class Analysis {
     products = null;
     return numAtoms;
   }
+
+  /**
+   * Replaces the molar mass cache with an empty one. A capacity of 0 turns caching off.
+   * 
+   * @param capacity the largest number of molar masses to keep
+   * @param policy which molar mass to drop when the cache is full
+   */
+
+  public static void configureMolarMassCache(int capacity, BoundedCache.EvictionPolicy policy) {
+    molarMassCache = new BoundedCache<String, Double>(capacity, policy);
+  }
+
+  /**
+   * Gets the molar mass cache, e.g. to read its hit, miss and eviction counters.
+   * 
+   * @return the cache used by {@link #computeMolarMass(String)}
+   */
+
+  public static BoundedCache<String, Double> getMolarMassCache() {
+    return molarMassCache;
+  }
+
+  /**
+   * Finds the greatest common divisor of two non-negative integers with Euclid's algorithm.
+   * 
+   * @param a an integer
+   * @param b another integer
+   * @return the GCD of a and b, or 0 if both are 0
+   */
+
+  public static int gcd(int a, int b) {
+    while (b != 0) {
+      int remainder = a % b;
+      a = b;
+      b = remainder;
+    }
+    return a;
+  }
+
+  /* UTILITY METHODS */
+
+  private static double massOf(String element) {
+    int atomicNumber = PeriodicTable.atomicNumberOf(element);
+    if (atomicNumber == 0) {
+      throw new IllegalArgumentException("Unknown element: " + element);
+    }
+    return PeriodicTable.mass(atomicNumber);
+  }
 }
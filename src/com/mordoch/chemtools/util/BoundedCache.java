@@ -0,0 +1,262 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe cache that holds at most a fixed number of entries. Entries are spread over a
+ * number of segments, each guarded by its own lock, so threads looking up different keys rarely
+ * wait for each other. When a segment is full, the entry chosen by the {@link EvictionPolicy} is
+ * dropped.
+ * <p>
+ * The cache counts hits, misses and evictions so that its capacity can be tuned.
+ * </p>
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+
+public final class BoundedCache<K, V> {
+
+  /**
+   * Decides which entry is dropped when the cache is full.
+   */
+
+  public enum EvictionPolicy {
+    /** Drop the entry that was read or written least recently. */
+    LEAST_RECENTLY_USED,
+    /** Drop the entry that was added first, regardless of how often it is read. */
+    FIRST_IN_FIRST_OUT
+  }
+
+  private static final int SEGMENTS = 16;
+
+  private final Segment<K, V>[] segments;
+  private final int capacity;
+  private final EvictionPolicy policy;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates a cache. A capacity of 0 creates a cache that never holds anything.
+   * 
+   * @param capacity the largest number of entries the cache may hold
+   * @param policy which entry to drop when the cache is full
+   */
+
+  @SuppressWarnings("unchecked")
+  public BoundedCache(int capacity, EvictionPolicy policy) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+    }
+    this.capacity = capacity;
+    this.policy = policy;
+    // Small caches get fewer segments so that every segment can hold something.
+    int numOfSegments = SEGMENTS;
+    while (numOfSegments > 1 && capacity / numOfSegments < 4) {
+      numOfSegments /= 2;
+    }
+    segments = (Segment<K, V>[]) new Segment<?, ?>[numOfSegments];
+    int perSegment = capacity / numOfSegments;
+    int remainder = capacity % numOfSegments;
+    for (int index = 0; index < numOfSegments; index++) {
+      int segmentCapacity = perSegment + (index < remainder ? 1 : 0);
+      segments[index] = new Segment<K, V>(segmentCapacity,
+          policy == EvictionPolicy.LEAST_RECENTLY_USED, evictions);
+    }
+  }
+
+  /**
+   * Gets the value mapped to a key, counting a hit or a miss.
+   * 
+   * @param key the key to look up
+   * @return the cached value, or null if there is none
+   */
+
+  public V get(K key) {
+    Segment<K, V> segment = segmentFor(key);
+    V value;
+    synchronized (segment) {
+      value = segment.get(key);
+    }
+    if (value == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return value;
+  }
+
+  /**
+   * Maps a key to a value, evicting an entry if the key's segment is full.
+   * 
+   * @param key the key
+   * @param value the value, which must not be null
+   */
+
+  public void put(K key, V value) {
+    if (value == null) {
+      throw new NullPointerException("Null values can't be cached");
+    }
+    if (capacity == 0) {
+      return;
+    }
+    Segment<K, V> segment = segmentFor(key);
+    synchronized (segment) {
+      segment.put(key, value);
+    }
+  }
+
+  /**
+   * Maps a key to a value unless the key is already mapped.
+   * 
+   * @param key the key
+   * @param value the value, which must not be null
+   * @return the value that was already cached, or the given value if there was none
+   */
+
+  public V putIfAbsent(K key, V value) {
+    if (value == null) {
+      throw new NullPointerException("Null values can't be cached");
+    }
+    if (capacity == 0) {
+      return value;
+    }
+    Segment<K, V> segment = segmentFor(key);
+    synchronized (segment) {
+      V existing = segment.get(key);
+      if (existing != null) {
+        return existing;
+      }
+      segment.put(key, value);
+      return value;
+    }
+  }
+
+  /**
+   * Removes every entry. The counters are left as they are.
+   */
+
+  public void clear() {
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  /**
+   * Resets the hit, miss and eviction counters to 0.
+   */
+
+  public void resetStatistics() {
+    hits.reset();
+    misses.reset();
+    evictions.reset();
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  public EvictionPolicy policy() {
+    return policy;
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Gets the fraction of lookups that were hits.
+   * 
+   * @return the hit rate, between 0 and 1, or 0 if there were no lookups
+   */
+
+  public double hitRate() {
+    long numOfHits = hits.sum();
+    long lookups = numOfHits + misses.sum();
+    return lookups == 0 ? 0 : (double) numOfHits / lookups;
+  }
+
+  /**
+   * Returns a one-line summary of the cache's size and counters.
+   */
+
+  @Override
+  public String toString() {
+    return "size=" + size() + ", capacity=" + capacity + ", policy=" + policy + ", hits=" + hits()
+        + ", misses=" + misses() + ", evictions=" + evictions();
+  }
+
+  /* UTILITY METHODS */
+
+  private Segment<K, V> segmentFor(K key) {
+    int hash = key.hashCode();
+    // Spread the high bits, since the segment index only uses the low ones
+    hash ^= hash >>> 16;
+    return segments[hash & (segments.length - 1)];
+  }
+
+  private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int segmentCapacity;
+    private final LongAdder evictions;
+
+    Segment(int segmentCapacity, boolean accessOrder, LongAdder evictions) {
+      super(16, 0.75f, accessOrder);
+      this.segmentCapacity = segmentCapacity;
+      this.evictions = evictions;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      if (size() > segmentCapacity) {
+        evictions.increment();
+        return true;
+      }
+      return false;
+    }
+  }
+}
@@ -16,12 +16,16 @@
 
 package com.mordoch.chemtools.util;
 
+import java.nio.DoubleBuffer;
+
 import com.mordoch.chemtools.Main;
 
 /**
  * This class is used as a conversions library for conversions applicable to chemistry.
  * <p>
- * Conversions types are length, molar, mass, and volume.
+ * Conversions types are length, molar, mass, and volume. The methods here convert between
+ * neighbouring units; {@link LengthUnit}, {@link MassUnit}, {@link VolumeUnit} and
+ * {@link AmountUnit} convert between any two units of a kind with a single multiplication.
  * </p>
  * 
  * @author Ariel Mordoch
@@ -64,7 +68,7 @@ public class Conversions {
   }
 
   public static double micronsToCentimeters(double microns) {
-    return microns / 1000;
+    return microns / 10000;
   }
 
   public static double nanometersToMicrons(double nanometers) {
@@ -108,7 +112,7 @@ public class Conversions {
   }
 
   public static double kilogramsToGrams(double kilograms) {
-    return kilograms / 1000;
+    return kilograms * 1000;
   }
 
   public static double amuToGram(double amus) {
@@ -138,4 +142,246 @@ public class Conversions {
   public static double kilolitersToLiters(double kiloliters) {
     return kiloliters * 1000;
   }
+
+  /*
+   * Bulk conversions
+   *
+   * Each conversion above also takes a whole array or DoubleBuffer of values. The array versions
+   * write into a destination array, which may be the source array itself to convert in place. The
+   * DoubleBuffer versions convert the remaining values of the buffer in place without moving its
+   * position. Every value gets exactly the same arithmetic as the scalar method, so the results
+   * are identical, and the loops are simple enough for the JIT compiler to turn into SIMD
+   * instructions.
+   */
+
+  public static void massToMols(double[] masses, double molarMass, double[] destination) {
+    divide(masses, destination, molarMass);
+  }
+
+  public static void massToMols(DoubleBuffer masses, double molarMass) {
+    divide(masses, molarMass);
+  }
+
+  public static void molsToMass(double[] mols, double molarMass, double[] destination) {
+    multiply(mols, destination, molarMass);
+  }
+
+  public static void molsToMass(DoubleBuffer mols, double molarMass) {
+    multiply(mols, molarMass);
+  }
+
+  public static void molsToAtomCount(double[] mols, double[] destination) {
+    multiply(mols, destination, AVOGADROS_NUMBER);
+  }
+
+  public static void molsToAtomCount(DoubleBuffer mols) {
+    multiply(mols, AVOGADROS_NUMBER);
+  }
+
+  public static void atomCountToMols(double[] atomCounts, double[] destination) {
+    divide(atomCounts, destination, AVOGADROS_NUMBER);
+  }
+
+  public static void atomCountToMols(DoubleBuffer atomCounts) {
+    divide(atomCounts, AVOGADROS_NUMBER);
+  }
+
+  public static void centimetersToMeters(double[] centimeters, double[] destination) {
+    divide(centimeters, destination, 100);
+  }
+
+  public static void centimetersToMeters(DoubleBuffer centimeters) {
+    divide(centimeters, 100);
+  }
+
+  public static void micronsToCentimeters(double[] microns, double[] destination) {
+    divide(microns, destination, 10000);
+  }
+
+  public static void micronsToCentimeters(DoubleBuffer microns) {
+    divide(microns, 10000);
+  }
+
+  public static void nanometersToMicrons(double[] nanometers, double[] destination) {
+    divide(nanometers, destination, 1000);
+  }
+
+  public static void nanometersToMicrons(DoubleBuffer nanometers) {
+    divide(nanometers, 1000);
+  }
+
+  public static void picometersToNanometers(double[] picometers, double[] destination) {
+    divide(picometers, destination, 1000);
+  }
+
+  public static void picometersToNanometers(DoubleBuffer picometers) {
+    divide(picometers, 1000);
+  }
+
+  public static void metersToCentimeters(double[] meters, double[] destination) {
+    multiply(meters, destination, 100);
+  }
+
+  public static void metersToCentimeters(DoubleBuffer meters) {
+    multiply(meters, 100);
+  }
+
+  public static void centimetersToMicrons(double[] centimeters, double[] destination) {
+    multiply(centimeters, destination, 10000);
+  }
+
+  public static void centimetersToMicrons(DoubleBuffer centimeters) {
+    multiply(centimeters, 10000);
+  }
+
+  public static void micronsToNanometers(double[] microns, double[] destination) {
+    multiply(microns, destination, 1000);
+  }
+
+  public static void micronsToNanometers(DoubleBuffer microns) {
+    multiply(microns, 1000);
+  }
+
+  public static void nanometersToPicometers(double[] nanometers, double[] destination) {
+    multiply(nanometers, destination, 1000);
+  }
+
+  public static void nanometersToPicometers(DoubleBuffer nanometers) {
+    multiply(nanometers, 1000);
+  }
+
+  public static void gramsToMilligrams(double[] grams, double[] destination) {
+    multiply(grams, destination, 1000);
+  }
+
+  public static void gramsToMilligrams(DoubleBuffer grams) {
+    multiply(grams, 1000);
+  }
+
+  public static void gramsToKilograms(double[] grams, double[] destination) {
+    divide(grams, destination, 1000);
+  }
+
+  public static void gramsToKilograms(DoubleBuffer grams) {
+    divide(grams, 1000);
+  }
+
+  public static void milligramsToGrams(double[] milligrams, double[] destination) {
+    divide(milligrams, destination, 1000);
+  }
+
+  public static void milligramsToGrams(DoubleBuffer milligrams) {
+    divide(milligrams, 1000);
+  }
+
+  public static void kilogramsToGrams(double[] kilograms, double[] destination) {
+    multiply(kilograms, destination, 1000);
+  }
+
+  public static void kilogramsToGrams(DoubleBuffer kilograms) {
+    multiply(kilograms, 1000);
+  }
+
+  public static void amuToGram(double[] amus, double[] destination) {
+    multiply(amus, destination, ATOMIC_MASS_UNIT_GM);
+  }
+
+  public static void amuToGram(DoubleBuffer amus) {
+    multiply(amus, ATOMIC_MASS_UNIT_GM);
+  }
+
+  public static void gramToAmu(double[] grams, double[] destination) {
+    divide(grams, destination, ATOMIC_MASS_UNIT_GM);
+  }
+
+  public static void gramToAmu(DoubleBuffer grams) {
+    divide(grams, ATOMIC_MASS_UNIT_GM);
+  }
+
+  public static void litersToMilliliters(double[] liters, double[] destination) {
+    multiply(liters, destination, 1000);
+  }
+
+  public static void litersToMilliliters(DoubleBuffer liters) {
+    multiply(liters, 1000);
+  }
+
+  public static void litersToKiloliters(double[] liters, double[] destination) {
+    divide(liters, destination, 1000);
+  }
+
+  public static void litersToKiloliters(DoubleBuffer liters) {
+    divide(liters, 1000);
+  }
+
+  public static void millilitersToLiters(double[] milliliters, double[] destination) {
+    divide(milliliters, destination, 1000);
+  }
+
+  public static void millilitersToLiters(DoubleBuffer milliliters) {
+    divide(milliliters, 1000);
+  }
+
+  public static void kilolitersToLiters(double[] kiloliters, double[] destination) {
+    multiply(kiloliters, destination, 1000);
+  }
+
+  public static void kilolitersToLiters(DoubleBuffer kiloliters) {
+    multiply(kiloliters, 1000);
+  }
+
+  /* UTILITY METHODS */
+
+  // Also used by the unit enums, such as LengthUnit
+  static void multiply(double[] source, double[] destination, double factor) {
+    checkLength(source, destination);
+    for (int index = 0; index < source.length; index++) {
+      destination[index] = source[index] * factor;
+    }
+  }
+
+  private static void divide(double[] source, double[] destination, double divisor) {
+    checkLength(source, destination);
+    // Not multiplied by the reciprocal, which can differ from the scalar result in the last bit
+    for (int index = 0; index < source.length; index++) {
+      destination[index] = source[index] / divisor;
+    }
+  }
+
+  static void multiply(DoubleBuffer values, double factor) {
+    if (values.hasArray()) {
+      double[] array = values.array();
+      int start = values.arrayOffset() + values.position();
+      int end = values.arrayOffset() + values.limit();
+      for (int index = start; index < end; index++) {
+        array[index] = array[index] * factor;
+      }
+    } else {
+      for (int index = values.position(); index < values.limit(); index++) {
+        values.put(index, values.get(index) * factor);
+      }
+    }
+  }
+
+  private static void divide(DoubleBuffer values, double divisor) {
+    if (values.hasArray()) {
+      double[] array = values.array();
+      int start = values.arrayOffset() + values.position();
+      int end = values.arrayOffset() + values.limit();
+      for (int index = start; index < end; index++) {
+        array[index] = array[index] / divisor;
+      }
+    } else {
+      for (int index = values.position(); index < values.limit(); index++) {
+        values.put(index, values.get(index) / divisor);
+      }
+    }
+  }
+
+  private static void checkLength(double[] source, double[] destination) {
+    if (destination.length < source.length) {
+      throw new IllegalArgumentException("Destination holds " + destination.length
+          + " values; " + source.length + " are needed");
+    }
+  }
 }
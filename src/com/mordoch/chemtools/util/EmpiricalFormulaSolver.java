@@ -0,0 +1,175 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mordoch.chemtools.formulatools.Formula;
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
+
+/**
+ * Finds the empirical formula of a compound with any number of elements from its composition,
+ * given either as percents by mass or as the mass of each element in a sample; only the
+ * proportions matter.
+ * <p>
+ * The moles of each element are divided by the smallest, which gives ratios such as 1 : 1.33 :
+ * 2.5. Real measurements are never exact integers, so the solver looks for the smallest
+ * multiplier, up to a limit, that brings every ratio within a tolerance of a whole number; here 6,
+ * giving 6 : 8 : 15. If no multiplier is close enough, the one that comes closest is used.
+ * </p>
+ * <p>
+ * A solver has no state besides its settings, so it can be shared between threads.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class EmpiricalFormulaSolver {
+
+  /** How far, in atoms, a subscript may be from a whole number unless another value is given. */
+  public static final double DEFAULT_TOLERANCE = 0.1;
+
+  /** The largest multiplier tried unless another value is given. */
+  public static final int DEFAULT_MAX_MULTIPLIER = 12;
+
+  private final double tolerance;
+  private final int maxMultiplier;
+
+  /**
+   * Creates a solver with the default tolerance and largest multiplier.
+   */
+
+  public EmpiricalFormulaSolver() {
+    this(DEFAULT_TOLERANCE, DEFAULT_MAX_MULTIPLIER);
+  }
+
+  /**
+   * Creates a solver.
+   *
+   * @param tolerance how far, in atoms, a subscript may be from a whole number
+   * @param maxMultiplier the largest number the mole ratios are multiplied by
+   * @throws IllegalArgumentException if the tolerance is not in [0, 0.5) or the multiplier is not
+   *         positive
+   */
+
+  public EmpiricalFormulaSolver(double tolerance, int maxMultiplier) {
+    if (!(tolerance >= 0 && tolerance < 0.5) || maxMultiplier < 1) {
+      throw new IllegalArgumentException("Bad tolerance or multiplier: " + tolerance + ", "
+          + maxMultiplier);
+    }
+    this.tolerance = tolerance;
+    this.maxMultiplier = maxMultiplier;
+  }
+
+  /**
+   * Finds the empirical formula of a compound.
+   *
+   * @param elements the symbols of the elements, e.g. {"C", "H", "O"}
+   * @param amounts the percent by mass, or the mass in a sample, of each element
+   * @return the empirical formula, with the elements in the order given; elements with an amount
+   *         of 0 are left out
+   * @throws IllegalArgumentException if an element is unknown, an amount is negative or not a
+   *         number, or every amount is 0
+   */
+
+  public Formula solve(String[] elements, double[] amounts) {
+    if (elements.length != amounts.length) {
+      throw new IllegalArgumentException("Every element needs an amount");
+    }
+    int[] atomicNumbers = new int[elements.length];
+    for (int index = 0; index < elements.length; index++) {
+      atomicNumbers[index] = PeriodicTable.atomicNumberOf(elements[index]);
+      if (atomicNumbers[index] == 0) {
+        throw new IllegalArgumentException("Unknown element: " + elements[index]);
+      }
+    }
+    int[] subscripts = new int[elements.length];
+    solve(atomicNumbers, amounts, elements.length, subscripts);
+    List<String> formulaElements = new ArrayList<String>(elements.length);
+    List<Integer> formulaSubscripts = new ArrayList<Integer>(elements.length);
+    for (int index = 0; index < elements.length; index++) {
+      if (subscripts[index] > 0) {
+        formulaElements.add(PeriodicTable.symbol(atomicNumbers[index]));
+        formulaSubscripts.add(subscripts[index]);
+      }
+    }
+    return new Formula(formulaElements, formulaSubscripts, 1);
+  }
+
+  /**
+   * Finds the subscripts of the empirical formula of a compound without creating any objects,
+   * e.g. for batch processing.
+   *
+   * @param atomicNumbers the atomic numbers of the elements
+   * @param amounts the percent by mass, or the mass in a sample, of each element
+   * @param size the number of elements to read from both arrays
+   * @param subscripts where to write the subscript of each element; 0 for an amount of 0
+   * @return the multiplier that was applied to the mole ratios
+   * @throws IllegalArgumentException if an amount is negative or not a number, or every amount is
+   *         0
+   */
+
+  public int solve(int[] atomicNumbers, double[] amounts, int size, int[] subscripts) {
+    // Moles of each element, relative to the element with the fewest
+    double fewestMoles = Double.POSITIVE_INFINITY;
+    for (int index = 0; index < size; index++) {
+      if (!(amounts[index] >= 0) || Double.isInfinite(amounts[index])) {
+        throw new IllegalArgumentException("Bad amount: " + amounts[index]);
+      }
+      if (amounts[index] > 0) {
+        double moles = amounts[index] / PeriodicTable.mass(atomicNumbers[index]);
+        fewestMoles = Math.min(fewestMoles, moles);
+      }
+    }
+    if (fewestMoles == Double.POSITIVE_INFINITY) {
+      throw new IllegalArgumentException("Every amount is 0");
+    }
+    int bestMultiplier = 1;
+    double bestError = Double.POSITIVE_INFINITY;
+    for (int multiplier = 1; multiplier <= maxMultiplier; multiplier++) {
+      // The largest distance from a whole number of any scaled ratio
+      double error = 0;
+      for (int index = 0; index < size && error < bestError; index++) {
+        double scaled = ratio(atomicNumbers, amounts, index, fewestMoles) * multiplier;
+        error = Math.max(error, Math.abs(scaled - Math.rint(scaled)));
+      }
+      if (error < bestError) {
+        bestError = error;
+        bestMultiplier = multiplier;
+      }
+      if (error <= tolerance) {
+        break;
+      }
+    }
+    for (int index = 0; index < size; index++) {
+      double scaled = ratio(atomicNumbers, amounts, index, fewestMoles) * bestMultiplier;
+      // Every ratio of a present element is at least 1, so only absent elements get 0
+      subscripts[index] = (int) Math.rint(scaled);
+    }
+    return bestMultiplier;
+  }
+
+  /* UTILITY METHODS */
+
+  private static double ratio(int[] atomicNumbers, double[] amounts, int index,
+      double fewestMoles) {
+    return amounts[index] / PeriodicTable.mass(atomicNumbers[index]) / fewestMoles;
+  }
+}
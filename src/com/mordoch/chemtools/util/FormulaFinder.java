@@ -0,0 +1,363 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.mordoch.chemtools.formulatools.Formula;
+import com.mordoch.chemtools.util.elementinfo.IsotopeTable;
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
+
+/**
+ * Finds every formula whose mass is within a tolerance of a measured mass, given the elements
+ * it may contain and a range for the count of each. The mass can be a molar mass, as computed by
+ * {@link Analysis#computeMolarMass(String)}, or an exact monoisotopic mass from a mass spectrum.
+ * <p>
+ * The search is a branch and bound over the element counts, heaviest element first. For every
+ * partial formula the lightest and heaviest masses the remaining elements can add are known, so
+ * any count that can no longer reach the target, or already overshoots it, ends that branch. The
+ * count of the lightest element is solved for directly rather than enumerated. The first levels
+ * of the search are split into tasks on a ForkJoinPool.
+ * </p>
+ * <p>
+ * Candidates also have to pass a valence check, which can be turned off: the valences of the
+ * atoms must add up to an even number, and be enough to connect every atom, i.e. the formula has
+ * zero or more rings and double bonds. The valence of an element is the magnitude of its charge
+ * from {@link PeriodicTable#charge(int)}, 4 for carbon and the group 14 elements, and 3 for boron
+ * and aluminium. Formulas containing an element of unknown valence are not checked.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class FormulaFinder {
+
+  // Below this depth the search is split into tasks; deeper levels run in the task itself.
+  private static final int SPLIT_DEPTH = 2;
+
+  private final String[] symbols;
+  private final int[] atomicNumbers;
+  private final int[] minCounts;
+  private final int[] maxCounts;
+  private final boolean checkValence;
+  private final ForkJoinPool pool;
+
+  /**
+   * Creates a finder for formulas made of the given elements, with the valence check on, that
+   * runs on the common ForkJoinPool.
+   *
+   * @param symbols the symbols of the elements that may appear, e.g. {"C", "H", "N", "O"}
+   * @param minCounts the fewest atoms of each element
+   * @param maxCounts the most atoms of each element
+   * @throws IllegalArgumentException if an element is unknown or repeated, or a range is empty or
+   *         negative
+   */
+
+  public FormulaFinder(String[] symbols, int[] minCounts, int[] maxCounts) {
+    this(symbols, minCounts, maxCounts, true, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a finder for formulas made of the given elements.
+   *
+   * @param symbols the symbols of the elements that may appear, e.g. {"C", "H", "N", "O"}
+   * @param minCounts the fewest atoms of each element
+   * @param maxCounts the most atoms of each element
+   * @param checkValence whether candidates have to pass the valence check
+   * @param pool the pool to search on
+   * @throws IllegalArgumentException if an element is unknown or repeated, or a range is empty or
+   *         negative
+   */
+
+  public FormulaFinder(String[] symbols, int[] minCounts, int[] maxCounts, boolean checkValence,
+      ForkJoinPool pool) {
+    if (minCounts.length != symbols.length || maxCounts.length != symbols.length
+        || symbols.length == 0) {
+      throw new IllegalArgumentException("Every element needs a minimum and a maximum count");
+    }
+    this.symbols = symbols.clone();
+    this.atomicNumbers = new int[symbols.length];
+    for (int element = 0; element < symbols.length; element++) {
+      int atomicNumber = PeriodicTable.atomicNumberOf(symbols[element]);
+      if (atomicNumber == 0) {
+        throw new IllegalArgumentException("Unknown element: " + symbols[element]);
+      }
+      for (int other = 0; other < element; other++) {
+        if (atomicNumbers[other] == atomicNumber) {
+          throw new IllegalArgumentException("Element given twice: " + symbols[element]);
+        }
+      }
+      if (minCounts[element] < 0 || maxCounts[element] < minCounts[element]) {
+        throw new IllegalArgumentException("Bad count range for " + symbols[element] + ": "
+            + minCounts[element] + " to " + maxCounts[element]);
+      }
+      atomicNumbers[element] = atomicNumber;
+    }
+    this.minCounts = minCounts.clone();
+    this.maxCounts = maxCounts.clone();
+    this.checkValence = checkValence;
+    this.pool = pool;
+  }
+
+  /**
+   * Finds the formulas whose molar mass is within a tolerance of the given one.
+   *
+   * @param molarMass the molar mass to match, in g/mol
+   * @param tolerance the largest difference allowed, in g/mol
+   * @return the matching formulas, closest first; elements are in the order they were given and
+   *         elements with no atoms are left out
+   */
+
+  public List<Formula> findByMolarMass(double molarMass, double tolerance) {
+    double[] masses = new double[atomicNumbers.length];
+    for (int element = 0; element < masses.length; element++) {
+      masses[element] = PeriodicTable.mass(atomicNumbers[element]);
+    }
+    return find(masses, molarMass, tolerance);
+  }
+
+  /**
+   * Finds the formulas whose monoisotopic mass, as computed by
+   * {@link Analysis#computeMonoisotopicMass(String)}, is within a tolerance of the given one.
+   *
+   * @param exactMass the exact mass to match, in u
+   * @param tolerance the largest difference allowed, in u
+   * @return the matching formulas, closest first; elements are in the order they were given and
+   *         elements with no atoms are left out
+   * @throws IllegalArgumentException if an element has no isotope data
+   */
+
+  public List<Formula> findByExactMass(double exactMass, double tolerance) {
+    double[] masses = new double[atomicNumbers.length];
+    for (int element = 0; element < masses.length; element++) {
+      int isotope = IsotopeTable.mostAbundantIsotope(atomicNumbers[element]);
+      if (isotope < 0) {
+        throw new IllegalArgumentException("No isotope data for element: " + symbols[element]);
+      }
+      masses[element] = IsotopeTable.isotopeMass(atomicNumbers[element], isotope);
+    }
+    return find(masses, exactMass, tolerance);
+  }
+
+  /* UTILITY METHODS */
+
+  private List<Formula> find(double[] elementMasses, double target, double tolerance) {
+    if (!(tolerance >= 0)) {
+      throw new IllegalArgumentException("Tolerance must not be negative: " + tolerance);
+    }
+    Search search = new Search(elementMasses, target - tolerance, target + tolerance);
+    List<int[]> matches = pool.invoke(search.new Task(0, new int[atomicNumbers.length], 0));
+    final double[] errors = new double[matches.size()];
+    List<Integer> order = new ArrayList<Integer>(matches.size());
+    for (int match = 0; match < matches.size(); match++) {
+      int[] counts = matches.get(match);
+      double mass = 0;
+      for (int level = 0; level < counts.length; level++) {
+        mass += counts[level] * search.masses[level];
+      }
+      errors[match] = Math.abs(mass - target);
+      order.add(match);
+    }
+    // A stable sort, so equally close formulas stay in the order they were found
+    Collections.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return Double.compare(errors[a], errors[b]);
+      }
+    });
+    List<Formula> formulas = new ArrayList<Formula>(matches.size());
+    for (int match : order) {
+      formulas.add(search.toFormula(matches.get(match)));
+    }
+    return formulas;
+  }
+
+  private static int valence(int atomicNumber) {
+    int charge = PeriodicTable.charge(atomicNumber);
+    if (charge != PeriodicTable.UNKNOWN_CHARGE && charge != 0) {
+      return Math.abs(charge);
+    }
+    switch (atomicNumber) {
+      case 6: // C
+      case 14: // Si
+      case 32: // Ge
+      case 50: // Sn
+        return 4;
+      case 5: // B
+      case 13: // Al
+        return 3;
+      default:
+        return 0;
+    }
+  }
+
+  /*
+   * One search, with the elements reordered from heaviest to lightest. The bounds arrays hold, for
+   * each level, the lightest and heaviest mass that all the levels after it can add.
+   */
+  private final class Search {
+
+    final double low;
+    final double high;
+    // Everything below is indexed by level, not by the order the elements were given in
+    final int[] elementOfLevel;
+    final double[] masses;
+    final int[] valences;
+    final double[] restMin;
+    final double[] restMax;
+
+    Search(double[] elementMasses, double low, double high) {
+      this.low = low;
+      this.high = high;
+      int numOfLevels = elementMasses.length;
+      List<Integer> elements = new ArrayList<Integer>(numOfLevels);
+      for (int element = 0; element < numOfLevels; element++) {
+        elements.add(element);
+      }
+      final double[] byElement = elementMasses;
+      Collections.sort(elements, new Comparator<Integer>() {
+        @Override
+        public int compare(Integer a, Integer b) {
+          return Double.compare(byElement[b], byElement[a]);
+        }
+      });
+      elementOfLevel = new int[numOfLevels];
+      masses = new double[numOfLevels];
+      valences = new int[numOfLevels];
+      for (int level = 0; level < numOfLevels; level++) {
+        elementOfLevel[level] = elements.get(level);
+        masses[level] = elementMasses[elementOfLevel[level]];
+        valences[level] = valence(atomicNumbers[elementOfLevel[level]]);
+      }
+      restMin = new double[numOfLevels + 1];
+      restMax = new double[numOfLevels + 1];
+      for (int level = numOfLevels - 1; level >= 0; level--) {
+        restMin[level] = restMin[level + 1] + minCounts[elementOfLevel[level]] * masses[level];
+        restMax[level] = restMax[level + 1] + maxCounts[elementOfLevel[level]] * masses[level];
+      }
+    }
+
+    // The first and last counts at a level that can still reach the target
+    int firstCount(int level, double mass) {
+      int element = elementOfLevel[level];
+      double needed = (low - mass - restMax[level + 1]) / masses[level];
+      return (int) Math.max(minCounts[element], Math.ceil(needed));
+    }
+
+    int lastCount(int level, double mass) {
+      int element = elementOfLevel[level];
+      double allowed = (high - mass - restMin[level + 1]) / masses[level];
+      return (int) Math.min(maxCounts[element], Math.floor(allowed));
+    }
+
+    void searchFrom(int level, int[] counts, double mass, List<int[]> matches) {
+      int first = firstCount(level, mass);
+      int last = lastCount(level, mass);
+      boolean lastLevel = level == counts.length - 1;
+      for (int count = first; count <= last; count++) {
+        counts[level] = count;
+        if (lastLevel) {
+          double total = mass + count * masses[level];
+          // The bounds are computed by division, so check the sum itself
+          if (total >= low && total <= high && passesValenceCheck(counts)) {
+            matches.add(counts.clone());
+          }
+        } else {
+          searchFrom(level + 1, counts, mass + count * masses[level], matches);
+        }
+      }
+      counts[level] = 0;
+    }
+
+    boolean passesValenceCheck(int[] counts) {
+      if (!checkValence) {
+        return true;
+      }
+      long valenceSum = 0;
+      long atoms = 0;
+      for (int level = 0; level < counts.length; level++) {
+        if (counts[level] > 0) {
+          if (valences[level] == 0) {
+            return true;
+          }
+          valenceSum += (long) counts[level] * valences[level];
+          atoms += counts[level];
+        }
+      }
+      return atoms == 0 || valenceSum % 2 == 0 && valenceSum >= 2 * (atoms - 1);
+    }
+
+    Formula toFormula(int[] counts) {
+      int[] countOfElement = new int[counts.length];
+      for (int level = 0; level < counts.length; level++) {
+        countOfElement[elementOfLevel[level]] = counts[level];
+      }
+      List<String> elements = new ArrayList<String>(counts.length);
+      List<Integer> subscripts = new ArrayList<Integer>(counts.length);
+      for (int element = 0; element < counts.length; element++) {
+        if (countOfElement[element] > 0) {
+          elements.add(PeriodicTable.symbol(atomicNumbers[element]));
+          subscripts.add(countOfElement[element]);
+        }
+      }
+      return new Formula(elements, subscripts, 1);
+    }
+
+    // Forks a task per count for the first levels, then searches the rest in place
+    final class Task extends RecursiveTask<List<int[]>> {
+
+      private static final long serialVersionUID = 1L;
+
+      private final int level;
+      private final int[] counts;
+      private final double mass;
+
+      Task(int level, int[] counts, double mass) {
+        this.level = level;
+        this.counts = counts;
+        this.mass = mass;
+      }
+
+      @Override
+      protected List<int[]> compute() {
+        List<int[]> matches = new ArrayList<int[]>();
+        if (level >= SPLIT_DEPTH || level == counts.length - 1) {
+          searchFrom(level, counts, mass, matches);
+          return matches;
+        }
+        List<Task> tasks = new ArrayList<Task>();
+        for (int count = firstCount(level, mass); count <= lastCount(level, mass); count++) {
+          int[] taskCounts = counts.clone();
+          taskCounts[level] = count;
+          tasks.add(new Task(level + 1, taskCounts, mass + count * masses[level]));
+        }
+        invokeAll(tasks);
+        for (Task task : tasks) {
+          matches.addAll(task.join());
+        }
+        return matches;
+      }
+    }
+  }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.mordoch.chemtools.formulatools.Formula;
+import com.mordoch.chemtools.formulatools.FtHelper;
+import com.mordoch.chemtools.formulatools.PackedFormula;
+import com.mordoch.chemtools.util.elementinfo.IsotopeTable;
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
+
+/**
+ * Computes the isotopic distribution of a formula from {@link IsotopeTable}.
+ * <p>
+ * The distribution of n atoms of an element is the distribution of one atom convolved with itself
+ * n times. Rather than n convolutions, it is built by repeated squaring: the distributions of 1,
+ * 2, 4, 8, ... atoms are each the square of the one before, and n atoms is the product of the
+ * powers of two that make up n. The distributions of the elements are then convolved together.
+ * Long distributions are convolved with a fast Fourier transform and short ones directly, and
+ * after every step the peaks at either end whose abundance is below the pruning threshold are
+ * dropped. A protein with thousands of atoms therefore takes a few dozen convolutions of a few
+ * dozen peaks each.
+ * </p>
+ * <p>
+ * A calculator keeps the powers of two it has computed for each element, so computing the
+ * distributions of a whole library with one calculator, e.g. with {@link #computeAll(List)}, gets
+ * faster as it goes. For that reason a calculator is <strong>not</strong> thread-safe; every
+ * thread should own its own.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class IsotopeCalculator {
+
+  /** Peaks less abundant than this are pruned unless another threshold is given. */
+  public static final double DEFAULT_PRUNE_THRESHOLD = 1e-9;
+
+  // Below this many peaks in the shorter distribution, direct convolution is quicker than the FFT
+  private static final int FFT_MIN_LENGTH = 64;
+
+  private final double pruneThreshold;
+  // powers[atomicNumber][k] is the distribution of 2^k atoms of the element
+  private final Spectrum[][] powers = new Spectrum[PeriodicTable.MAX_ATOMIC_NUMBER + 1][];
+
+  /**
+   * Creates a calculator that prunes peaks less abundant than
+   * {@link #DEFAULT_PRUNE_THRESHOLD}.
+   */
+
+  public IsotopeCalculator() {
+    this(DEFAULT_PRUNE_THRESHOLD);
+  }
+
+  /**
+   * Creates a calculator with a given pruning threshold. A lower threshold keeps more of the tails
+   * of the distribution and takes longer.
+   *
+   * @param pruneThreshold the abundance below which peaks at the ends of a distribution are
+   *        dropped
+   * @throws IllegalArgumentException if the threshold is negative or not below 1
+   */
+
+  public IsotopeCalculator(double pruneThreshold) {
+    if (!(pruneThreshold >= 0 && pruneThreshold < 1)) {
+      throw new IllegalArgumentException("Pruning threshold must be in [0, 1): " + pruneThreshold);
+    }
+    this.pruneThreshold = pruneThreshold;
+  }
+
+  /**
+   * Computes the isotopic distribution of a formula, such as "C6H12O6". The coefficient of the
+   * formula is ignored.
+   *
+   * @param formula the formula
+   * @return the isotopic distribution of the formula
+   * @throws IllegalArgumentException if the formula is malformed or contains an element that has
+   *         no isotopes in {@link IsotopeTable}
+   */
+
+  public IsotopeDistribution compute(CharSequence formula) {
+    return compute(FtHelper.parsePackedFormula(formula));
+  }
+
+  /**
+   * Computes the isotopic distribution of a formula. The coefficient of the formula is ignored.
+   *
+   * @param formula the formula
+   * @return the isotopic distribution of the formula
+   * @throws IllegalArgumentException if the formula contains an element that has no isotopes in
+   *         {@link IsotopeTable}
+   */
+
+  public IsotopeDistribution compute(Formula formula) {
+    return compute(PackedFormula.of(formula));
+  }
+
+  /**
+   * Computes the isotopic distribution of a formula. The coefficient of the formula is ignored.
+   *
+   * @param formula the formula
+   * @return the isotopic distribution of the formula
+   * @throws IllegalArgumentException if the formula contains an element that has no isotopes in
+   *         {@link IsotopeTable}
+   */
+
+  public IsotopeDistribution compute(PackedFormula formula) {
+    Spectrum result = Spectrum.ONE;
+    double monoisotopicMass = 0;
+    for (int index = 0; index < formula.size(); index++) {
+      int atomicNumber = formula.atomicNumberAt(index);
+      int count = formula.countAt(index);
+      if (IsotopeTable.numOfIsotopes(atomicNumber) == 0) {
+        throw new IllegalArgumentException("No isotope data for element: "
+            + PeriodicTable.symbol(atomicNumber));
+      }
+      monoisotopicMass += count
+          * IsotopeTable.isotopeMass(atomicNumber, IsotopeTable.mostAbundantIsotope(atomicNumber));
+      result = convolve(result, power(atomicNumber, count));
+    }
+    return result.toDistribution(monoisotopicMass, pruneThreshold);
+  }
+
+  /**
+   * Computes the isotopic distributions of a list of formulas. Formulas that can't be computed get
+   * null rather than stopping the whole list.
+   *
+   * @param formulas the formulas, such as "C6H12O6"
+   * @return the distribution of each formula, in the same order
+   */
+
+  public List<IsotopeDistribution> computeAll(List<? extends CharSequence> formulas) {
+    List<IsotopeDistribution> results = new ArrayList<IsotopeDistribution>(formulas.size());
+    for (CharSequence formula : formulas) {
+      IsotopeDistribution distribution;
+      try {
+        distribution = compute(formula);
+      } catch (IllegalArgumentException e) {
+        distribution = null;
+      }
+      results.add(distribution);
+    }
+    return results;
+  }
+
+  /* UTILITY METHODS */
+
+  // The distribution of count atoms of an element, by repeated squaring
+  private Spectrum power(int atomicNumber, int count) {
+    Spectrum[] elementPowers = powers[atomicNumber];
+    if (elementPowers == null) {
+      elementPowers = new Spectrum[Integer.SIZE - 1];
+      elementPowers[0] = Spectrum.ofElement(atomicNumber);
+      powers[atomicNumber] = elementPowers;
+    }
+    Spectrum result = Spectrum.ONE;
+    for (int bit = 0; count >>> bit != 0; bit++) {
+      if (elementPowers[bit] == null) {
+        elementPowers[bit] = convolve(elementPowers[bit - 1], elementPowers[bit - 1]);
+      }
+      if ((count >>> bit & 1) != 0) {
+        result = convolve(result, elementPowers[bit]);
+      }
+    }
+    return result;
+  }
+
+  private Spectrum convolve(Spectrum a, Spectrum b) {
+    if (a == Spectrum.ONE) {
+      return b;
+    }
+    if (b == Spectrum.ONE) {
+      return a;
+    }
+    int length = a.length() + b.length() - 1;
+    double[] abundances = new double[length];
+    double[] defects = new double[length];
+    if (Math.min(a.length(), b.length()) < FFT_MIN_LENGTH) {
+      for (int i = 0; i < a.length(); i++) {
+        for (int j = 0; j < b.length(); j++) {
+          abundances[i + j] += a.abundances[i] * b.abundances[j];
+          defects[i + j] += a.abundances[i] * b.defects[j] + a.defects[i] * b.abundances[j];
+        }
+      }
+    } else {
+      convolveByFft(a, b, abundances, defects);
+    }
+    return Spectrum.pruned(a.firstNominalMass + b.firstNominalMass, abundances, defects,
+        pruneThreshold);
+  }
+
+  /*
+   * Both halves of a distribution are real, so each is packed into one complex sequence: the
+   * abundances as the real part and the mass defects as the imaginary part. After the forward
+   * transforms the two are separated by symmetry, multiplied, and packed again for a single
+   * inverse transform.
+   */
+  private static void convolveByFft(Spectrum a, Spectrum b, double[] abundances,
+      double[] defects) {
+    int size = Integer.highestOneBit(abundances.length - 1) << 1;
+    double[] aReal = Arrays.copyOf(a.abundances, size);
+    double[] aImaginary = Arrays.copyOf(a.defects, size);
+    double[] bReal = Arrays.copyOf(b.abundances, size);
+    double[] bImaginary = Arrays.copyOf(b.defects, size);
+    fft(aReal, aImaginary, false);
+    fft(bReal, bImaginary, false);
+    double[] real = new double[size];
+    double[] imaginary = new double[size];
+    for (int k = 0; k < size; k++) {
+      int mirror = (size - k) & (size - 1);
+      // Transform of the abundances (p) and of the defects (q) of a and b
+      double apRe = (aReal[k] + aReal[mirror]) / 2;
+      double apIm = (aImaginary[k] - aImaginary[mirror]) / 2;
+      double aqRe = (aImaginary[k] + aImaginary[mirror]) / 2;
+      double aqIm = (aReal[mirror] - aReal[k]) / 2;
+      double bpRe = (bReal[k] + bReal[mirror]) / 2;
+      double bpIm = (bImaginary[k] - bImaginary[mirror]) / 2;
+      double bqRe = (bImaginary[k] + bImaginary[mirror]) / 2;
+      double bqIm = (bReal[mirror] - bReal[k]) / 2;
+      // P = Ap Bp and Q = Ap Bq + Aq Bp, packed as P + iQ
+      double pRe = apRe * bpRe - apIm * bpIm;
+      double pIm = apRe * bpIm + apIm * bpRe;
+      double qRe = apRe * bqRe - apIm * bqIm + aqRe * bpRe - aqIm * bpIm;
+      double qIm = apRe * bqIm + apIm * bqRe + aqRe * bpIm + aqIm * bpRe;
+      real[k] = pRe - qIm;
+      imaginary[k] = pIm + qRe;
+    }
+    fft(real, imaginary, true);
+    for (int index = 0; index < abundances.length; index++) {
+      // Rounding can leave tiny negative abundances where there should be none
+      abundances[index] = Math.max(real[index], 0);
+      defects[index] = imaginary[index];
+    }
+  }
+
+  // An iterative radix-2 FFT; the inverse transform is scaled by 1 / size.
+  private static void fft(double[] real, double[] imaginary, boolean inverse) {
+    int size = real.length;
+    for (int i = 1, j = 0; i < size; i++) {
+      int bit = size >> 1;
+      for (; (j & bit) != 0; bit >>= 1) {
+        j ^= bit;
+      }
+      j ^= bit;
+      if (i < j) {
+        double swap = real[i];
+        real[i] = real[j];
+        real[j] = swap;
+        swap = imaginary[i];
+        imaginary[i] = imaginary[j];
+        imaginary[j] = swap;
+      }
+    }
+    for (int length = 2; length <= size; length <<= 1) {
+      double angle = (inverse ? 2 : -2) * Math.PI / length;
+      int half = length >> 1;
+      for (int k = 0; k < half; k++) {
+        double wRe = Math.cos(angle * k);
+        double wIm = Math.sin(angle * k);
+        for (int start = 0; start < size; start += length) {
+          int top = start + k;
+          int bottom = top + half;
+          double re = real[bottom] * wRe - imaginary[bottom] * wIm;
+          double im = real[bottom] * wIm + imaginary[bottom] * wRe;
+          real[bottom] = real[top] - re;
+          imaginary[bottom] = imaginary[top] - im;
+          real[top] += re;
+          imaginary[top] += im;
+        }
+      }
+    }
+    if (inverse) {
+      for (int index = 0; index < size; index++) {
+        real[index] /= size;
+        imaginary[index] /= size;
+      }
+    }
+  }
+
+  /*
+   * A distribution over consecutive nominal masses. Each entry holds the abundance of its nominal
+   * mass and the abundance times the mean mass defect (exact mass minus nominal mass) of the
+   * molecules in it. Convolving the products rather than the masses keeps both halves small, so
+   * neither swamps the other in the FFT.
+   */
+  private static final class Spectrum {
+
+    // The distribution of nothing, which leaves any distribution it is convolved with unchanged
+    static final Spectrum ONE = new Spectrum(0, new double[] {1}, new double[] {0});
+
+    final int firstNominalMass;
+    final double[] abundances;
+    final double[] defects;
+
+    Spectrum(int firstNominalMass, double[] abundances, double[] defects) {
+      this.firstNominalMass = firstNominalMass;
+      this.abundances = abundances;
+      this.defects = defects;
+    }
+
+    static Spectrum ofElement(int atomicNumber) {
+      int numOfIsotopes = IsotopeTable.numOfIsotopes(atomicNumber);
+      int first = IsotopeTable.massNumber(atomicNumber, 0);
+      int length = IsotopeTable.massNumber(atomicNumber, numOfIsotopes - 1) - first + 1;
+      double[] abundances = new double[length];
+      double[] defects = new double[length];
+      for (int isotope = 0; isotope < numOfIsotopes; isotope++) {
+        int massNumber = IsotopeTable.massNumber(atomicNumber, isotope);
+        double abundance = IsotopeTable.isotopeAbundance(atomicNumber, isotope);
+        abundances[massNumber - first] = abundance;
+        defects[massNumber - first] =
+            abundance * (IsotopeTable.isotopeMass(atomicNumber, isotope) - massNumber);
+      }
+      return new Spectrum(first, abundances, defects);
+    }
+
+    // Drops the entries at both ends that are below the threshold
+    static Spectrum pruned(int firstNominalMass, double[] abundances, double[] defects,
+        double threshold) {
+      int from = 0;
+      int to = abundances.length;
+      while (from < to - 1 && abundances[from] < threshold) {
+        from++;
+      }
+      while (to - 1 > from && abundances[to - 1] < threshold) {
+        to--;
+      }
+      if (from == 0 && to == abundances.length) {
+        return new Spectrum(firstNominalMass, abundances, defects);
+      }
+      return new Spectrum(firstNominalMass + from, Arrays.copyOfRange(abundances, from, to),
+          Arrays.copyOfRange(defects, from, to));
+    }
+
+    int length() {
+      return abundances.length;
+    }
+
+    // Peaks inside the distribution that are below the threshold are left out as well.
+    IsotopeDistribution toDistribution(double monoisotopicMass, double threshold) {
+      int numOfPeaks = 0;
+      for (double abundance : abundances) {
+        if (abundance > 0 && abundance >= threshold) {
+          numOfPeaks++;
+        }
+      }
+      int[] nominalMasses = new int[numOfPeaks];
+      double[] masses = new double[numOfPeaks];
+      double[] peakAbundances = new double[numOfPeaks];
+      int peak = 0;
+      for (int index = 0; index < abundances.length; index++) {
+        if (abundances[index] > 0 && abundances[index] >= threshold) {
+          nominalMasses[peak] = firstNominalMass + index;
+          masses[peak] = firstNominalMass + index + defects[index] / abundances[index];
+          peakAbundances[peak] = abundances[index];
+          peak++;
+        }
+      }
+      return new IsotopeDistribution(nominalMasses, masses, peakAbundances, monoisotopicMass);
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util;
+
+import java.util.Locale;
+
+/**
+ * The isotopic distribution of a formula, as computed by {@link IsotopeCalculator}. Molecules are
+ * grouped by nominal mass, the sum of the mass numbers of their atoms, which is how a mass
+ * spectrometer of ordinary resolution sees them. Each peak has the abundance of its group and the
+ * mean exact mass of the molecules in it.
+ * <p>
+ * Peaks are in order of mass. Peaks too small to matter were pruned while computing the
+ * distribution, so the abundances may add up to slightly less than 1.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class IsotopeDistribution {
+
+  private final int[] nominalMasses;
+  private final double[] masses;
+  private final double[] abundances;
+  private final double monoisotopicMass;
+  private final int tallestPeak;
+
+  // The arrays are not copied.
+  IsotopeDistribution(int[] nominalMasses, double[] masses, double[] abundances,
+      double monoisotopicMass) {
+    this.nominalMasses = nominalMasses;
+    this.masses = masses;
+    this.abundances = abundances;
+    this.monoisotopicMass = monoisotopicMass;
+    int tallest = 0;
+    for (int peak = 1; peak < abundances.length; peak++) {
+      if (abundances[peak] > abundances[tallest]) {
+        tallest = peak;
+      }
+    }
+    this.tallestPeak = tallest;
+  }
+
+  /**
+   * Gets the number of peaks.
+   *
+   * @return the number of peaks
+   */
+
+  public int size() {
+    return abundances.length;
+  }
+
+  /**
+   * Gets the nominal mass of a peak.
+   *
+   * @param peak the index of the peak
+   * @return the sum of the mass numbers of the atoms in the molecules of this peak
+   */
+
+  public int nominalMassAt(int peak) {
+    return nominalMasses[peak];
+  }
+
+  /**
+   * Gets the mean exact mass of the molecules in a peak.
+   *
+   * @param peak the index of the peak
+   * @return the mass of the peak, in u
+   */
+
+  public double massAt(int peak) {
+    return masses[peak];
+  }
+
+  /**
+   * Gets the abundance of a peak.
+   *
+   * @param peak the index of the peak
+   * @return the fraction of all molecules that are in this peak
+   */
+
+  public double abundanceAt(int peak) {
+    return abundances[peak];
+  }
+
+  /**
+   * Gets the intensity of a peak relative to the tallest peak, as a mass spectrum shows it.
+   *
+   * @param peak the index of the peak
+   * @return the intensity of the peak, where the tallest peak is 100
+   */
+
+  public double relativeIntensityAt(int peak) {
+    return abundances[peak] / abundances[tallestPeak] * 100;
+  }
+
+  /**
+   * Gets the index of the tallest peak.
+   *
+   * @return the index of the most abundant peak
+   */
+
+  public int tallestPeak() {
+    return tallestPeak;
+  }
+
+  /**
+   * Gets the monoisotopic mass: the mass of the molecule made only of the most abundant isotope
+   * of each element.
+   *
+   * @return the monoisotopic mass, in u
+   */
+
+  public double monoisotopicMass() {
+    return monoisotopicMass;
+  }
+
+  /**
+   * Gets the mean mass of all the molecules in the distribution. It is close to the molar mass
+   * found by {@link Analysis#computeMolarMass(String)}.
+   *
+   * @return the average mass, in u
+   */
+
+  public double averageMass() {
+    double total = 0;
+    double weightedMass = 0;
+    for (int peak = 0; peak < abundances.length; peak++) {
+      total += abundances[peak];
+      weightedMass += abundances[peak] * masses[peak];
+    }
+    return weightedMass / total;
+  }
+
+  /**
+   * Returns the peaks as "mass:relative intensity" pairs separated by spaces, e.g.
+   * "18.011:100.000 19.015:0.061 20.015:0.205".
+   */
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(abundances.length * 16);
+    for (int peak = 0; peak < abundances.length; peak++) {
+      if (peak > 0) {
+        builder.append(' ');
+      }
+      builder.append(String.format(Locale.ROOT, "%.3f:%.3f", masses[peak], relativeIntensityAt(peak)));
+    }
+    return builder.toString();
+  }
+}
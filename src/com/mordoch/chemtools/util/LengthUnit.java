@@ -0,0 +1,79 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util;
+
+/**
+ * Units of length, from meters down to picometers.
+ * <p>
+ * Conversions are described by {@link PhysicalUnit}, e.g.
+ * {@code LengthUnit.PICOMETER.convert(value, LengthUnit.METER)}.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public enum LengthUnit implements PhysicalUnit<LengthUnit> {
+
+  METER("m", 0),
+  CENTIMETER("cm", -2),
+  MILLIMETER("mm", -3),
+  MICRON("um", -6),
+  NANOMETER("nm", -9),
+  ANGSTROM("A", -10),
+  PICOMETER("pm", -12);
+
+  private static final UnitTable TABLE;
+
+  static {
+    LengthUnit[] values = values();
+    UnitTable.Unit[] units = new UnitTable.Unit[values.length];
+    for (int index = 0; index < values.length; index++) {
+      units[index] = values[index].unit;
+    }
+    TABLE = new UnitTable("length", units);
+  }
+
+  private final UnitTable.Unit unit;
+
+  private LengthUnit(String symbol, int exponent) {
+    unit = new UnitTable.Unit(symbol, exponent);
+  }
+
+  @Override
+  public String getSymbol() {
+    return unit.symbol;
+  }
+
+  /**
+   * Finds a unit by its symbol.
+   *
+   * @param symbol the symbol of the unit, e.g. "nm"
+   * @return the unit with that symbol
+   * @throws IllegalArgumentException if no unit has that symbol
+   */
+
+  public static LengthUnit fromSymbol(String symbol) {
+    return values()[TABLE.indexOf(symbol)];
+  }
+
+  @Override
+  public double factorTo(LengthUnit to) {
+    return TABLE.factor(ordinal(), to.ordinal());
+  }
+}
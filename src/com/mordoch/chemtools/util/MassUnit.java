@@ -0,0 +1,81 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util;
+
+/**
+ * Units of mass, from kilograms down to atomic mass units.
+ * <p>
+ * Conversions are described by {@link PhysicalUnit}, e.g.
+ * {@code MassUnit.KILOGRAM.convert(value, MassUnit.MILLIGRAM)}.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public enum MassUnit implements PhysicalUnit<MassUnit> {
+
+  KILOGRAM("kg", 3),
+  GRAM("g", 0),
+  MILLIGRAM("mg", -3),
+  MICROGRAM("ug", -6),
+  ATOMIC_MASS_UNIT("amu", 0, Constants.ATOMIC_MASS_UNIT_GM, 1 / Constants.ATOMIC_MASS_UNIT_GM);
+
+  private static final UnitTable TABLE;
+
+  static {
+    MassUnit[] values = values();
+    UnitTable.Unit[] units = new UnitTable.Unit[values.length];
+    for (int index = 0; index < values.length; index++) {
+      units[index] = values[index].unit;
+    }
+    TABLE = new UnitTable("mass", units);
+  }
+
+  private final UnitTable.Unit unit;
+
+  private MassUnit(String symbol, int exponent) {
+    unit = new UnitTable.Unit(symbol, exponent);
+  }
+
+  private MassUnit(String symbol, int exponent, double scale, double inverse) {
+    unit = new UnitTable.Unit(symbol, exponent, scale, inverse);
+  }
+
+  @Override
+  public String getSymbol() {
+    return unit.symbol;
+  }
+
+  /**
+   * Finds a unit by its symbol.
+   *
+   * @param symbol the symbol of the unit, e.g. "mg"
+   * @return the unit with that symbol
+   * @throws IllegalArgumentException if no unit has that symbol
+   */
+
+  public static MassUnit fromSymbol(String symbol) {
+    return values()[TABLE.indexOf(symbol)];
+  }
+
+  @Override
+  public double factorTo(MassUnit to) {
+    return TABLE.factor(ordinal(), to.ordinal());
+  }
+}
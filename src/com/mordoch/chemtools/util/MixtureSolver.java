@@ -0,0 +1,449 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.mordoch.chemtools.formulatools.Formula;
+import com.mordoch.chemtools.formulatools.PackedFormula;
+import com.mordoch.chemtools.util.elementinfo.PeriodicTable;
+
+/**
+ * Finds the fractions of a set of candidate components that best explain the measured elemental
+ * composition of a mixture. The composition matrix has one row per measured element and one
+ * column per component, holding the percent of that element in the component, as computed by
+ * {@link Analysis#computePercentComposition(String)}. The mass fractions x are the non-negative
+ * least-squares solution of A x = b, where b is the measured percents, found with the active-set
+ * method of Lawson and Hanson.
+ * <p>
+ * The method works on the normal equations: A<sup>T</sup>A is computed once per solver, so each
+ * sample costs one product A<sup>T</sup>b and a few small Cholesky factorizations, however many
+ * components there are. At most one component per measured element ends up with a non-zero
+ * fraction. The fractions are not forced to add up to 1; their sum shows how much of the sample
+ * the components account for.
+ * </p>
+ * <p>
+ * A solver is immutable and can be shared between threads. Batches of samples are solved in
+ * parallel on a ForkJoinPool.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class MixtureSolver {
+
+  // Batches are split into tasks of at least this many samples
+  private static final int MIN_BATCH_SAMPLES = 16;
+  // Relative size below which a gradient or a fraction counts as zero
+  private static final double EPSILON = 1e-12;
+
+  private final int numOfElements;
+  private final int numOfComponents;
+  // The composition matrix, by component: percents[component * numOfElements + element]
+  private final double[] percents;
+  // A^T A, by row
+  private final double[] gram;
+  private final double[] molarMasses;
+  private final ForkJoinPool pool;
+
+  /**
+   * Creates a solver that solves batches on the common ForkJoinPool.
+   * 
+   * @param components the candidate components, e.g. the Formulas for "C6H12O6" and "C12H22O11"
+   * @param elements the symbols of the measured elements, e.g. "C", "H" and "O"
+   * @throws IllegalArgumentException if an element is unknown
+   */
+
+  public MixtureSolver(List<Formula> components, String[] elements) {
+    this(components, elements, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a solver.
+   * 
+   * @param components the candidate components, e.g. the Formulas for "C6H12O6" and "C12H22O11"
+   * @param elements the symbols of the measured elements, e.g. "C", "H" and "O"
+   * @param pool the pool to solve batches on
+   * @throws IllegalArgumentException if an element is unknown
+   */
+
+  public MixtureSolver(List<Formula> components, String[] elements, ForkJoinPool pool) {
+    this.numOfElements = elements.length;
+    this.numOfComponents = components.size();
+    this.pool = pool;
+    int[] atomicNumbers = new int[elements.length];
+    for (int index = 0; index < elements.length; index++) {
+      atomicNumbers[index] = PeriodicTable.atomicNumberOf(elements[index]);
+      if (atomicNumbers[index] == 0) {
+        throw new IllegalArgumentException("Unknown element: " + elements[index]);
+      }
+    }
+    this.percents = new double[numOfComponents * numOfElements];
+    this.molarMasses = new double[numOfComponents];
+    for (int component = 0; component < numOfComponents; component++) {
+      PackedFormula formula = PackedFormula.of(components.get(component));
+      molarMasses[component] = Analysis.computeMolarMass(formula);
+      for (int element = 0; element < numOfElements; element++) {
+        percents[component * numOfElements + element] = formula.countOf(atomicNumbers[element])
+            * PeriodicTable.mass(atomicNumbers[element]) / molarMasses[component] * 100;
+      }
+    }
+    this.gram = new double[numOfComponents * numOfComponents];
+    for (int row = 0; row < numOfComponents; row++) {
+      for (int column = row; column < numOfComponents; column++) {
+        double sum = 0;
+        for (int element = 0; element < numOfElements; element++) {
+          sum += percents[row * numOfElements + element]
+              * percents[column * numOfElements + element];
+        }
+        gram[row * numOfComponents + column] = sum;
+        gram[column * numOfComponents + row] = sum;
+      }
+    }
+  }
+
+  /**
+   * Gets the number of candidate components.
+   * 
+   * @return the number of components
+   */
+
+  public int numOfComponents() {
+    return numOfComponents;
+  }
+
+  /**
+   * Finds the fractions of the components in a sample.
+   * 
+   * @param measured the measured percent of each element, in the order given to the constructor
+   * @return the fractions of the components
+   * @throws IllegalArgumentException if there is not one percent per element
+   */
+
+  public Mixture solve(double[] measured) {
+    if (measured.length != numOfElements) {
+      throw new IllegalArgumentException("Expected " + numOfElements + " percents, got "
+          + measured.length);
+    }
+    int n = numOfComponents;
+    // The right-hand side of the normal equations, A^T b
+    double[] projection = new double[n];
+    for (int component = 0; component < n; component++) {
+      double sum = 0;
+      for (int element = 0; element < numOfElements; element++) {
+        sum += percents[component * numOfElements + element] * measured[element];
+      }
+      projection[component] = sum;
+    }
+    double[] fractions = new double[n];
+    double[] gradient = projection.clone();
+    double tolerance = EPSILON * Math.max(1, maxAbs(projection));
+    boolean[] passive = new boolean[n];
+    boolean[] rejected = new boolean[n];
+    int[] passiveSet = new int[n];
+    double[] solution = new double[n];
+    // Independent columns never outnumber the elements, so the passive set stays small
+    int maxPassive = Math.min(n, numOfElements + 1);
+    double[] factor = new double[maxPassive * maxPassive];
+    int iterations = 0;
+    int maxIterations = 3 * n + 10;
+    while (iterations++ < maxIterations) {
+      // Free the component whose fraction would improve the fit the most
+      int entering = -1;
+      for (int component = 0; component < n; component++) {
+        if (!passive[component] && !rejected[component] && gradient[component] > tolerance
+            && (entering < 0 || gradient[component] > gradient[entering])) {
+          entering = component;
+        }
+      }
+      if (entering < 0) {
+        break;
+      }
+      passive[entering] = true;
+      boolean moved = false;
+      while (true) {
+        int size = collect(passive, passiveSet);
+        if (size > maxPassive || !solvePassive(passiveSet, size, projection, factor, solution)) {
+          // The new component depends linearly on the others; leave it out for now
+          passive[entering] = false;
+          rejected[entering] = true;
+          break;
+        }
+        double step = 1;
+        for (int index = 0; index < size; index++) {
+          int component = passiveSet[index];
+          if (solution[index] <= 0) {
+            double difference = fractions[component] - solution[index];
+            step = Math.min(step, difference > 0 ? fractions[component] / difference : 0);
+          }
+        }
+        moved |= step > 0;
+        if (step >= 1) {
+          for (int index = 0; index < size; index++) {
+            fractions[passiveSet[index]] = solution[index];
+          }
+          break;
+        }
+        // Move as far towards the solution as the constraints allow, then drop the components
+        // that reached zero
+        for (int index = 0; index < size; index++) {
+          int component = passiveSet[index];
+          fractions[component] += step * (solution[index] - fractions[component]);
+          if (fractions[component] <= EPSILON) {
+            fractions[component] = 0;
+            passive[component] = false;
+          }
+        }
+      }
+      if (moved) {
+        Arrays.fill(rejected, false);
+        computeGradient(projection, fractions, gradient);
+      } else {
+        // The component could not enter without going negative, so don't try it again yet
+        passive[entering] = false;
+        rejected[entering] = true;
+      }
+    }
+    return new Mixture(fractions, molarMasses, residual(fractions, measured));
+  }
+
+  /**
+   * Finds the fractions of the components in a batch of samples, in parallel.
+   * 
+   * @param samples the measured percents of each sample
+   * @return the fractions of the components in each sample, in the order of the samples
+   * @throws IllegalArgumentException if a sample does not have one percent per element
+   */
+
+  public Mixture[] solveAll(double[][] samples) {
+    for (double[] sample : samples) {
+      if (sample.length != numOfElements) {
+        throw new IllegalArgumentException("Expected " + numOfElements + " percents, got "
+            + sample.length);
+      }
+    }
+    Mixture[] results = new Mixture[samples.length];
+    int threshold =
+        Math.max(MIN_BATCH_SAMPLES, samples.length / (pool.getParallelism() * 4));
+    pool.invoke(new BatchTask(samples, results, 0, samples.length, threshold));
+    return results;
+  }
+
+  /**
+   * The fractions of the components in a sample.
+   */
+
+  public static final class Mixture {
+
+    private final double[] massFractions;
+    private final double[] moleFractions;
+    private final double residual;
+
+    Mixture(double[] massFractions, double[] molarMasses, double residual) {
+      this.massFractions = massFractions;
+      this.residual = residual;
+      this.moleFractions = new double[massFractions.length];
+      double totalMoles = 0;
+      for (int component = 0; component < massFractions.length; component++) {
+        moleFractions[component] = massFractions[component] / molarMasses[component];
+        totalMoles += moleFractions[component];
+      }
+      for (int component = 0; component < massFractions.length && totalMoles > 0; component++) {
+        moleFractions[component] /= totalMoles;
+      }
+    }
+
+    public int numOfComponents() {
+      return massFractions.length;
+    }
+
+    /**
+     * Gets the mass fraction of a component, i.e. the grams of it in each gram of sample.
+     * 
+     * @param component the index of the component
+     * @return the mass fraction
+     */
+
+    public double massFractionAt(int component) {
+      return massFractions[component];
+    }
+
+    /**
+     * Gets the mole fraction of a component among the components.
+     * 
+     * @param component the index of the component
+     * @return the mole fraction, or 0 if no component was found
+     */
+
+    public double moleFractionAt(int component) {
+      return moleFractions[component];
+    }
+
+    /**
+     * Gets how far the composition of the solution is from the measured one.
+     * 
+     * @return the Euclidean norm of the difference, in percentage points
+     */
+
+    public double residual() {
+      return residual;
+    }
+
+    /**
+     * Returns the non-zero mass fractions, e.g. "{0: 0.2500, 3: 0.7500} (residual 0.0012)".
+     */
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder("{");
+      for (int component = 0; component < massFractions.length; component++) {
+        if (massFractions[component] > 0) {
+          if (builder.length() > 1) {
+            builder.append(", ");
+          }
+          builder.append(component).append(": ")
+              .append(String.format(Locale.ROOT, "%.4f", massFractions[component]));
+        }
+      }
+      return builder.append("} (residual ")
+          .append(String.format(Locale.ROOT, "%.4f", residual)).append(')').toString();
+    }
+  }
+
+  /* UTILITY METHODS */
+
+  private static int collect(boolean[] passive, int[] passiveSet) {
+    int size = 0;
+    for (int component = 0; component < passive.length; component++) {
+      if (passive[component]) {
+        passiveSet[size++] = component;
+      }
+    }
+    return size;
+  }
+
+  // Solves the normal equations restricted to the passive components by Cholesky factorization
+  private boolean solvePassive(int[] passiveSet, int size, double[] projection, double[] factor,
+      double[] solution) {
+    int n = numOfComponents;
+    for (int row = 0; row < size; row++) {
+      for (int column = 0; column <= row; column++) {
+        double sum = gram[passiveSet[row] * n + passiveSet[column]];
+        for (int k = 0; k < column; k++) {
+          sum -= factor[row * size + k] * factor[column * size + k];
+        }
+        if (row == column) {
+          // A pivot that is tiny next to the diagonal means the column is nearly dependent
+          if (sum <= EPSILON * 1e3 * gram[passiveSet[row] * n + passiveSet[row]]) {
+            return false;
+          }
+          factor[row * size + row] = Math.sqrt(sum);
+        } else {
+          factor[row * size + column] = sum / factor[column * size + column];
+        }
+      }
+    }
+    for (int row = 0; row < size; row++) {
+      double sum = projection[passiveSet[row]];
+      for (int k = 0; k < row; k++) {
+        sum -= factor[row * size + k] * solution[k];
+      }
+      solution[row] = sum / factor[row * size + row];
+    }
+    for (int row = size - 1; row >= 0; row--) {
+      double sum = solution[row];
+      for (int k = row + 1; k < size; k++) {
+        sum -= factor[k * size + row] * solution[k];
+      }
+      solution[row] = sum / factor[row * size + row];
+    }
+    return true;
+  }
+
+  // The gradient of the fit, A^T b - A^T A x; only the few non-zero fractions contribute
+  private void computeGradient(double[] projection, double[] fractions, double[] gradient) {
+    int n = numOfComponents;
+    System.arraycopy(projection, 0, gradient, 0, n);
+    for (int column = 0; column < n; column++) {
+      double fraction = fractions[column];
+      if (fraction != 0) {
+        // A^T A is symmetric, so its rows can stand in for its columns
+        for (int row = 0; row < n; row++) {
+          gradient[row] -= gram[column * n + row] * fraction;
+        }
+      }
+    }
+  }
+
+  private double residual(double[] fractions, double[] measured) {
+    double sum = 0;
+    for (int element = 0; element < numOfElements; element++) {
+      double fitted = 0;
+      for (int component = 0; component < numOfComponents; component++) {
+        fitted += percents[component * numOfElements + element] * fractions[component];
+      }
+      sum += (fitted - measured[element]) * (fitted - measured[element]);
+    }
+    return Math.sqrt(sum);
+  }
+
+  private static double maxAbs(double[] values) {
+    double max = 0;
+    for (double value : values) {
+      max = Math.max(max, Math.abs(value));
+    }
+    return max;
+  }
+
+  private final class BatchTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double[][] samples;
+    private final Mixture[] results;
+    private final int start;
+    private final int end;
+    private final int threshold;
+
+    BatchTask(double[][] samples, Mixture[] results, int start, int end, int threshold) {
+      this.samples = samples;
+      this.results = results;
+      this.start = start;
+      this.end = end;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= threshold) {
+        for (int index = start; index < end; index++) {
+          results[index] = solve(samples[index]);
+        }
+      } else {
+        int middle = (start + end) >>> 1;
+        invokeAll(new BatchTask(samples, results, start, middle, threshold),
+            new BatchTask(samples, results, middle, end, threshold));
+      }
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * A unit of measurement that can be converted to the other units of its dimension, such as
+ * {@link LengthUnit} or {@link MassUnit}. The units implement {@link #factorTo(PhysicalUnit)} with
+ * a factor looked up in a table computed when their class is loaded, so a conversion is a single
+ * multiplication, and the bulk conversions use the same loops as the bulk methods of
+ * {@link Conversions}.
+ *
+ * @param <U> the type of the units of the same dimension
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public interface PhysicalUnit<U extends PhysicalUnit<U>> {
+
+  /**
+   * Gets the symbol of the unit, e.g. "nm".
+   *
+   * @return the symbol of the unit
+   */
+
+  String getSymbol();
+
+  /**
+   * Gets the number to multiply a value in this unit by to express it in another unit.
+   *
+   * @param to the unit to convert to
+   * @return the conversion factor
+   */
+
+  double factorTo(U to);
+
+  /**
+   * Converts a value in this unit into another unit.
+   *
+   * @param value the value, in this unit
+   * @param to the unit to convert to
+   * @return the value in the given unit
+   */
+
+  default double convert(double value, U to) {
+    return value * factorTo(to);
+  }
+
+  /**
+   * Converts an array of values in this unit into another unit.
+   *
+   * @param values the values, in this unit
+   * @param to the unit to convert to
+   * @param destination the array to write the converted values to; may be values itself
+   * @throws IllegalArgumentException if destination is shorter than values
+   */
+
+  default void convert(double[] values, U to, double[] destination) {
+    Conversions.multiply(values, destination, factorTo(to));
+  }
+
+  /**
+   * Converts the remaining values of a buffer, in place, from this unit into another unit. The
+   * position of the buffer does not change.
+   *
+   * @param values the values, in this unit
+   * @param to the unit to convert to
+   */
+
+  default void convert(DoubleBuffer values, U to) {
+    Conversions.multiply(values, factorTo(to));
+  }
+}
@@ -16,11 +16,9 @@
 
 package com.mordoch.chemtools.util;
 
-import java.util.List;
-
 import com.mordoch.chemtools.formulatools.Equation;
-import com.mordoch.chemtools.formulatools.Formula;
 import com.mordoch.chemtools.formulatools.FtHelper;
+import com.mordoch.chemtools.util.metrics.Metrics;
 
 public class Stoichiometry {
 
@@ -39,15 +37,7 @@ public class Stoichiometry {
 
   public static double findReactantRatio(String equation, int relativeToReactant) {
 
-    Equation parsedEquation = FtHelper.parseEquation(equation);
-    Formula remove = parsedEquation.getReactants().get(relativeToReactant);
-    double ratio = remove.getCoefficient();
-    parsedEquation.getReactants().remove(relativeToReactant);
-    for (Formula formula : parsedEquation.getReactants()) {
-      ratio /= formula.getCoefficient();
-    }
-    parsedEquation.getReactants().add(relativeToReactant, remove);
-    return ratio;
+    return findReactantRatio(FtHelper.parseEquation(equation), relativeToReactant);
 
   }
 
@@ -62,14 +52,22 @@ public class Stoichiometry {
 
   public static double findReactantRatio(Equation equation, int relativeToReactant) {
 
-    Formula remove = equation.getReactants().get(relativeToReactant);
-    double ratio = remove.getCoefficient();
-    equation.getReactants().remove(relativeToReactant);
-    for (Formula formula : equation.getReactants()) {
-      ratio /= formula.getCoefficient();
+    long start = Metrics.start();
+    try {
+      // Read the coefficients in place; the equation itself is never modified.
+      if (relativeToReactant < 0 || relativeToReactant >= equation.numOfReactants()) {
+        throw new IndexOutOfBoundsException("No such reactant: " + relativeToReactant);
+      }
+      double ratio = equation.coefficientAt(relativeToReactant);
+      for (int index = 0; index < equation.numOfReactants(); index++) {
+        if (index != relativeToReactant) {
+          ratio /= equation.coefficientAt(index);
+        }
+      }
+      return ratio;
+    } finally {
+      Metrics.REACTANT_RATIO.stop(start);
     }
-    equation.getReactants().add(relativeToReactant, remove);
-    return ratio;
 
   }
 
@@ -84,15 +82,7 @@ public class Stoichiometry {
 
   public static double findProductRatio(String equation, int relativeToProduct) {
 
-    Equation parsedEquation = FtHelper.parseEquation(equation);
-    Formula remove = parsedEquation.getProducts().get(relativeToProduct);
-    double ratio = remove.getCoefficient();
-    parsedEquation.getProducts().remove(relativeToProduct);
-    for (Formula formula : parsedEquation.getProducts()) {
-      ratio /= formula.getCoefficient();
-    }
-    parsedEquation.getProducts().add(relativeToProduct, remove);
-    return ratio;
+    return findProductRatio(FtHelper.parseEquation(equation), relativeToProduct);
 
   }
 
@@ -107,14 +97,22 @@ public class Stoichiometry {
 
   public static double findProductRatio(Equation equation, int relativeToProduct) {
 
-    Formula removed = equation.getProducts().get(relativeToProduct);
-    double ratio = removed.getCoefficient();
-    equation.getProducts().remove(relativeToProduct);
-    for (Formula formula : equation.getProducts()) {
-      ratio /= formula.getCoefficient();
+    long start = Metrics.start();
+    try {
+      // Read the coefficients in place; the equation itself is never modified.
+      if (relativeToProduct < 0 || relativeToProduct >= equation.numOfProducts()) {
+        throw new IndexOutOfBoundsException("No such product: " + relativeToProduct);
+      }
+      double ratio = equation.coefficientAt(equation.numOfReactants() + relativeToProduct);
+      for (int index = 0; index < equation.numOfProducts(); index++) {
+        if (index != relativeToProduct) {
+          ratio /= equation.coefficientAt(equation.numOfReactants() + index);
+        }
+      }
+      return ratio;
+    } finally {
+      Metrics.PRODUCT_RATIO.stop(start);
     }
-    equation.getProducts().add(relativeToProduct, removed);
-    return ratio;
 
   }
 
@@ -155,9 +153,13 @@ public class Stoichiometry {
 
   public static double percentYield(Equation equation, double actualYield, double gramsOfReactant,
       int indexOfReactant, int indexOfProduct) {
-    double theoreticalYield =
-        theoreticalYield(equation, gramsOfReactant, indexOfReactant, indexOfProduct);
-    return percentYield(actualYield, theoreticalYield);
+    long start = Metrics.start();
+    try {
+      return equation.molRatios().percentYield(actualYield, gramsOfReactant, indexOfReactant - 1,
+          indexOfProduct - 1);
+    } finally {
+      Metrics.PERCENT_YIELD.stop(start);
+    }
   }
 
   /**
@@ -188,25 +190,8 @@ public class Stoichiometry {
 
   public static double theoreticalYield(String baseEquation, double gramsOfReactant,
       int indexOfReactant, int indexOfProduct) {
-    // indexOfReactant and indexOfProduct are expected to be a natural numbers, so subtract 1 for
-    // the actual index.
-    indexOfReactant -= 1;
-    indexOfProduct -= 1;
-    Equation parsedEquation = FtHelper.parseEquation(baseEquation);
-    List<Formula> reactants = parsedEquation.getReactants();
-    List<Formula> products = parsedEquation.getProducts();
-    // First find the mol ratio relative to the reactant given
-    double ratio = findProductRatio(parsedEquation, indexOfProduct);
-    // Find the moles of reactant
-    String reactant = reactants.get(indexOfReactant).toString();
-    double reactantMolarMass = Analysis.computeMolarMass(reactant);
-    double molesOfReactant = Conversions.massToMols(gramsOfReactant, reactantMolarMass);
-    // Get the molar mass of the product and use the formula to find theoretical yield.
-    String product = products.get(indexOfProduct).toString();
-    double productMolarMass = Analysis.computeMolarMass(product);
-    double molesOfProduct = molesOfReactant * ratio;
-    double theoreticalYield = Conversions.molsToMass(molesOfProduct, productMolarMass);
-    return theoreticalYield;
+    return theoreticalYield(FtHelper.parseEquation(baseEquation), gramsOfReactant,
+        indexOfReactant, indexOfProduct);
 
   }
 
@@ -222,24 +207,18 @@ public class Stoichiometry {
 
   public static double theoreticalYield(Equation equation, double gramsOfReactant,
       int indexOfReactant, int indexOfProduct) {
-    // indexOfReactant and indexOfProduct are expected to be a natural numbers, so subtract 1 for
-    // the actual index.
-    indexOfReactant -= 1;
-    indexOfProduct -= 1;
-    List<Formula> reactants = equation.getReactants();
-    List<Formula> products = equation.getProducts();
-    // First find the mol ratio relative to the reactant given
-    double ratio = findProductRatio(equation, indexOfProduct);
-    // Find the moles of reactant
-    String reactant = reactants.get(indexOfReactant).toString();
-    double reactantMolarMass = Analysis.computeMolarMass(reactant);
-    double molesOfReactant = Conversions.massToMols(gramsOfReactant, reactantMolarMass);
-    // Get the molar mass of the product and use the formula to find theoretical yield.
-    String product = products.get(indexOfProduct).toString();
-    double productMolarMass = Analysis.computeMolarMass(product);
-    double molesOfProduct = molesOfReactant * ratio;
-    double theoreticalYield = Conversions.molsToMass(molesOfProduct, productMolarMass);
-    return theoreticalYield;
+    long start = Metrics.start();
+    try {
+      // indexOfReactant and indexOfProduct are expected to be a natural numbers, so subtract 1 for
+      // the actual index.
+      indexOfReactant -= 1;
+      indexOfProduct -= 1;
+      // Parsed equations are shared, so their ratios are only computed once.
+      return equation.molRatios().theoreticalYield(gramsOfReactant, indexOfReactant,
+          indexOfProduct);
+    } finally {
+      Metrics.THEORETICAL_YIELD.stop(start);
+    }
 
   }
 
@@ -0,0 +1,144 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util;
+
+/**
+ * The conversion factors between the units of one dimension, used by the {@link PhysicalUnit}
+ * enums such as {@link LengthUnit}. Each unit is described as scale &times;
+ * 10<sup>exponent</sup> base units; scale is 1 for every metric prefix, which makes the factor
+ * between two of them an exact power of ten, correctly rounded once rather than the product of
+ * several rounded hops. Converting a unit to itself always has a factor of exactly 1.
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+final class UnitTable {
+
+  // The powers of ten that are exact doubles
+  private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+      1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+  private final String dimension;
+  private final Unit[] units;
+  // factors[from][to] converts a value in from into a value in to
+  private final double[][] factors;
+
+  /**
+   * Builds the table of a dimension.
+   *
+   * @param dimension the name of the dimension, e.g. "length", used in error messages
+   * @param units the units, in the order of the ordinals of their enum
+   */
+
+  UnitTable(String dimension, Unit[] units) {
+    this.dimension = dimension;
+    this.units = units;
+    this.factors = factors(units);
+  }
+
+  /**
+   * Finds the index of a unit by its symbol.
+   *
+   * @param symbol the symbol of the unit, e.g. "nm"
+   * @return the index of the unit with that symbol
+   * @throws IllegalArgumentException if no unit has that symbol
+   */
+
+  int indexOf(String symbol) {
+    for (int index = 0; index < units.length; index++) {
+      if (units[index].symbol.equals(symbol)) {
+        return index;
+      }
+    }
+    throw new IllegalArgumentException("Unknown " + dimension + " unit: " + symbol);
+  }
+
+  double factor(int from, int to) {
+    return factors[from][to];
+  }
+
+  /* UTILITY METHODS */
+
+  private static double[][] factors(Unit[] units) {
+    int numOfUnits = units.length;
+    double[][] factors = new double[numOfUnits][numOfUnits];
+    for (int from = 0; from < numOfUnits; from++) {
+      for (int to = 0; to < numOfUnits; to++) {
+        double powerOfTen = powerOfTen(units[from].exponent - units[to].exponent);
+        if (from == to) {
+          // scale * inverse need not round to exactly 1
+          factors[from][to] = 1;
+        } else if (units[from].scale == 1 && units[to].inverse == 1) {
+          factors[from][to] = powerOfTen;
+        } else {
+          factors[from][to] = units[from].scale * units[to].inverse * powerOfTen;
+        }
+      }
+    }
+    return factors;
+  }
+
+  // Both 10^n and its reciprocal are correctly rounded, since every entry is exact.
+  private static double powerOfTen(int exponent) {
+    if (Math.abs(exponent) >= POWERS_OF_TEN.length) {
+      throw new IllegalArgumentException("Exponent out of range: " + exponent);
+    }
+    return exponent >= 0 ? POWERS_OF_TEN[exponent] : 1 / POWERS_OF_TEN[-exponent];
+  }
+
+  /**
+   * The description of one unit.
+   */
+
+  static final class Unit {
+
+    final String symbol;
+    final int exponent;
+    final double scale;
+    final double inverse;
+
+    /**
+     * Describes a metric unit: 10<sup>exponent</sup> base units.
+     *
+     * @param symbol the symbol of the unit, e.g. "nm"
+     * @param exponent the power of ten of the unit, in base units
+     */
+
+    Unit(String symbol, int exponent) {
+      this(symbol, exponent, 1, 1);
+    }
+
+    /**
+     * Describes a unit that isn't a metric prefix, such as the atomic mass unit.
+     *
+     * @param symbol the symbol of the unit
+     * @param exponent the power of ten of the unit, in base units
+     * @param scale the base units per unit, before the power of ten
+     * @param inverse the units per base unit, before the power of ten; 1 / scale, but given
+     *        separately so that constants such as Avogadro's number stay exact
+     */
+
+    Unit(String symbol, int exponent, double scale, double inverse) {
+      this.symbol = symbol;
+      this.exponent = exponent;
+      this.scale = scale;
+      this.inverse = inverse;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util;
+
+/**
+ * Units of volume, from kiloliters down to microliters.
+ * <p>
+ * Conversions are described by {@link PhysicalUnit}, e.g.
+ * {@code VolumeUnit.MILLILITER.convert(value, VolumeUnit.LITER)}.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public enum VolumeUnit implements PhysicalUnit<VolumeUnit> {
+
+  KILOLITER("kL", 3),
+  LITER("L", 0),
+  MILLILITER("mL", -3),
+  MICROLITER("uL", -6),
+  CUBIC_METER("m3", 3),
+  CUBIC_CENTIMETER("cm3", -3);
+
+  private static final UnitTable TABLE;
+
+  static {
+    VolumeUnit[] values = values();
+    UnitTable.Unit[] units = new UnitTable.Unit[values.length];
+    for (int index = 0; index < values.length; index++) {
+      units[index] = values[index].unit;
+    }
+    TABLE = new UnitTable("volume", units);
+  }
+
+  private final UnitTable.Unit unit;
+
+  private VolumeUnit(String symbol, int exponent) {
+    unit = new UnitTable.Unit(symbol, exponent);
+  }
+
+  @Override
+  public String getSymbol() {
+    return unit.symbol;
+  }
+
+  /**
+   * Finds a unit by its symbol.
+   *
+   * @param symbol the symbol of the unit, e.g. "mL"
+   * @return the unit with that symbol
+   * @throws IllegalArgumentException if no unit has that symbol
+   */
+
+  public static VolumeUnit fromSymbol(String symbol) {
+    return values()[TABLE.indexOf(symbol)];
+  }
+
+  @Override
+  public double factorTo(VolumeUnit to) {
+    return TABLE.factor(ordinal(), to.ordinal());
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright Ariel Mordoch 2014 
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util.elementinfo;
+
+/**
+ * The families of the periodic table.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public enum ElementFamily {
+
+  ALKALI_METAL("Alkali Metal"), ALKALINE_EARTH_METAL("Alkaline Earth Metal"),
+  TRANSITION_METAL("Transition Metal"), POST_TRANSITION_METAL("Post-transition Metal"),
+  METALLOID("Metalloid"), NONMETAL("Nonmetal"), HALOGEN("Halogen"), NOBLE_GAS("Noble Gas"),
+  LANTHANIDE("Lanthanide"), ACTINIDE("Actinide");
+
+  private final String label;
+
+  private ElementFamily(String label) {
+    this.label = label;
+  }
+
+  /**
+   * Returns the label of the family, as stored by {@link FamilyList}, e.g. "Noble Gas".
+   */
+
+  @Override
+  public String toString() {
+    return label;
+  }
+}
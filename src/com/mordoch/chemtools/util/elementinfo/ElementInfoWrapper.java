@@ -45,25 +45,35 @@ public abstract class ElementInfoWrapper<K, V> {
 
   protected Map<K, V> data = new HashMap<K, V>(120, 1.0f);
 
+  // Whether addAll() has filled the Map yet
+  private volatile boolean loaded;
+
   /**
-   * This method should populate the Map with relevant data if and only if the calling method was a
-   * constructor. This can be done by retrieving the running thread's stack trace and getting the
-   * name of the second method on the stack. The method {@link StackTraceElement#getMethodName()} 
-   * should return "&lt;init&gt;" if the calling "method" was a constructor.
+   * This method should populate the Map with relevant data from {@link PeriodicTable}. It is
+   * called once, by {@link #unwrap()}, the first time the Map is needed; element lookups through
+   * {@link #get(Object)} read the PeriodicTable directly and never need the Map.
    */
 
   protected abstract void addAll();
   
   public V get(K key) {
-    return data.get(key);
+    return unwrap().get(key);
   }
   
   /**
-   * Unwraps the Map.
+   * Unwraps the Map, filling it first if this is the first call.
    * @return the Map containing the element data
    */
   
   public Map<K, V> unwrap() {
+    if (!loaded) {
+      synchronized (this) {
+        if (!loaded) {
+          addAll();
+          loaded = true;
+        }
+      }
+    }
     return data;
   }
   
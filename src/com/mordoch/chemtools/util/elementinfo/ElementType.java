@@ -0,0 +1,45 @@
+/*
+ * Copyright Ariel Mordoch 2014 
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util.elementinfo;
+
+/**
+ * The types of element used for determining bond types. Hydrogen has a type of its own.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public enum ElementType {
+
+  HYDROGEN("Hydrogen"), METAL("Metal"), METALLOID("Metalloid"), NONMETAL("Nonmetal");
+
+  private final String label;
+
+  private ElementType(String label) {
+    this.label = label;
+  }
+
+  /**
+   * Returns the label of the type, as stored by {@link TypeList}, e.g. "Nonmetal".
+   */
+
+  @Override
+  public String toString() {
+    return label;
+  }
+}
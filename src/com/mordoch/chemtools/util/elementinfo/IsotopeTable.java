@@ -0,0 +1,282 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util.elementinfo;
+
+/**
+ * The naturally occurring isotopes of the elements: the exact mass of each isotope and its
+ * abundance on Earth, as a fraction. Like {@link PeriodicTable}, it is indexed by atomic number.
+ * <p>
+ * The table covers every element with a stable isotope up to barium, platinum through bismuth,
+ * thorium and uranium, which includes everything found in organic and biological molecules.
+ * Other elements have no isotopes in the table; {@link #numOfIsotopes(int)} returns 0 for them.
+ * Isotopes of each element are in order of mass.
+ * </p>
+ *
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class IsotopeTable {
+  // Prevent this class from being instantiated
+  private IsotopeTable() {}
+
+  private static final double[][] MASSES = new double[PeriodicTable.MAX_ATOMIC_NUMBER + 1][];
+  private static final double[][] ABUNDANCES = new double[PeriodicTable.MAX_ATOMIC_NUMBER + 1][];
+  private static final double[] NONE = new double[0];
+
+  // Each call lists the mass, then the abundance, of every isotope of an element.
+  static {
+    // H
+    isotopes(1, 1.00782503207, 0.999885, 2.0141017778, 0.000115);
+    // He
+    isotopes(2, 3.0160293191, 0.00000134, 4.00260325415, 0.99999866);
+    // Li
+    isotopes(3, 6.015122795, 0.0759, 7.01600455, 0.9241);
+    // Be
+    isotopes(4, 9.0121822, 1);
+    // B
+    isotopes(5, 10.0129370, 0.199, 11.0093054, 0.801);
+    // C
+    isotopes(6, 12.0, 0.9893, 13.0033548378, 0.0107);
+    // N
+    isotopes(7, 14.0030740048, 0.99636, 15.0001088982, 0.00364);
+    // O
+    isotopes(8, 15.99491461956, 0.99757, 16.99913170, 0.00038, 17.9991610, 0.00205);
+    // F
+    isotopes(9, 18.99840322, 1);
+    // Ne
+    isotopes(10, 19.9924401754, 0.9048, 20.99384668, 0.0027, 21.991385114, 0.0925);
+    // Na
+    isotopes(11, 22.9897692809, 1);
+    // Mg
+    isotopes(12, 23.985041700, 0.7899, 24.98583692, 0.1000, 25.982592929, 0.1101);
+    // Al
+    isotopes(13, 26.98153863, 1);
+    // Si
+    isotopes(14, 27.9769265325, 0.92223, 28.976494700, 0.04685, 29.97377017, 0.03092);
+    // P
+    isotopes(15, 30.97376163, 1);
+    // S
+    isotopes(16, 31.97207100, 0.9499, 32.97145876, 0.0075, 33.96786690, 0.0425, 35.96708076,
+        0.0001);
+    // Cl
+    isotopes(17, 34.96885268, 0.7576, 36.96590259, 0.2424);
+    // Ar
+    isotopes(18, 35.967545106, 0.003365, 37.9627324, 0.000632, 39.9623831225, 0.996003);
+    // K
+    isotopes(19, 38.96370668, 0.932581, 39.96399848, 0.000117, 40.96182576, 0.067302);
+    // Ca
+    isotopes(20, 39.96259098, 0.96941, 41.95861801, 0.00647, 42.9587666, 0.00135, 43.9554818,
+        0.02086, 45.9536926, 0.00004, 47.952534, 0.00187);
+    // Sc
+    isotopes(21, 44.9559119, 1);
+    // Ti
+    isotopes(22, 45.9526316, 0.0825, 46.9517631, 0.0744, 47.9479463, 0.7372, 48.9478700, 0.0541,
+        49.9447912, 0.0518);
+    // V
+    isotopes(23, 49.9471585, 0.00250, 50.9439595, 0.99750);
+    // Cr
+    isotopes(24, 49.9460442, 0.04345, 51.9405075, 0.83789, 52.9406494, 0.09501, 53.9388804,
+        0.02365);
+    // Mn
+    isotopes(25, 54.9380451, 1);
+    // Fe
+    isotopes(26, 53.9396105, 0.05845, 55.9349375, 0.91754, 56.9353940, 0.02119, 57.9332756,
+        0.00282);
+    // Co
+    isotopes(27, 58.9331950, 1);
+    // Ni
+    isotopes(28, 57.9353429, 0.680769, 59.9307864, 0.262231, 60.9310560, 0.011399, 61.9283451,
+        0.036345, 63.9279660, 0.009256);
+    // Cu
+    isotopes(29, 62.9295975, 0.6915, 64.9277895, 0.3085);
+    // Zn
+    isotopes(30, 63.9291422, 0.48268, 65.9260334, 0.27975, 66.9271273, 0.04102, 67.9248442, 0.19024,
+        69.9253193, 0.00631);
+    // Ga
+    isotopes(31, 68.9255736, 0.60108, 70.9247013, 0.39892);
+    // Ge
+    isotopes(32, 69.9242474, 0.2038, 71.9220758, 0.2731, 72.9234589, 0.0776, 73.9211778, 0.3672,
+        75.9214026, 0.0783);
+    // As
+    isotopes(33, 74.9215965, 1);
+    // Se
+    isotopes(34, 73.9224764, 0.0089, 75.9192136, 0.0937, 76.9199140, 0.0763, 77.9173091, 0.2377,
+        79.9165213, 0.4961, 81.9166994, 0.0873);
+    // Br
+    isotopes(35, 78.9183371, 0.5069, 80.9162906, 0.4931);
+    // Kr
+    isotopes(36, 77.9203648, 0.00355, 79.9163790, 0.02286, 81.9134836, 0.11593, 82.914136, 0.11500,
+        83.911507, 0.56987, 85.91061073, 0.17279);
+    // Rb
+    isotopes(37, 84.911789738, 0.7217, 86.909180527, 0.2783);
+    // Sr
+    isotopes(38, 83.913425, 0.0056, 85.9092602, 0.0986, 86.9088771, 0.0700, 87.9056121, 0.8258);
+    // Y
+    isotopes(39, 88.9058483, 1);
+    // Zr
+    isotopes(40, 89.9047044, 0.5145, 90.9056458, 0.1122, 91.9050408, 0.1715, 93.9063152, 0.1738,
+        95.9082734, 0.0280);
+    // Nb
+    isotopes(41, 92.9063781, 1);
+    // Mo
+    isotopes(42, 91.906811, 0.1477, 93.9050883, 0.0923, 94.9058421, 0.1590, 95.9046795, 0.1668,
+        96.9060215, 0.0956, 97.9054082, 0.2419, 99.907477, 0.0967);
+    // Ru
+    isotopes(44, 95.907598, 0.0554, 97.905287, 0.0187, 98.9059393, 0.1276, 99.9042195, 0.1260,
+        100.9055821, 0.1706, 101.9043493, 0.3155, 103.905433, 0.1862);
+    // Rh
+    isotopes(45, 102.905504, 1);
+    // Pd
+    isotopes(46, 101.905609, 0.0102, 103.904036, 0.1114, 104.905085, 0.2233, 105.903486, 0.2733,
+        107.903892, 0.2646, 109.905153, 0.1172);
+    // Ag
+    isotopes(47, 106.905097, 0.51839, 108.904752, 0.48161);
+    // Cd
+    isotopes(48, 105.906459, 0.0125, 107.904184, 0.0089, 109.9030021, 0.1249, 110.9041781, 0.1280,
+        111.9027578, 0.2413, 112.9044017, 0.1222, 113.9033585, 0.2873, 115.904756, 0.0749);
+    // In
+    isotopes(49, 112.904058, 0.0429, 114.903878, 0.9571);
+    // Sn
+    isotopes(50, 111.904818, 0.0097, 113.902779, 0.0066, 114.903342, 0.0034, 115.901741, 0.1454,
+        116.902952, 0.0768, 117.901603, 0.2422, 118.903308, 0.0859, 119.9021947, 0.3258,
+        121.9034390, 0.0463, 123.9052739, 0.0579);
+    // Sb
+    isotopes(51, 120.9038157, 0.5721, 122.9042140, 0.4279);
+    // Te
+    isotopes(52, 119.904020, 0.0009, 121.9030439, 0.0255, 122.9042700, 0.0089, 123.9028179, 0.0474,
+        124.9044307, 0.0707, 125.9033117, 0.1884, 127.9044631, 0.3174, 129.9062244, 0.3408);
+    // I
+    isotopes(53, 126.904473, 1);
+    // Xe
+    isotopes(54, 123.905893, 0.000952, 125.904274, 0.000890, 127.9035313, 0.019102, 128.9047794,
+        0.264006, 129.9035080, 0.040710, 130.9050824, 0.212324, 131.9041535, 0.269086, 133.9053945,
+        0.104357, 135.907219, 0.088573);
+    // Cs
+    isotopes(55, 132.905451933, 1);
+    // Ba
+    isotopes(56, 129.9063208, 0.00106, 131.9050613, 0.00101, 133.9045084, 0.02417, 134.9056886,
+        0.06592, 135.9045759, 0.07854, 136.9058274, 0.11232, 137.9052472, 0.71698);
+    // Pt
+    isotopes(78, 189.959932, 0.00014, 191.961038, 0.00782, 193.962680, 0.32967, 194.964791, 0.33832,
+        195.964951, 0.25242, 197.967893, 0.07163);
+    // Au
+    isotopes(79, 196.9665687, 1);
+    // Hg
+    isotopes(80, 195.965833, 0.0015, 197.966769, 0.0997, 198.968279, 0.1687, 199.968326, 0.2310,
+        200.970302, 0.1318, 201.970643, 0.2986, 203.973493, 0.0687);
+    // Tl
+    isotopes(81, 202.9723442, 0.2952, 204.9744275, 0.7048);
+    // Pb
+    isotopes(82, 203.9730436, 0.014, 205.9744653, 0.241, 206.9758969, 0.221, 207.9766521, 0.524);
+    // Bi
+    isotopes(83, 208.9803987, 1);
+    // Th
+    isotopes(90, 232.0380553, 1);
+    // U
+    isotopes(92, 234.0409521, 0.000054, 235.0439299, 0.007204, 238.0507882, 0.992742);
+  }
+
+  /**
+   * Gets the number of isotopes of an element in the table.
+   *
+   * @param atomicNumber the atomic number of the element
+   * @return the number of isotopes, or 0 if the table has none for that element
+   */
+
+  public static int numOfIsotopes(int atomicNumber) {
+    return massesOf(atomicNumber).length;
+  }
+
+  /**
+   * Gets the exact mass of an isotope.
+   *
+   * @param atomicNumber the atomic number of the element
+   * @param isotope the index of the isotope, in order of mass
+   * @return the mass of the isotope, in u
+   */
+
+  public static double isotopeMass(int atomicNumber, int isotope) {
+    return massesOf(atomicNumber)[isotope];
+  }
+
+  /**
+   * Gets the natural abundance of an isotope.
+   *
+   * @param atomicNumber the atomic number of the element
+   * @param isotope the index of the isotope, in order of mass
+   * @return the fraction of the element's atoms that are this isotope
+   */
+
+  public static double isotopeAbundance(int atomicNumber, int isotope) {
+    double[] abundances = ABUNDANCES[atomicNumber];
+    return (abundances == null ? NONE : abundances)[isotope];
+  }
+
+  /**
+   * Gets the mass number of an isotope, i.e. its number of protons and neutrons.
+   *
+   * @param atomicNumber the atomic number of the element
+   * @param isotope the index of the isotope, in order of mass
+   * @return the mass number of the isotope
+   */
+
+  public static int massNumber(int atomicNumber, int isotope) {
+    return (int) Math.round(massesOf(atomicNumber)[isotope]);
+  }
+
+  /**
+   * Gets the index of the most abundant isotope of an element.
+   *
+   * @param atomicNumber the atomic number of the element
+   * @return the index of the most abundant isotope, or -1 if the table has none for that element
+   */
+
+  public static int mostAbundantIsotope(int atomicNumber) {
+    double[] abundances = ABUNDANCES[atomicNumber];
+    if (abundances == null) {
+      return -1;
+    }
+    int best = 0;
+    for (int isotope = 1; isotope < abundances.length; isotope++) {
+      if (abundances[isotope] > abundances[best]) {
+        best = isotope;
+      }
+    }
+    return best;
+  }
+
+  /* UTILITY METHODS */
+
+  private static double[] massesOf(int atomicNumber) {
+    double[] masses = MASSES[atomicNumber];
+    return masses == null ? NONE : masses;
+  }
+
+  private static void isotopes(int atomicNumber, double... massesAndAbundances) {
+    int numOfIsotopes = massesAndAbundances.length / 2;
+    double[] masses = new double[numOfIsotopes];
+    double[] abundances = new double[numOfIsotopes];
+    for (int isotope = 0; isotope < numOfIsotopes; isotope++) {
+      masses[isotope] = massesAndAbundances[isotope * 2];
+      abundances[isotope] = massesAndAbundances[isotope * 2 + 1];
+    }
+    MASSES[atomicNumber] = masses;
+    ABUNDANCES[atomicNumber] = abundances;
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright Ariel Mordoch 2014 
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util.elementinfo;
+
+import com.mordoch.chemtools.util.metrics.Metrics;
+
+/**
+ * A dense periodic table indexed by atomic number. Every property of an element is stored in an
+ * array, so looking up an element is an array read rather than a String hash and a boxed value.
+ * Element symbols are resolved to atomic numbers through a perfect hash: an uppercase letter and
+ * up to two lowercase letters always map to a distinct slot of a lookup table.
+ * <p>
+ * Index 0 of every array is unused, so an atomic number can be used as an index directly.
+ * </p>
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class PeriodicTable {
+  // Prevent this class from being instantiated
+  private PeriodicTable() {}
+
+  /** The largest atomic number in the table. */
+  public static final int MAX_ATOMIC_NUMBER = 118;
+
+  /** The charge of elements whose charge is unknown, the same value used by ChargeList. */
+  public static final int UNKNOWN_CHARGE = 999;
+
+  private static final int SIZE = MAX_ATOMIC_NUMBER + 1;
+  private static final int LOWERCASE_SLOTS = 27;
+
+  // Charges that are not known
+  private static final byte UNK = Byte.MIN_VALUE;
+
+  // Short names for the ordinals of ElementType and ElementFamily, to keep the tables readable
+  private static final byte HYD = (byte) ElementType.HYDROGEN.ordinal();
+  private static final byte MET = (byte) ElementType.METAL.ordinal();
+  private static final byte MLD = (byte) ElementType.METALLOID.ordinal();
+  private static final byte NON = (byte) ElementType.NONMETAL.ordinal();
+  private static final byte ALK = (byte) ElementFamily.ALKALI_METAL.ordinal();
+  private static final byte AEM = (byte) ElementFamily.ALKALINE_EARTH_METAL.ordinal();
+  private static final byte TRM = (byte) ElementFamily.TRANSITION_METAL.ordinal();
+  private static final byte PTM = (byte) ElementFamily.POST_TRANSITION_METAL.ordinal();
+  private static final byte FML = (byte) ElementFamily.METALLOID.ordinal();
+  private static final byte FNM = (byte) ElementFamily.NONMETAL.ordinal();
+  private static final byte HAL = (byte) ElementFamily.HALOGEN.ordinal();
+  private static final byte NOB = (byte) ElementFamily.NOBLE_GAS.ordinal();
+  private static final byte LAN = (byte) ElementFamily.LANTHANIDE.ordinal();
+  private static final byte ACT = (byte) ElementFamily.ACTINIDE.ordinal();
+
+  /*
+   * The tables below are in order of atomic number. They are plain constant arrays so that loading
+   * this class does no more than copy them into memory.
+   */
+
+  private static final String[] SYMBOLS = {null,
+      "H", "He", "Li", "Be", "B", "C", "N", "O", "F", "Ne", "Na", "Mg", "Al", "Si", "P", "S", "Cl",
+      "Ar", "K", "Ca", "Sc", "Ti", "V", "Cr", "Mn", "Fe", "Co", "Ni", "Cu", "Zn", "Ga", "Ge", "As",
+      "Se", "Br", "Kr", "Rb", "Sr", "Y", "Zr", "Nb", "Mo", "Tc", "Ru", "Rh", "Pd", "Ag", "Cd", "In",
+      "Sn", "Sb", "Te", "I", "Xe", "Cs", "Ba", "La", "Ce", "Pr", "Nd", "Pm", "Sm", "Eu", "Gd", "Tb",
+      "Dy", "Ho", "Er", "Tm", "Yb", "Lu", "Hf", "Ta", "W", "Re", "Os", "Ir", "Pt", "Au", "Hg", "Tl",
+      "Pb", "Bi", "Po", "At", "Rn", "Fr", "Ra", "Ac", "Th", "Pa", "U", "Np", "Pu", "Am", "Cm", "Bk",
+      "Cf", "Es", "Fm", "Md", "No", "Lr", "Rf", "Db", "Sg", "Bh", "Hs", "Mt", "Ds", "Rg", "Cn",
+      "Uut", "Fl", "Uup", "Lv", "Uus", "Uuo"};
+
+  private static final String[] NAMES = {null,
+      "Hydrogen", "Helium", "Lithuim", "Beryllium", "Boron", "Carbon", "Nitrogren", "Oxygen",
+      "Flourine", "Neon", "Sodium", "Magnesium", "Aluminium", "Silicon", "Phosphorus", "Sulfur",
+      "Chlorine", "Argon", "Potassium", "Calcium", "Scandium", "Titanium", "Vanadium", "Chromium",
+      "Manganese", "Iron", "Cobalt", "Nickel", "Copper", "Zinc", "Gallium", "Germanium", "Arsenic",
+      "Selinium", "Bromine", "Krypton", "Rubidium", "Strontium", "Yttrium", "Zirconium", "Niobium",
+      "Molybdenum", "Technetium", "Ruthenium", "Rhodium", "Palladium", "Silver", "Cadmium",
+      "Indium", "Tin", "Antimony", "Tellurium", "Iodine", "Xenon", "Ceaseium", "Barium",
+      "Lanthanum", "Cerium", "Praseodymium", "Neodymium", "Promethium", "Samarium", "Europium",
+      "Gadolinium", "Terbium", "Dysprosium", "Holmium", "Erbium", "Thulium", "Yttrbium", "Lutetium",
+      "Hafnium", "Tantalum", "Tungsten", "Rhenium", "Osmium", "Iridium", "Platinum", "Gold",
+      "Mercury", "Thallium", "Lead", "Bismuth", "Polonium", "Astaline", "Radon", "Francium",
+      "Radium", "Actinium", "Thorium", "Protactinium", "Uranium", "Neptunium", "Plutonium",
+      "Americium", "Curium", "Berkelium", "Califonium", "Einsteinium", "Fermium", "Mendelvium",
+      "Nobelium", "Lawrencium", "Rutherfordium", "Dubnium", "Seaborgium", "Bohrium", "Hassium",
+      "Meitnerium", "Darmstadtium", "Roentgenium", "Copernicium", "Unutrium", "Flevroium",
+      "Unupentium", "Livermorium", "Unuseptium", "Ununoctium"};
+
+  private static final double[] MASSES = {0,
+      1.008, 4.002602, 6.94, 9.012182, 10.81, 12.011, 14.007, 15.999, 18.9984032, 20.1797,
+      22.98976928, 24.305, 26.9815386, 28.085, 30.973762, 32.06, 35.453, 39.948, 39.0983, 40.078,
+      44.955912, 47.867, 50.9415, 51.9961, 54.938045, 55.845, 58.933195, 58.6934, 63.536, 65.38,
+      69.723, 72.63, 74.9216, 78.96, 79.904, 83.798, 85.4678, 87.62, 88.90585, 91.224, 92.90638,
+      95.96, 98.0, 101.07, 102.9055, 106.42, 107.8682, 112.411, 114.818, 118.71, 121.76, 127.6,
+      126.90447, 131.293, 132.9054519, 137.327, 138.90547, 140.116, 140.90765, 144.242, 145.0,
+      150.36, 151.964, 157.25, 158.92535, 162.5, 164.93032, 167.259, 168.93421, 173.054, 174.9668,
+      178.49, 180.94788, 183.84, 186.207, 190.23, 192.217, 195.084, 196.966569, 200.59, 204.38,
+      207.2, 208.9804, 209.0, 210.0, 222.0, 223.0, 226.0, 227.0, 232.03806, 231.03586, 238.02891,
+      237.0, 244.0, 243.0, 247.0, 247.0, 251.0, 252.0, 257.0, 258.0, 259.0, 262.0, 267.0, 268.0,
+      271.0, 272.0, 270.0, 276.0, 281.0, 280.0, 285.0, 284.0, 289.0, 288.0, 293.0, 294.0, 294.0};
+
+  private static final byte[] CHARGES = {UNK,
+      1, 0, 1, 2, UNK, UNK, -3, -2, -1, 0, 1, 2, UNK, UNK, -3, -2, -1, 0, 1, 2, UNK, UNK, UNK, UNK,
+      UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, -3, -2, -1, 0, 1, 2, UNK, UNK, UNK, UNK, UNK, UNK,
+      UNK, UNK, UNK, UNK, UNK, UNK, -3, -2, -1, 0, 1, 2, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK,
+      UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, -3,
+      -2, -1, 0, 1, 2, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK,
+      UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, UNK, -2, UNK, UNK};
+
+  private static final byte[] TYPES = {NON,
+      HYD, NON, MET, MET, MLD, NON, NON, NON, NON, NON, MET, MET, MET, MLD, NON, NON, NON, NON, MET,
+      MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MLD, MLD, NON, NON, NON, MET, MET,
+      MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MLD, MLD, NON, NON, MET, MET, MET,
+      MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET,
+      MET, MET, MET, MET, MET, MET, MET, MLD, NON, NON, MET, MET, MET, MET, MET, MET, MET, MET, MET,
+      MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET, MET,
+      MET, MET, MLD, NON};
+
+  private static final byte[] FAMILIES = {FNM,
+      FNM, NOB, ALK, AEM, FML, FNM, FNM, FNM, HAL, NOB, ALK, AEM, PTM, FML, FNM, FNM, HAL, NOB, ALK,
+      AEM, TRM, TRM, TRM, TRM, TRM, TRM, TRM, TRM, TRM, TRM, PTM, FML, FML, FNM, HAL, NOB, ALK, AEM,
+      TRM, TRM, TRM, TRM, TRM, TRM, TRM, TRM, TRM, TRM, PTM, PTM, FML, FML, HAL, NOB, ALK, AEM, LAN,
+      LAN, LAN, LAN, LAN, LAN, LAN, LAN, LAN, LAN, LAN, LAN, LAN, LAN, LAN, TRM, TRM, TRM, TRM, TRM,
+      TRM, TRM, TRM, TRM, PTM, PTM, PTM, FML, HAL, NOB, ALK, AEM, ACT, ACT, ACT, ACT, ACT, ACT, ACT,
+      ACT, ACT, ACT, ACT, ACT, ACT, ACT, ACT, TRM, TRM, TRM, TRM, TRM, TRM, TRM, TRM, TRM, PTM, PTM,
+      PTM, PTM, FML, NOB};
+
+  private static final ElementType[] TYPE_VALUES = ElementType.values();
+  private static final ElementFamily[] FAMILY_VALUES = ElementFamily.values();
+
+  // Atomic numbers by symbol code; 0 means there is no such element.
+  private static final byte[] ATOMIC_NUMBER_BY_CODE =
+      new byte[26 * LOWERCASE_SLOTS * LOWERCASE_SLOTS];
+
+  static {
+    for (int atomicNumber = 1; atomicNumber < SIZE; atomicNumber++) {
+      String symbol = SYMBOLS[atomicNumber];
+      char second = symbol.length() > 1 ? symbol.charAt(1) : 0;
+      char third = symbol.length() > 2 ? symbol.charAt(2) : 0;
+      ATOMIC_NUMBER_BY_CODE[code(symbol.charAt(0), second, third)] = (byte) atomicNumber;
+    }
+  }
+
+  /**
+   * Looks up the atomic number of an element symbol.
+   * 
+   * @param symbol the symbol of an element, e.g. "Fe"
+   * @return the atomic number, or 0 if there is no such element or the symbol is null
+   */
+
+  public static int atomicNumberOf(CharSequence symbol) {
+    Metrics.ELEMENT_LOOKUPS.increment();
+    int length = symbol == null ? 0 : symbol.length();
+    if (length == 0 || length > 3) {
+      return 0;
+    }
+    char second = length > 1 ? symbol.charAt(1) : 0;
+    char third = length > 2 ? symbol.charAt(2) : 0;
+    if ((length > 1 && !isLowercase(second)) || (length > 2 && !isLowercase(third))) {
+      return 0;
+    }
+    return atomicNumberOf(symbol.charAt(0), second, third);
+  }
+
+  /**
+   * Looks up the atomic number of an element symbol given as characters. Pass 0 for the second
+   * and third characters of shorter symbols.
+   * 
+   * @param first the uppercase first letter of the symbol
+   * @param second the lowercase second letter of the symbol, or 0
+   * @param third the lowercase third letter of the symbol, or 0
+   * @return the atomic number, or 0 if there is no such element or a letter is out of range
+   */
+
+  public static int atomicNumberOf(char first, char second, char third) {
+    if (first < 'A' || first > 'Z' || (second != 0 && !isLowercase(second))
+        || (third != 0 && !isLowercase(third))) {
+      return 0;
+    }
+    return ATOMIC_NUMBER_BY_CODE[code(first, second, third)];
+  }
+
+  /**
+   * Checks whether a number is the atomic number of an element in the table.
+   * 
+   * @param atomicNumber the number to check
+   * @return true if there is an element with that atomic number
+   */
+
+  public static boolean contains(int atomicNumber) {
+    return atomicNumber > 0 && atomicNumber < SIZE && SYMBOLS[atomicNumber] != null;
+  }
+
+  /**
+   * Gets the symbol of an element. The returned String is shared, so this does not allocate.
+   * 
+   * @param atomicNumber the atomic number of the element
+   * @return the symbol, e.g. "Fe"
+   */
+
+  public static String symbol(int atomicNumber) {
+    return SYMBOLS[atomicNumber];
+  }
+
+  /**
+   * Gets the name of an element.
+   * 
+   * @param atomicNumber the atomic number of the element
+   * @return the name, e.g. "Iron"
+   */
+
+  public static String name(int atomicNumber) {
+    return NAMES[atomicNumber];
+  }
+
+  /**
+   * Gets the atomic mass of an element, which is also its molar mass in g/mol.
+   * 
+   * @param atomicNumber the atomic number of the element
+   * @return the atomic mass
+   */
+
+  public static double mass(int atomicNumber) {
+    return MASSES[atomicNumber];
+  }
+
+  /**
+   * Gets the most common charge of an element.
+   * 
+   * @param atomicNumber the atomic number of the element
+   * @return the charge, or {@link #UNKNOWN_CHARGE} if it is not known
+   */
+
+  public static int charge(int atomicNumber) {
+    byte charge = CHARGES[atomicNumber];
+    return charge == UNK ? UNKNOWN_CHARGE : charge;
+  }
+
+  /**
+   * Gets the type of an element: metal, nonmetal, metalloid or hydrogen.
+   * 
+   * @param atomicNumber the atomic number of the element
+   * @return the type of the element
+   */
+
+  public static ElementType type(int atomicNumber) {
+    return TYPE_VALUES[TYPES[atomicNumber]];
+  }
+
+  /**
+   * Gets the family of an element, e.g. transition metal or noble gas.
+   * 
+   * @param atomicNumber the atomic number of the element
+   * @return the family of the element
+   */
+
+  public static ElementFamily family(int atomicNumber) {
+    return FAMILY_VALUES[FAMILIES[atomicNumber]];
+  }
+
+  /* UTILITY METHODS */
+
+  private static int code(char first, char second, char third) {
+    int secondSlot = second == 0 ? 0 : second - 'a' + 1;
+    int thirdSlot = third == 0 ? 0 : third - 'a' + 1;
+    return ((first - 'A') * LOWERCASE_SLOTS + secondSlot) * LOWERCASE_SLOTS + thirdSlot;
+  }
+
+  private static boolean isLowercase(char character) {
+    return character >= 'a' && character <= 'z';
+  }
+}
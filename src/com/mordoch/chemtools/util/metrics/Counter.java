@@ -0,0 +1,72 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events that are too frequent or too quick to time, such as element lookups. When metrics
+ * are off, {@link #increment()} compiles down to nothing.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class Counter {
+
+  private final String name;
+  private final LongAdder count = new LongAdder();
+
+  Counter(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Adds one to the counter, if metrics are on.
+   */
+
+  public void increment() {
+    if (Metrics.ENABLED) {
+      count.increment();
+    }
+  }
+
+  /**
+   * Gets the name of the counter.
+   * 
+   * @return the name, e.g. "elements.symbolLookups"
+   */
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the number of events counted.
+   * 
+   * @return the count
+   */
+
+  public long count() {
+    return count.sum();
+  }
+
+  void reset() {
+    count.reset();
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds with a fixed relative precision, in the manner of an
+ * HdrHistogram. Each power of two is split into {@value #SUB_BUCKETS} equal buckets, so a value is
+ * reported within 1/{@value #SUB_BUCKETS} of what was recorded, from a nanosecond up to centuries,
+ * in under 1000 buckets. Recording is one atomic increment and never allocates.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class LatencyHistogram {
+
+  static final int SUB_BUCKETS = 16;
+  private static final int SUB_BUCKET_BITS = 4;
+  // Enough buckets for any positive long
+  private static final int NUM_OF_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(NUM_OF_BUCKETS);
+
+  /**
+   * Records a duration.
+   * 
+   * @param nanos the duration in nanoseconds; negative durations count as 0
+   */
+
+  public void record(long nanos) {
+    counts.incrementAndGet(bucketOf(Math.max(0, nanos)));
+  }
+
+  /**
+   * Gets the number of durations recorded.
+   * 
+   * @return the number of durations
+   */
+
+  public long count() {
+    long total = 0;
+    for (int bucket = 0; bucket < NUM_OF_BUCKETS; bucket++) {
+      total += counts.get(bucket);
+    }
+    return total;
+  }
+
+  /**
+   * Gets the duration below which a given fraction of the recorded durations fall.
+   * 
+   * @param quantile the fraction, e.g. 0.99 for the 99th percentile
+   * @return the duration in nanoseconds, or 0 if nothing was recorded
+   */
+
+  public long percentile(double quantile) {
+    long[] snapshot = new long[NUM_OF_BUCKETS];
+    long total = 0;
+    for (int bucket = 0; bucket < NUM_OF_BUCKETS; bucket++) {
+      snapshot[bucket] = counts.get(bucket);
+      total += snapshot[bucket];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    for (int bucket = 0; bucket < NUM_OF_BUCKETS; bucket++) {
+      seen += snapshot[bucket];
+      if (seen >= rank) {
+        return highestValueIn(bucket);
+      }
+    }
+    return highestValueIn(NUM_OF_BUCKETS - 1);
+  }
+
+  /**
+   * Clears the histogram. Durations recorded at the same time may or may not be kept.
+   */
+
+  public void reset() {
+    for (int bucket = 0; bucket < NUM_OF_BUCKETS; bucket++) {
+      counts.set(bucket, 0);
+    }
+  }
+
+  /* UTILITY METHODS */
+
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long highestValueIn(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.mordoch.chemtools.formulatools.FtHelper;
+import com.mordoch.chemtools.util.Analysis;
+import com.mordoch.chemtools.util.BoundedCache;
+
+/**
+ * The registry of the library's runtime metrics. Metrics are off unless the JVM is started with
+ * <code>-Dchemtools.metrics=true</code>. The flag is read once into a static final field, so when
+ * it is off the JIT compiler removes the timing and counting from the hot paths altogether.
+ * <p>
+ * When metrics are on, they are published as the MBean {@value #OBJECT_NAME} on the platform
+ * MBean server, where tools such as JConsole can read them, and {@link #snapshot()} prints them as
+ * text. The MBean also shows the hit and miss counters of the intern pools and the molar mass
+ * cache, which are kept whether or not metrics are on.
+ * </p>
+ * <p>
+ * A call is timed like this:
+ * </p>
+ * 
+ * <pre>
+ * long start = Metrics.start();
+ * try {
+ *   // the operation
+ * } finally {
+ *   Metrics.PARSE_FORMULA.stop(start);
+ * }
+ * </pre>
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class Metrics {
+
+  /** The system property that turns metrics on. */
+  public static final String ENABLED_PROPERTY = "chemtools.metrics";
+
+  /** Whether metrics are being collected. */
+  public static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+  /** The name of the MBean the metrics are published as. */
+  public static final String OBJECT_NAME = "com.mordoch.chemtools:type=Metrics";
+
+  // Must come before the metrics, which add themselves
+  private static final List<Timer> TIMERS = new ArrayList<Timer>();
+  private static final List<Counter> COUNTERS = new ArrayList<Counter>();
+
+  /** FtHelper#parseFormula, including intern pool hits. */
+  public static final Timer PARSE_FORMULA = timer("formula.parse");
+  /** FtHelper#parseEquation, including intern pool hits. */
+  public static final Timer PARSE_EQUATION = timer("equation.parse");
+  /** Analysis#computeMolarMass(String), including cache hits. */
+  public static final Timer MOLAR_MASS = timer("analysis.molarMass");
+  /** Stoichiometry#theoreticalYield. */
+  public static final Timer THEORETICAL_YIELD = timer("stoichiometry.theoreticalYield");
+  /** Stoichiometry#percentYield. */
+  public static final Timer PERCENT_YIELD = timer("stoichiometry.percentYield");
+  /** Stoichiometry#findReactantRatio. */
+  public static final Timer REACTANT_RATIO = timer("stoichiometry.reactantRatio");
+  /** Stoichiometry#findProductRatio. */
+  public static final Timer PRODUCT_RATIO = timer("stoichiometry.productRatio");
+  /** Element symbols looked up through PeriodicTable#atomicNumberOf(CharSequence). */
+  public static final Counter ELEMENT_LOOKUPS = counter("elements.symbolLookups");
+
+  private static boolean registered;
+
+  static {
+    if (ENABLED) {
+      registerMBean();
+    }
+  }
+
+  private Metrics() {}
+
+  /**
+   * Gets the start time of a call to time.
+   * 
+   * @return the current time in nanoseconds, or 0 if metrics are off
+   */
+
+  public static long start() {
+    return ENABLED ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Gets every timer, in the order they are printed.
+   * 
+   * @return an unmodifiable List of the timers
+   */
+
+  public static List<Timer> timers() {
+    return Collections.unmodifiableList(TIMERS);
+  }
+
+  /**
+   * Gets every counter, in the order they are printed.
+   * 
+   * @return an unmodifiable List of the counters
+   */
+
+  public static List<Counter> counters() {
+    return Collections.unmodifiableList(COUNTERS);
+  }
+
+  /**
+   * Prints every metric on its own line, e.g.
+   * "formula.parse count=1200 mean=0.85us p50=0.62us p90=1.25us p99=4.00us max=52.31us".
+   * 
+   * @return the metrics as text
+   */
+
+  public static String snapshot() {
+    StringBuilder builder = new StringBuilder();
+    if (!ENABLED) {
+      builder.append("# metrics are off; start with -D").append(ENABLED_PROPERTY)
+          .append("=true\n");
+    }
+    for (Timer timer : TIMERS) {
+      builder.append(timer.getName()).append(" count=").append(timer.count())
+          .append(" mean=").append(micros(timer.meanNanos()))
+          .append(" p50=").append(micros(timer.percentileNanos(0.5)))
+          .append(" p90=").append(micros(timer.percentileNanos(0.9)))
+          .append(" p99=").append(micros(timer.percentileNanos(0.99)))
+          .append(" max=").append(micros(timer.maxNanos())).append('\n');
+    }
+    for (Counter counter : COUNTERS) {
+      builder.append(counter.getName()).append(" count=").append(counter.count()).append('\n');
+    }
+    appendCache(builder, "cache.formulaPool", FtHelper.getFormulaPool());
+    appendCache(builder, "cache.equationPool", FtHelper.getEquationPool());
+    appendCache(builder, "cache.molarMass", Analysis.getMolarMassCache());
+    return builder.toString();
+  }
+
+  /**
+   * Clears every timer and counter. The cache counters are reset through the caches themselves.
+   */
+
+  public static void reset() {
+    for (Timer timer : TIMERS) {
+      timer.reset();
+    }
+    for (Counter counter : COUNTERS) {
+      counter.reset();
+    }
+  }
+
+  /**
+   * Publishes the metrics on the platform MBean server, if they aren't already. This is done
+   * automatically when metrics are on.
+   * 
+   * @return true if the MBean is registered
+   */
+
+  public static synchronized boolean registerMBean() {
+    if (!registered) {
+      try {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) {
+          server.registerMBean(new MetricsBean(), name);
+        }
+        registered = true;
+      } catch (JMException e) {
+        // The metrics can still be read with snapshot()
+      } catch (SecurityException e) {
+        // Likewise
+      }
+    }
+    return registered;
+  }
+
+  /* UTILITY METHODS */
+
+  private static Timer timer(String name) {
+    Timer timer = new Timer(name);
+    TIMERS.add(timer);
+    return timer;
+  }
+
+  private static Counter counter(String name) {
+    Counter counter = new Counter(name);
+    COUNTERS.add(counter);
+    return counter;
+  }
+
+  static String micros(double nanos) {
+    return String.format(Locale.ROOT, "%.2fus", nanos / 1000);
+  }
+
+  private static void appendCache(StringBuilder builder, String name, BoundedCache<?, ?> cache) {
+    builder.append(name).append(" size=").append(cache.size()).append(" hits=")
+        .append(cache.hits()).append(" misses=").append(cache.misses()).append(" evictions=")
+        .append(cache.evictions()).append('\n');
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ReflectionException;
+
+import com.mordoch.chemtools.formulatools.FtHelper;
+import com.mordoch.chemtools.util.Analysis;
+import com.mordoch.chemtools.util.BoundedCache;
+
+/**
+ * The MBean that publishes {@link Metrics}. Each timer gets the attributes
+ * "&lt;name&gt;.count", ".meanMicros", ".p50Micros", ".p90Micros", ".p99Micros" and ".maxMicros",
+ * each counter a ".count" attribute, and each cache ".hits", ".misses" and ".evictions"
+ * attributes. "Snapshot" holds the text of {@link Metrics#snapshot()}, and the "reset" operation
+ * clears the timers and counters. The attributes are read-only and computed when read.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+final class MetricsBean implements DynamicMBean {
+
+  private final Map<String, Gauge> gauges = new LinkedHashMap<String, Gauge>();
+
+  MetricsBean() {
+    gauges.put("Enabled", new Gauge(Boolean.class) {
+      @Override
+      Object value() {
+        return Metrics.ENABLED;
+      }
+    });
+    gauges.put("Snapshot", new Gauge(String.class) {
+      @Override
+      Object value() {
+        return Metrics.snapshot();
+      }
+    });
+    for (final Timer timer : Metrics.timers()) {
+      gauges.put(timer.getName() + ".count", new Gauge(Long.class) {
+        @Override
+        Object value() {
+          return timer.count();
+        }
+      });
+      gauges.put(timer.getName() + ".meanMicros", new Gauge(Double.class) {
+        @Override
+        Object value() {
+          return timer.meanNanos() / 1000;
+        }
+      });
+      addPercentile(timer, "p50Micros", 0.5);
+      addPercentile(timer, "p90Micros", 0.9);
+      addPercentile(timer, "p99Micros", 0.99);
+      gauges.put(timer.getName() + ".maxMicros", new Gauge(Double.class) {
+        @Override
+        Object value() {
+          return timer.maxNanos() / 1000.0;
+        }
+      });
+    }
+    for (final Counter counter : Metrics.counters()) {
+      gauges.put(counter.getName() + ".count", new Gauge(Long.class) {
+        @Override
+        Object value() {
+          return counter.count();
+        }
+      });
+    }
+    addCache("cache.formulaPool", 0);
+    addCache("cache.equationPool", 1);
+    addCache("cache.molarMass", 2);
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    Gauge gauge = gauges.get(attribute);
+    if (gauge == null) {
+      throw new AttributeNotFoundException("No such attribute: " + attribute);
+    }
+    return gauge.value();
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    AttributeList list = new AttributeList();
+    for (String attribute : attributes) {
+      Gauge gauge = gauges.get(attribute);
+      if (gauge != null) {
+        list.add(new Attribute(attribute, gauge.value()));
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature)
+      throws MBeanException, ReflectionException {
+    if ("reset".equals(actionName)) {
+      Metrics.reset();
+      return null;
+    }
+    throw new ReflectionException(new NoSuchMethodException(actionName));
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+    for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+      attributes.add(new MBeanAttributeInfo(entry.getKey(), entry.getValue().type.getName(),
+          entry.getKey(), true, false, false));
+    }
+    MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Clears the timers and counters",
+        new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+    return new MBeanInfo(getClass().getName(), "Chemistry Tools runtime metrics",
+        attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null,
+        new MBeanOperationInfo[] {reset}, null);
+  }
+
+  /* UTILITY METHODS */
+
+  private void addPercentile(final Timer timer, String suffix, final double quantile) {
+    gauges.put(timer.getName() + "." + suffix, new Gauge(Double.class) {
+      @Override
+      Object value() {
+        return timer.percentileNanos(quantile) / 1000.0;
+      }
+    });
+  }
+
+  // The caches can be replaced at runtime, so they are looked up on every read.
+  private void addCache(String name, final int which) {
+    gauges.put(name + ".hits", new Gauge(Long.class) {
+      @Override
+      Object value() {
+        return cache(which).hits();
+      }
+    });
+    gauges.put(name + ".misses", new Gauge(Long.class) {
+      @Override
+      Object value() {
+        return cache(which).misses();
+      }
+    });
+    gauges.put(name + ".evictions", new Gauge(Long.class) {
+      @Override
+      Object value() {
+        return cache(which).evictions();
+      }
+    });
+  }
+
+  private static BoundedCache<?, ?> cache(int which) {
+    switch (which) {
+      case 0:
+        return FtHelper.getFormulaPool();
+      case 1:
+        return FtHelper.getEquationPool();
+      default:
+        return Analysis.getMolarMassCache();
+    }
+  }
+
+  private abstract static class Gauge {
+
+    final Class<?> type;
+
+    Gauge(Class<?> type) {
+      this.type = type;
+    }
+
+    abstract Object value();
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright Ariel Mordoch 2014
+ * This file is part of Chemistry Tools.
+ * 
+ * Chemistry Tools is free software: you can redistribute it and/or modify it under the terms of the
+ * Lesser GNU General Public License as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * 
+ * Chemistry Tools is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Lesser GNU General Public License for more details.
+ * 
+ * You should have received a copy of the Lesser GNU General Public License along with Chemistry
+ * Tools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.mordoch.chemtools.util.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Counts the calls to an operation and records how long they take. A call is timed with
+ * {@link Metrics#start()} and {@link #stop(long)}; when metrics are off, both compile down to
+ * nothing.
+ * 
+ * @author Ariel Mordoch
+ * @version 1.0
+ * @since 0.8-alpha
+ */
+
+public final class Timer {
+
+  private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+    @Override
+    public long applyAsLong(long left, long right) {
+      return Math.max(left, right);
+    }
+  };
+
+  private final String name;
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(MAX, 0);
+  private final LatencyHistogram histogram = new LatencyHistogram();
+
+  Timer(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Records a call that started at the time returned by {@link Metrics#start()}.
+   * 
+   * @param start the start time in nanoseconds
+   */
+
+  public void stop(long start) {
+    if (Metrics.ENABLED) {
+      long nanos = System.nanoTime() - start;
+      count.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulate(nanos);
+      histogram.record(nanos);
+    }
+  }
+
+  /**
+   * Gets the name of the timer.
+   * 
+   * @return the name, e.g. "formula.parse"
+   */
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the number of calls recorded.
+   * 
+   * @return the number of calls
+   */
+
+  public long count() {
+    return count.sum();
+  }
+
+  /**
+   * Gets the mean duration of the calls.
+   * 
+   * @return the mean in nanoseconds, or 0 if there were no calls
+   */
+
+  public double meanNanos() {
+    long calls = count.sum();
+    return calls == 0 ? 0 : (double) totalNanos.sum() / calls;
+  }
+
+  /**
+   * Gets the duration of the longest call.
+   * 
+   * @return the longest duration in nanoseconds, or 0 if there were no calls
+   */
+
+  public long maxNanos() {
+    return maxNanos.get();
+  }
+
+  /**
+   * Gets a percentile of the durations of the calls.
+   * 
+   * @param quantile the fraction, e.g. 0.99 for the 99th percentile
+   * @return the duration in nanoseconds, within 1/16 of the exact value
+   */
+
+  public long percentileNanos(double quantile) {
+    return histogram.percentile(quantile);
+  }
+
+  void reset() {
+    count.reset();
+    totalNanos.reset();
+    maxNanos.reset();
+    histogram.reset();
+  }
+}
@@ -0,0 +1,7 @@
+/**
+ * This package contains the runtime metrics of the library: counters and latency histograms for
+ * the parsers, caches and analyses, published over JMX.
+ * @author Ariel Mordoch
+ * @since 0.8-alpha
+ */
+package com.mordoch.chemtools.util.metrics;